@@ -0,0 +1,88 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import static fr.vidal.oss.jaxb.atom.binary.BinaryFormat.KIND_ENTRY;
+import static fr.vidal.oss.jaxb.atom.binary.BinaryFormat.KIND_FEED;
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Compact, versioned binary codec for {@link Feed} and {@link Entry}, meant for local caching.
+ * <p>
+ * A document starts with a magic number and a format version, followed by a string table
+ * and a namespace dictionary every value refers to by index.
+ * Lengths and indexes are written as varints.
+ * Feed entries are length-prefixed so that {@link BinaryFeed} can decode them on demand.
+ * <p>
+ * {@link fr.vidal.oss.jaxb.atom.core.RawElement}s are kept as XML fragments.
+ * {@link fr.vidal.oss.jaxb.atom.core.TypedElement}s are {@linkplain fr.vidal.oss.jaxb.atom.core.TypedElement#encode() encoded}
+ * through their codec and decoded as the elements their codec writes.
+ */
+public final class AtomBinary {
+
+    private AtomBinary() {
+    }
+
+    public static void encode(Feed feed, OutputStream out) throws IOException {
+        BinaryOutput output = new BinaryOutput();
+        output.writeFeed(feed);
+        output.writeTo(out);
+    }
+
+    public static void encode(Entry entry, OutputStream out) throws IOException {
+        BinaryOutput output = new BinaryOutput();
+        output.writeEntry(entry);
+        output.writeTo(out);
+    }
+
+    public static byte[] encode(Feed feed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encode(feed, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(Entry entry) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encode(entry, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Opens a lazy view over an encoded feed.
+     * The buffer content is read in place and must not be modified while the view is in use.
+     */
+    public static BinaryFeed readFeed(ByteBuffer buffer) {
+        BinaryInput input = new BinaryInput(buffer);
+        BinaryInput.Cursor cursor = input.body();
+        int kind = cursor.readVarInt();
+        checkState(kind == KIND_FEED, "Expected an encoded feed, got kind %d", kind);
+        return new BinaryFeed(input, cursor);
+    }
+
+    public static Feed decodeFeed(ByteBuffer buffer) {
+        return readFeed(buffer).toFeed();
+    }
+
+    public static Entry decodeEntry(ByteBuffer buffer) {
+        BinaryInput input = new BinaryInput(buffer);
+        BinaryInput.Cursor cursor = input.body();
+        int kind = cursor.readVarInt();
+        checkState(kind == KIND_ENTRY, "Expected an encoded entry, got kind %d", kind);
+        return cursor.readEntry();
+    }
+}
@@ -0,0 +1,127 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableCollection;
+
+/**
+ * Lazy view over a binary encoded {@link Feed}.
+ * The feed header is decoded when the view is opened, entries are only decoded when accessed.
+ */
+public class BinaryFeed {
+
+    private final BinaryInput input;
+    private final String title;
+    private final String subtitle;
+    private final String id;
+    private final Date updateDate;
+    private final Author author;
+    private final Collection<Contributor> contributors;
+    private final Collection<Link> links;
+    private final Collection<ExtensionElement> extensionElements;
+    private final int[] entryOffsets;
+
+    BinaryFeed(BinaryInput input, BinaryInput.Cursor cursor) {
+        this.input = input;
+        title = cursor.readString();
+        subtitle = cursor.readString();
+        id = cursor.readString();
+        updateDate = cursor.readDate();
+        author = cursor.readAuthor();
+        contributors = cursor.readContributors();
+        links = cursor.readLinks();
+        extensionElements = cursor.readExtensionElements();
+        entryOffsets = new int[cursor.readVarInt()];
+        for (int i = 0; i < entryOffsets.length; i++) {
+            int length = cursor.readVarInt();
+            entryOffsets[i] = cursor.position();
+            cursor.skip(length);
+        }
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getUpdateDate() {
+        return updateDate;
+    }
+
+    public Author getAuthor() {
+        return author;
+    }
+
+    public Collection<Contributor> getContributors() {
+        return unmodifiableCollection(contributors);
+    }
+
+    public Collection<Link> getLinks() {
+        return unmodifiableCollection(links);
+    }
+
+    public Collection<ExtensionElement> getExtensionElements() {
+        return unmodifiableCollection(extensionElements);
+    }
+
+    public int getEntryCount() {
+        return entryOffsets.length;
+    }
+
+    /**
+     * Decodes the entry at the given index, each call decoding it anew.
+     */
+    public Entry getEntry(int index) {
+        return input.at(entryOffsets[index]).readEntry();
+    }
+
+    /**
+     * @return a list view decoding entries on access
+     */
+    public List<Entry> getEntries() {
+        return new AbstractList<Entry>() {
+            @Override
+            public Entry get(int index) {
+                return getEntry(index);
+            }
+
+            @Override
+            public int size() {
+                return getEntryCount();
+            }
+        };
+    }
+
+    public Feed toFeed() {
+        Feed.Builder builder = Feed.builder()
+            .withTitle(title)
+            .withSubtitle(subtitle)
+            .withId(id)
+            .withUpdateDate(updateDate)
+            .withAuthor(author);
+        contributors.forEach(builder::addContributor);
+        links.forEach(builder::addLink);
+        extensionElements.forEach(builder::addExtensionElement);
+        for (int i = 0; i < entryOffsets.length; i++) {
+            builder.addEntry(getEntry(i));
+        }
+        return builder.build();
+    }
+}
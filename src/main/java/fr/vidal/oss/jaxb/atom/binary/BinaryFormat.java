@@ -0,0 +1,19 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+final class BinaryFormat {
+
+    static final byte[] MAGIC = {'A', 'T', 'O', 'M'};
+    static final int VERSION = 1;
+
+    static final int KIND_FEED = 0;
+    static final int KIND_ENTRY = 1;
+
+    static final int SIMPLE_ELEMENT = 0;
+    static final int STRUCTURED_ELEMENT = 1;
+    static final int RAW_ELEMENT = 2;
+
+    static final int NULL_REF = 0;
+
+    private BinaryFormat() {
+    }
+}
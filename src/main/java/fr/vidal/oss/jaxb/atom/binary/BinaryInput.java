@@ -0,0 +1,291 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.StructuredElement;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static fr.vidal.oss.jaxb.atom.binary.BinaryFormat.*;
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decodes the binary format straight from a {@link ByteBuffer}, without copying it.
+ * Strings are only decoded the first time they are referenced.
+ */
+class BinaryInput {
+
+    private final ByteBuffer buffer;
+    private final int[] stringOffsets;
+    private final int[] stringLengths;
+    private final String[] strings;
+    private final Namespace[] namespaces;
+    private final int bodyOffset;
+
+    BinaryInput(ByteBuffer source) {
+        buffer = source.slice();
+        Cursor cursor = new Cursor(0);
+        for (byte magic : MAGIC) {
+            checkState(buffer.get(cursor.position++) == magic, "Not an Atom binary document");
+        }
+        int version = cursor.readVarInt();
+        checkState(version == VERSION, "Unsupported Atom binary version %d (expected %d)", version, VERSION);
+
+        int stringCount = cursor.readVarInt();
+        stringOffsets = new int[stringCount];
+        stringLengths = new int[stringCount];
+        strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            stringLengths[i] = cursor.readVarInt();
+            stringOffsets[i] = cursor.position;
+            cursor.position += stringLengths[i];
+        }
+
+        int namespaceCount = cursor.readVarInt();
+        namespaces = new Namespace[namespaceCount];
+        for (int i = 0; i < namespaceCount; i++) {
+            String uri = cursor.readString();
+            String prefix = cursor.readString();
+            namespaces[i] = Namespace.builder(uri).withPrefix(prefix).build();
+        }
+        bodyOffset = cursor.position;
+    }
+
+    Cursor body() {
+        return new Cursor(bodyOffset);
+    }
+
+    Cursor at(int position) {
+        return new Cursor(position);
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int index = ref - 1;
+        String value = strings[index];
+        if (value == null) {
+            value = decode(stringOffsets[index], stringLengths[index]);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private String decode(int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    final class Cursor {
+
+        private int position;
+
+        private Cursor(int position) {
+            this.position = position;
+        }
+
+        int position() {
+            return position;
+        }
+
+        void skip(int length) {
+            position += length;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                checkState(shift < 32, "Malformed varint at offset %d", position);
+                current = buffer.get(position++);
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                checkState(shift < 64, "Malformed varlong at offset %d", position);
+                current = buffer.get(position++);
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            return string(readVarInt());
+        }
+
+        Namespace readNamespace() {
+            int ref = readVarInt();
+            return ref == NULL_REF ? null : namespaces[ref - 1];
+        }
+
+        boolean readPresence() {
+            return readVarInt() != 0;
+        }
+
+        Date readDate() {
+            if (!readPresence()) {
+                return null;
+            }
+            long zigZag = readVarLong();
+            return new Date((zigZag >>> 1) ^ -(zigZag & 1));
+        }
+
+        Author readAuthor() {
+            if (!readPresence()) {
+                return null;
+            }
+            String name = readString();
+            return Author.builder(name).withEmail(readString()).build();
+        }
+
+        List<Contributor> readContributors() {
+            int count = readVarInt();
+            List<Contributor> contributors = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                contributors.add(Contributor.builder(name).withEmail(readString()).build());
+            }
+            return contributors;
+        }
+
+        List<Link> readLinks() {
+            int count = readVarInt();
+            List<Link> links = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String rel = readString();
+                String type = readString();
+                String href = readString();
+                String title = readString();
+                links.add(Link.builder(href)
+                    .withRel(rel == null ? null : LinkRel.valueOf(rel))
+                    .withType(type)
+                    .withTitle(title)
+                    .build());
+            }
+            return links;
+        }
+
+        List<ExtensionElement> readExtensionElements() {
+            int count = readVarInt();
+            List<ExtensionElement> elements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                elements.add(readExtensionElement());
+            }
+            return elements;
+        }
+
+        Entry readEntry() {
+            Entry.Builder builder = Entry.builder()
+                .withTitle(readString())
+                .withId(readString())
+                .withPublishedDate(readDate())
+                .withUpdateDate(readDate())
+                .withSummary(readSummary())
+                .withContents(readContents())
+                .withAuthor(readAuthor());
+            readContributors().forEach(builder::addContributor);
+            int categoryCount = readVarInt();
+            for (int i = 0; i < categoryCount; i++) {
+                String term = readString();
+                builder.addCategory(Category.builder(term).withScheme(readString()).build());
+            }
+            readLinks().forEach(builder::addLink);
+            readExtensionElements().forEach(builder::addExtensionElement);
+            int attributeCount = readVarInt();
+            for (int i = 0; i < attributeCount; i++) {
+                String uri = readString();
+                String prefix = readString();
+                String name = readString();
+                String value = readString();
+                builder.addAttribute(Attribute.builder(name, value)
+                    .withNamespace(Namespace.builder(uri).withPrefix(prefix).build())
+                    .build());
+            }
+            return builder.build();
+        }
+
+        private Summary readSummary() {
+            if (!readPresence()) {
+                return null;
+            }
+            String value = readString();
+            return Summary.builder().withValue(value).withType(readString()).build();
+        }
+
+        private Contents readContents() {
+            if (!readPresence()) {
+                return null;
+            }
+            String type = readString();
+            String contents = readString();
+            return Contents.builder()
+                .withType(type == null ? null : ContentType.builder(type).build())
+                .withContents(contents)
+                .build();
+        }
+
+        private ExtensionElement readExtensionElement() {
+            int kind = readVarInt();
+            Namespace namespace = readNamespace();
+            String tagName = readString();
+            if (kind == RAW_ELEMENT) {
+                return RawElement.of(namespace, tagName, readString());
+            }
+            Collection<Attribute> attributes = readAttributes();
+            if (kind == SIMPLE_ELEMENT) {
+                return ExtensionElements.simpleElement(tagName, readString())
+                    .withNamespace(namespace)
+                    .addAttributes(attributes)
+                    .build();
+            }
+            checkState(kind == STRUCTURED_ELEMENT, "Unknown extension element kind %d", kind);
+            StructuredElement.Builder builder = ExtensionElements.structuredElement(tagName, readExtensionElements())
+                .withNamespace(namespace);
+            return builder.addAttributes(attributes).build();
+        }
+
+        private Collection<Attribute> readAttributes() {
+            int count = readVarInt();
+            List<Attribute> attributes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Namespace namespace = readNamespace();
+                String name = readString();
+                attributes.add(Attribute.builder(name, readString()).withNamespace(namespace).build());
+            }
+            return attributes;
+        }
+    }
+}
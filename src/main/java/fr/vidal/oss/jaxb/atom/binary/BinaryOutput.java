@@ -0,0 +1,316 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.SimpleElement;
+import fr.vidal.oss.jaxb.atom.core.StructuredElement;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+import fr.vidal.oss.jaxb.atom.core.TypedElement;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static fr.vidal.oss.jaxb.atom.binary.BinaryFormat.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes the Atom model into the binary format.
+ * The body is written first while the string table and namespace dictionary are collected,
+ * both tables being prepended when the result is written out.
+ */
+class BinaryOutput {
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Namespace, Integer> namespaces = new HashMap<>();
+    private final ByteArray stringTable = new ByteArray(256);
+    private final ByteArray namespaceTable = new ByteArray(32);
+    private final ByteArray body = new ByteArray(1024);
+
+    void writeFeed(Feed feed) {
+        ByteArray entry = new ByteArray(512);
+        body.writeVarInt(KIND_FEED);
+        writeString(body, feed.getTitle());
+        writeString(body, feed.getSubtitle());
+        writeString(body, feed.getId());
+        writeDate(body, feed.getUpdateDate());
+        writeAuthor(body, feed.getAuthor());
+        writeContributors(body, feed.getContributors());
+        writeLinks(body, feed.getLinks());
+        writeExtensionElements(body, feed.getExtensionElements());
+        Collection<Entry> entries = feed.getEntries();
+        body.writeVarInt(entries.size());
+        for (Entry value : entries) {
+            entry.reset();
+            writeEntry(entry, value);
+            body.writeVarInt(entry.size());
+            body.write(entry);
+        }
+    }
+
+    void writeEntry(Entry entry) {
+        body.writeVarInt(KIND_ENTRY);
+        writeEntry(body, entry);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        ByteArray header = new ByteArray(16);
+        header.write(MAGIC, 0, MAGIC.length);
+        header.writeVarInt(VERSION);
+        header.writeVarInt(strings.size());
+        header.writeTo(out);
+        stringTable.writeTo(out);
+        header.reset();
+        header.writeVarInt(namespaces.size());
+        header.writeTo(out);
+        namespaceTable.writeTo(out);
+        body.writeTo(out);
+    }
+
+    private void writeEntry(ByteArray out, Entry entry) {
+        writeString(out, entry.getTitle());
+        writeString(out, entry.getId());
+        writeDate(out, entry.getPublishedDate());
+        writeDate(out, entry.getUpdateDate());
+        writeSummary(out, entry.getSummary());
+        writeContents(out, entry.getContents());
+        writeAuthor(out, entry.getAuthor());
+        writeContributors(out, entry.getContributors());
+        writeCategories(out, entry.getCategories());
+        writeLinks(out, entry.getLinks());
+        writeExtensionElements(out, entry.getExtensionElements());
+        writeAdditionalAttributes(out, entry.getAdditionalAttributes());
+    }
+
+    private void writeSummary(ByteArray out, Summary summary) {
+        if (summary == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(1);
+        writeString(out, summary.getValue());
+        writeString(out, summary.getType());
+    }
+
+    private void writeContents(ByteArray out, Contents contents) {
+        if (contents == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(1);
+        writeString(out, contents.getType() == null ? null : contents.getType().getType());
+        writeString(out, contents.getContents());
+    }
+
+    private void writeAuthor(ByteArray out, Author author) {
+        if (author == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(1);
+        writeString(out, author.getName());
+        writeString(out, author.getEmail());
+    }
+
+    private void writeContributors(ByteArray out, Collection<Contributor> contributors) {
+        out.writeVarInt(contributors.size());
+        for (Contributor contributor : contributors) {
+            writeString(out, contributor.getName());
+            writeString(out, contributor.getEmail());
+        }
+    }
+
+    private void writeCategories(ByteArray out, Collection<Category> categories) {
+        out.writeVarInt(categories.size());
+        for (Category category : categories) {
+            writeString(out, category.getTerm());
+            writeString(out, category.getScheme());
+        }
+    }
+
+    private void writeLinks(ByteArray out, Collection<Link> links) {
+        out.writeVarInt(links.size());
+        for (Link link : links) {
+            writeString(out, link.getRel() == null ? null : link.getRel().name());
+            writeString(out, link.getType());
+            writeString(out, link.getHref());
+            writeString(out, link.getTitle());
+        }
+    }
+
+    private void writeExtensionElements(ByteArray out, Collection<ExtensionElement> elements) {
+        out.writeVarInt(elements.size());
+        for (ExtensionElement element : elements) {
+            writeExtensionElement(out, element);
+        }
+    }
+
+    private void writeExtensionElement(ByteArray out, ExtensionElement element) {
+        if (element instanceof SimpleElement) {
+            SimpleElement simpleElement = (SimpleElement) element;
+            out.writeVarInt(SIMPLE_ELEMENT);
+            writeElementName(out, element);
+            writeAttributes(out, simpleElement.attributes());
+            writeString(out, simpleElement.value());
+            return;
+        }
+        if (element instanceof StructuredElement) {
+            StructuredElement structuredElement = (StructuredElement) element;
+            out.writeVarInt(STRUCTURED_ELEMENT);
+            writeElementName(out, element);
+            writeAttributes(out, structuredElement.attributes());
+            writeExtensionElements(out, structuredElement.getExtensionElements());
+            return;
+        }
+        if (element instanceof RawElement) {
+            out.writeVarInt(RAW_ELEMENT);
+            writeElementName(out, element);
+            writeString(out, ((RawElement) element).xml());
+            return;
+        }
+        if (element instanceof TypedElement) {
+            writeExtensionElement(out, ((TypedElement<?>) element).encode());
+            return;
+        }
+        throw new IllegalArgumentException("Unsupported extension element type: " + element.getClass().getName());
+    }
+
+    private void writeElementName(ByteArray out, ExtensionElement element) {
+        writeNamespace(out, element.namespace());
+        writeString(out, element.tagName());
+    }
+
+    private void writeAttributes(ByteArray out, Collection<Attribute> attributes) {
+        out.writeVarInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            writeNamespace(out, attribute.getNamespace());
+            writeString(out, attribute.getName());
+            writeString(out, attribute.getValue());
+        }
+    }
+
+    private void writeAdditionalAttributes(ByteArray out, Map<QName, String> attributes) {
+        out.writeVarInt(attributes.size());
+        for (Map.Entry<QName, String> attribute : attributes.entrySet()) {
+            QName name = attribute.getKey();
+            writeString(out, name.getNamespaceURI());
+            writeString(out, name.getPrefix());
+            writeString(out, name.getLocalPart());
+            writeString(out, attribute.getValue());
+        }
+    }
+
+    private void writeDate(ByteArray out, Date date) {
+        if (date == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(1);
+        out.writeVarLong(zigZag(date.getTime()));
+    }
+
+    private void writeNamespace(ByteArray out, Namespace namespace) {
+        if (namespace == null) {
+            out.writeVarInt(NULL_REF);
+            return;
+        }
+        Integer index = namespaces.get(namespace);
+        if (index == null) {
+            index = namespaces.size();
+            namespaces.put(namespace, index);
+            writeString(namespaceTable, namespace.uri());
+            writeString(namespaceTable, namespace.prefix());
+        }
+        out.writeVarInt(index + 1);
+    }
+
+    private void writeString(ByteArray out, String value) {
+        if (value == null) {
+            out.writeVarInt(NULL_REF);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+            byte[] bytes = value.getBytes(UTF_8);
+            stringTable.writeVarInt(bytes.length);
+            stringTable.write(bytes, 0, bytes.length);
+        }
+        out.writeVarInt(index + 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static final class ByteArray {
+
+        private byte[] bytes;
+        private int size;
+
+        ByteArray(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void write(ByteArray other) {
+            write(other.bytes, 0, other.size);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+            }
+        }
+    }
+}
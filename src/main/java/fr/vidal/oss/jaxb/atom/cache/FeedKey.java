@@ -0,0 +1,67 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Identifies a rendered feed by the id of the feed and the query parameters it is rendered with,
+ * regardless of the order of the parameters.
+ */
+public final class FeedKey {
+
+    private final String feedId;
+    private final SortedMap<String, String> parameters;
+    private final int hash;
+
+    private FeedKey(String feedId, SortedMap<String, String> parameters) {
+        this.feedId = feedId;
+        this.parameters = Collections.unmodifiableSortedMap(parameters);
+        this.hash = 31 * feedId.hashCode() + parameters.hashCode();
+    }
+
+    public static FeedKey of(String feedId) {
+        return of(feedId, Collections.emptyMap());
+    }
+
+    public static FeedKey of(String feedId, Map<String, String> parameters) {
+        checkState(feedId != null, "Feed id is mandatory");
+        checkState(parameters != null, "Parameters are mandatory");
+        return new FeedKey(feedId, new TreeMap<>(parameters));
+    }
+
+    public String getFeedId() {
+        return feedId;
+    }
+
+    public SortedMap<String, String> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        FeedKey other = (FeedKey) obj;
+        return hash == other.hash
+            && Objects.equals(feedId, other.feedId)
+            && Objects.equals(parameters, other.parameters);
+    }
+
+    @Override
+    public String toString() {
+        return "FeedKey{" +
+            "feedId='" + feedId + '\'' +
+            ", parameters=" + parameters +
+            '}';
+    }
+}
@@ -0,0 +1,45 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.stream.FeedWriter;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Renders a feed for {@link RenderedFeedCache}, reporting the ids of the entries it contains
+ * so that the rendered feed is invalidated when one of them changes.
+ */
+@FunctionalInterface
+public interface FeedRenderer {
+
+    /**
+     * Writes the feed, the stream being closed by the caller.
+     *
+     * @return the ids of the entries of the feed
+     */
+    Collection<String> render(OutputStream out) throws IOException, XMLStreamException;
+
+    /**
+     * @return a renderer writing the supplied feed with a {@link FeedWriter}
+     */
+    static FeedRenderer of(Supplier<Feed> feed) {
+        return out -> {
+            Feed rendered = feed.get();
+            FeedWriter writer = FeedWriter.create(out);
+            writer.write(rendered);
+            writer.flush();
+            List<String> ids = new ArrayList<>(rendered.getEntries().size());
+            for (Entry entry : rendered.getEntries()) {
+                ids.add(entry.getId());
+            }
+            return ids;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys are accessed, as used by TinyLFU admission.
+ * Counters are halved once the number of increments reaches ten times the width of the sketch,
+ * so that the estimates favor recent accesses. Instances are not thread-safe.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int[] SEEDS = {0x97cb3127, 0xb7c0d0e5, 0x4a1e6d2b, 0x6a1bc3d9};
+
+    private final long[] table;
+    private final int sampleSize;
+    private int increments;
+
+    FrequencySketch(int expectedKeys) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(expectedKeys, 1 << 26)) - 1) << 1;
+        this.table = new long[length];
+        this.sampleSize = 10 * length;
+    }
+
+    int frequency(int hash) {
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int h = rehash(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index(h)] >>> shift(h)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean incremented = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int h = rehash(hash, i);
+            int index = index(h);
+            int shift = shift(h);
+            if (((table[index] >>> shift) & 0xF) < 15) {
+                table[index] += 1L << shift;
+                incremented = true;
+            }
+        }
+        if (incremented && ++increments == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        increments /= 2;
+    }
+
+    private static int rehash(int hash, int i) {
+        int h = (hash + SEEDS[i]) * SEEDS[i];
+        return h ^ (h >>> 17);
+    }
+
+    private int index(int h) {
+        return (h >>> 4) & (table.length - 1);
+    }
+
+    private static int shift(int h) {
+        return (h & 0xF) << 2;
+    }
+}
@@ -0,0 +1,83 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Final bytes of a rendered feed, gzipped or not. Instances are immutable.
+ */
+public final class RenderedFeed {
+
+    private final byte[] bytes;
+    private final boolean gzipped;
+    private final String[] entryIds;
+
+    RenderedFeed(byte[] bytes, boolean gzipped, String[] entryIds) {
+        this.bytes = bytes;
+        this.gzipped = gzipped;
+        this.entryIds = entryIds;
+    }
+
+    public boolean isGzipped() {
+        return gzipped;
+    }
+
+    /**
+     * @return the number of stored bytes
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * @return the stored bytes, gzipped or not
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the stored bytes as is.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the feed gzipped or not, compressing or decompressing the stored bytes when needed.
+     */
+    public void writeTo(OutputStream out, boolean gzip) throws IOException {
+        if (gzip == gzipped) {
+            writeTo(out);
+        } else if (gzip) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out);
+            compressed.write(bytes);
+            compressed.finish();
+        } else {
+            try (InputStream in = openStream()) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the XML of the feed, decompressed when gzipped
+     */
+    public InputStream openStream() throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes);
+        return gzipped ? new GZIPInputStream(in) : in;
+    }
+
+    String[] entryIds() {
+        return entryIds;
+    }
+}
@@ -0,0 +1,435 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Caches the final bytes of rendered feeds, keyed by {@link FeedKey}, so that requests for the same feed
+ * with the same parameters are not rendered again.
+ * <p>
+ * The cache is bounded by the total length of the rendered feeds and evicts them following the W-TinyLFU policy:
+ * new feeds enter a small LRU window, and once evicted from it are only admitted to the main segmented LRU when
+ * they have been requested more often than the feed they would evict, access frequencies being estimated
+ * by a {@link FrequencySketch}. Feeds expire once their time to live has elapsed since they were rendered.
+ * <p>
+ * Each feed is invalidated as soon as one of the entries it contains is {@linkplain #invalidateEntry(String) upserted}.
+ * Concurrent misses on the same key render the feed once, the other callers waiting for it. A feed whose rendering
+ * overlaps an invalidation is returned to its callers but not cached, as it may hold the invalidated entry.
+ * <p>
+ * Instances are thread-safe. Lookups and updates of the policy are serialized, rendering is not.
+ */
+public final class RenderedFeedCache {
+
+    private final long maximumBytes;
+    private final long windowMaximumBytes;
+    private final long protectedMaximumBytes;
+    private final long timeToLiveNanos;
+    private final boolean gzip;
+    private final LongSupplier ticker;
+
+    private final Object lock = new Object();
+    private final Map<FeedKey, Node> nodes = new HashMap<>();
+    private final LinkedHashMap<FeedKey, Node> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<FeedKey, Node> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<FeedKey, Node> protectedRegion = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<FeedKey>> dependents = new HashMap<>();
+    private final FrequencySketch sketch;
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    private final ConcurrentHashMap<FeedKey, Load> loads = new ConcurrentHashMap<>();
+
+    private RenderedFeedCache(Builder builder) {
+        this.maximumBytes = builder.maximumBytes;
+        this.windowMaximumBytes = Math.max(1, builder.maximumBytes / 100);
+        this.protectedMaximumBytes = (builder.maximumBytes - windowMaximumBytes) * 4 / 5;
+        this.timeToLiveNanos = builder.timeToLive == null ? Long.MAX_VALUE : builder.timeToLive.toNanos();
+        this.gzip = builder.gzip;
+        this.ticker = builder.ticker;
+        this.sketch = new FrequencySketch(builder.expectedFeeds);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the cached feed, or the feed rendered by the renderer on a miss
+     * @throws IllegalStateException when the feed cannot be rendered
+     */
+    public RenderedFeed get(FeedKey key, FeedRenderer renderer) {
+        checkState(key != null, "Key is mandatory");
+        checkState(renderer != null, "Renderer is mandatory");
+        RenderedFeed cached = lookup(key, true);
+        if (cached != null) {
+            return cached;
+        }
+        Load load = new Load();
+        Load running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            return running.await(key);
+        }
+        try {
+            // a load may have completed since the lookup
+            RenderedFeed feed = lookup(key, false);
+            if (feed == null) {
+                feed = render(key, renderer);
+                insert(key, feed, load);
+            }
+            load.result.complete(feed);
+            return feed;
+        } catch (RuntimeException | Error e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * @return the cached feed, or null when missing or expired
+     */
+    public RenderedFeed getIfPresent(FeedKey key) {
+        return lookup(key, true);
+    }
+
+    /**
+     * Invalidates the feeds containing the entry, to be called whenever the entry is upserted or deleted.
+     */
+    public void invalidateEntry(String entryId) {
+        synchronized (lock) {
+            Set<FeedKey> keys = dependents.get(entryId);
+            if (keys != null) {
+                for (FeedKey key : new ArrayList<>(keys)) {
+                    remove(nodes.get(key));
+                }
+            }
+            markLoadsStale();
+        }
+    }
+
+    public void invalidate(FeedKey key) {
+        synchronized (lock) {
+            Node node = nodes.get(key);
+            if (node != null) {
+                remove(node);
+            }
+            Load load = loads.get(key);
+            if (load != null) {
+                load.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the feeds of the given id, whatever their parameters.
+     */
+    public void invalidateFeed(String feedId) {
+        synchronized (lock) {
+            List<Node> invalidated = new ArrayList<>();
+            for (Node node : nodes.values()) {
+                if (node.key.getFeedId().equals(feedId)) {
+                    invalidated.add(node);
+                }
+            }
+            invalidated.forEach(this::remove);
+            markLoadsStale();
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (lock) {
+            nodes.clear();
+            window.clear();
+            probation.clear();
+            protectedRegion.clear();
+            dependents.clear();
+            windowBytes = 0;
+            probationBytes = 0;
+            protectedBytes = 0;
+            markLoadsStale();
+        }
+    }
+
+    /**
+     * @return the number of cached feeds, expired ones included until they are looked up or evicted
+     */
+    public int size() {
+        synchronized (lock) {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * @return the total length of the cached feeds
+     */
+    public long weightedSize() {
+        synchronized (lock) {
+            return windowBytes + probationBytes + protectedBytes;
+        }
+    }
+
+    private RenderedFeed render(FeedKey key, FeedRenderer renderer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            Collection<String> entryIds;
+            if (gzip) {
+                GZIPOutputStream out = new GZIPOutputStream(bytes);
+                entryIds = renderer.render(out);
+                out.finish();
+            } else {
+                entryIds = renderer.render(bytes);
+            }
+            return new RenderedFeed(bytes.toByteArray(), gzip, entryIds.toArray(new String[0]));
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Cannot render feed " + key, e);
+        }
+    }
+
+    private RenderedFeed lookup(FeedKey key, boolean recorded) {
+        synchronized (lock) {
+            if (recorded) {
+                sketch.increment(key.hashCode());
+            }
+            Node node = nodes.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (ticker.getAsLong() - node.renderedAt >= timeToLiveNanos) {
+                remove(node);
+                return null;
+            }
+            if (window.get(key) == null && probation.remove(key) != null) {
+                probationBytes -= node.weight;
+                protectedRegion.put(key, node);
+                protectedBytes += node.weight;
+                demoteProtected();
+            } else {
+                protectedRegion.get(key);
+            }
+            return node.feed;
+        }
+    }
+
+    private void insert(FeedKey key, RenderedFeed feed, Load load) {
+        synchronized (lock) {
+            if (load.stale || feed.length() > maximumBytes) {
+                return;
+            }
+            Node previous = nodes.get(key);
+            if (previous != null) {
+                remove(previous);
+            }
+            Node node = new Node(key, feed, ticker.getAsLong());
+            nodes.put(key, node);
+            for (String entryId : feed.entryIds()) {
+                dependents.computeIfAbsent(entryId, id -> new HashSet<>()).add(key);
+            }
+            window.put(key, node);
+            windowBytes += node.weight;
+            evictFromWindow();
+        }
+    }
+
+    /**
+     * Moves the feeds overflowing the window to the main region, if admitted.
+     */
+    private void evictFromWindow() {
+        Iterator<Node> candidates = window.values().iterator();
+        while (windowBytes > windowMaximumBytes && candidates.hasNext()) {
+            Node candidate = candidates.next();
+            candidates.remove();
+            windowBytes -= candidate.weight;
+            if (admit(candidate)) {
+                probation.put(candidate.key, candidate);
+                probationBytes += candidate.weight;
+            } else {
+                forget(candidate);
+            }
+        }
+    }
+
+    /**
+     * Evicts the feeds the candidate replaces in the main region, provided it is requested more often than each of them.
+     * All the victims are checked before any is evicted, so that a rejected candidate leaves the main region untouched.
+     */
+    private boolean admit(Node candidate) {
+        long mainMaximumBytes = maximumBytes - windowMaximumBytes;
+        if (candidate.weight > mainMaximumBytes) {
+            return false;
+        }
+        long excess = probationBytes + protectedBytes + candidate.weight - mainMaximumBytes;
+        if (excess <= 0) {
+            return true;
+        }
+        int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+        List<Node> victims = new ArrayList<>();
+        for (LinkedHashMap<FeedKey, Node> region : Arrays.asList(probation, protectedRegion)) {
+            Iterator<Node> eldest = region.values().iterator();
+            while (excess > 0 && eldest.hasNext()) {
+                Node victim = eldest.next();
+                if (candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                    return false;
+                }
+                victims.add(victim);
+                excess -= victim.weight;
+            }
+        }
+        victims.forEach(this::remove);
+        return true;
+    }
+
+    private void demoteProtected() {
+        while (protectedBytes > protectedMaximumBytes) {
+            Node demoted = eldest(protectedRegion);
+            protectedRegion.remove(demoted.key);
+            protectedBytes -= demoted.weight;
+            probation.put(demoted.key, demoted);
+            probationBytes += demoted.weight;
+        }
+    }
+
+    private void remove(Node node) {
+        if (window.remove(node.key) != null) {
+            windowBytes -= node.weight;
+        } else if (probation.remove(node.key) != null) {
+            probationBytes -= node.weight;
+        } else if (protectedRegion.remove(node.key) != null) {
+            protectedBytes -= node.weight;
+        }
+        forget(node);
+    }
+
+    private void forget(Node node) {
+        nodes.remove(node.key);
+        for (String entryId : node.feed.entryIds()) {
+            Set<FeedKey> keys = dependents.get(entryId);
+            if (keys != null && keys.remove(node.key) && keys.isEmpty()) {
+                dependents.remove(entryId);
+            }
+        }
+    }
+
+    private void markLoadsStale() {
+        for (Load load : loads.values()) {
+            load.stale = true;
+        }
+    }
+
+    private static Node eldest(LinkedHashMap<FeedKey, Node> region) {
+        return region.values().iterator().next();
+    }
+
+    private static final class Node {
+
+        private final FeedKey key;
+        private final RenderedFeed feed;
+        private final long renderedAt;
+        private final long weight;
+
+        Node(FeedKey key, RenderedFeed feed, long renderedAt) {
+            this.key = key;
+            this.feed = feed;
+            this.renderedAt = renderedAt;
+            this.weight = Math.max(1, feed.length());
+        }
+    }
+
+    /**
+     * Rendering in progress, which concurrent misses on the same key wait for.
+     */
+    private static final class Load {
+
+        private final CompletableFuture<RenderedFeed> result = new CompletableFuture<>();
+        private volatile boolean stale;
+
+        RenderedFeed await(FeedKey key) {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Cannot render feed " + key, e.getCause());
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private long maximumBytes = 64L * 1024 * 1024;
+        private Duration timeToLive;
+        private boolean gzip;
+        private int expectedFeeds = 1024;
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Bounds the total length of the cached feeds, 64 MB by default.
+         */
+        public Builder withMaximumBytes(long maximumBytes) {
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        /**
+         * Expires feeds once the duration has elapsed since they were rendered. Feeds do not expire by default.
+         */
+        public Builder withTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Stores feeds gzipped.
+         */
+        public Builder withGzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * Sizes the frequency sketch for about as many distinct keys, 1024 by default.
+         */
+        public Builder withExpectedFeeds(int expectedFeeds) {
+            this.expectedFeeds = expectedFeeds;
+            return this;
+        }
+
+        Builder withTicker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public RenderedFeedCache build() {
+            checkState(maximumBytes > 0, "Maximum bytes must be positive");
+            checkState(timeToLive == null || !timeToLive.isNegative() && !timeToLive.isZero(), "Time to live must be positive");
+            checkState(expectedFeeds > 0, "Expected feeds must be positive");
+            checkState(ticker != null, "Ticker is mandatory");
+            return new RenderedFeedCache(this);
+        }
+    }
+}
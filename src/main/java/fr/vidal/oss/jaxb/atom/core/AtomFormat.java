@@ -0,0 +1,167 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.sax.SAXSource;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Wire formats a feed can be exchanged in, identified by their media type.
+ * Both formats go through the same {@link AtomJaxb} context, extension elements included.
+ */
+public enum AtomFormat {
+
+    XML("application/atom+xml") {
+        @Override
+        public void marshal(Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+            marshaller.marshal(value, out);
+        }
+
+        @Override
+        public Object unmarshal(Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+            try {
+                return unmarshaller.unmarshal(new SAXSource(XmlFactories.newXmlReader(), new InputSource(in)));
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new JAXBException("Cannot create XML reader.", e);
+            }
+        }
+    },
+
+    /**
+     * Binary XML encoding defined by ITU-T X.891, requiring the optional
+     * {@code com.sun.xml.fastinfoset:FastInfoset} dependency.
+     */
+    FAST_INFOSET("application/fastinfoset") {
+        @Override
+        public boolean isAvailable() {
+            return FAST_INFOSET_PRESENT;
+        }
+
+        @Override
+        public void marshal(Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+            checkAvailable();
+            FastInfosetCodec.marshal(marshaller, value, out);
+        }
+
+        @Override
+        public Object unmarshal(Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+            checkAvailable();
+            return FastInfosetCodec.unmarshal(unmarshaller, in);
+        }
+    };
+
+    private static final boolean FAST_INFOSET_PRESENT = isPresent("com.sun.xml.fastinfoset.stax.StAXDocumentSerializer");
+
+    private final String mediaType;
+
+    AtomFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return whether the libraries this format relies on are on the classpath
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
+    public abstract void marshal(Marshaller marshaller, Object value, OutputStream out) throws JAXBException;
+
+    public abstract Object unmarshal(Unmarshaller unmarshaller, InputStream in) throws JAXBException;
+
+    void checkAvailable() {
+        checkState(isAvailable(), "%s requires com.sun.xml.fastinfoset:FastInfoset on the classpath", name());
+    }
+
+    /**
+     * @return the format of the given media type (parameters are ignored), or null when unsupported or not
+     * {@linkplain #isAvailable() available}
+     */
+    public static AtomFormat forMediaType(String mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        String type = stripParameters(mediaType);
+        for (AtomFormat format : values()) {
+            if (format.mediaType.equals(type)) {
+                return format.isAvailable() ? format : null;
+            }
+        }
+        if (type.equals("application/xml") || type.equals("text/xml")) {
+            return XML;
+        }
+        return null;
+    }
+
+    /**
+     * Picks the format preferred by an HTTP {@code Accept} header, honouring quality values.
+     * Wildcards, as well as a missing header, resolve to {@link #XML}.
+     *
+     * @return the negotiated format, or null when nothing acceptable is supported
+     */
+    public static AtomFormat negotiate(String acceptHeader) {
+        if (acceptHeader == null || acceptHeader.trim().isEmpty()) {
+            return XML;
+        }
+        AtomFormat best = null;
+        double bestQuality = 0;
+        for (String range : acceptHeader.split(",")) {
+            double quality = quality(range);
+            AtomFormat format = forRange(stripParameters(range));
+            if (format != null && quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    private static AtomFormat forRange(String range) {
+        if (range.equals("*/*") || range.equals("application/*")) {
+            return XML;
+        }
+        return forMediaType(range);
+    }
+
+    private static String stripParameters(String mediaType) {
+        int separator = mediaType.indexOf(';');
+        String type = separator < 0 ? mediaType : mediaType.substring(0, separator);
+        return type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, AtomFormat.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static double quality(String range) {
+        for (String parameter : range.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
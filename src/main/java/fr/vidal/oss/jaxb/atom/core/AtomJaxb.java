@@ -2,6 +2,8 @@ package fr.vidal.oss.jaxb.atom.core;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 
 public class AtomJaxb {
 
@@ -9,6 +11,24 @@ public class AtomJaxb {
         return JAXBContext.newInstance(Feed.class.getPackage().getName(), AtomJaxb.class.getClassLoader());
     }
 
+    /**
+     * @return a marshaller writing the {@link TypedElement}s registered in the registry
+     */
+    public static Marshaller createMarshaller(JAXBContext context, ExtensionRegistry registry) throws JAXBException {
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setAdapter(ExtensionElementAdapter.class, new ExtensionElementAdapter(registry));
+        return marshaller;
+    }
+
+    /**
+     * @return an unmarshaller reading the extension elements registered in the registry as {@link TypedElement}s
+     */
+    public static Unmarshaller createUnmarshaller(JAXBContext context, ExtensionRegistry registry) throws JAXBException {
+        Unmarshaller unmarshaller = context.createUnmarshaller();
+        unmarshaller.setAdapter(ExtensionElementAdapter.class, new ExtensionElementAdapter(registry));
+        return unmarshaller;
+    }
+
     private AtomJaxb() {
     }
 }
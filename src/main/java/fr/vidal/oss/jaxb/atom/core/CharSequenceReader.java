@@ -0,0 +1,53 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.io.Reader;
+
+/**
+ * Unsynchronized reader over a {@link CharSequence}, copying strings in bulk.
+ */
+final class CharSequenceReader extends Reader {
+
+    private final CharSequence value;
+    private int position;
+
+    CharSequenceReader(CharSequence value) {
+        this.value = value;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int remaining = value.length() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = Math.min(length, remaining);
+        if (value instanceof String) {
+            ((String) value).getChars(position, position + count, buffer, offset);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = value.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int read() {
+        return position < value.length() ? value.charAt(position++) : -1;
+    }
+
+    @Override
+    public long skip(long count) {
+        int skipped = (int) Math.min(Math.max(count, 0), value.length() - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+    }
+}
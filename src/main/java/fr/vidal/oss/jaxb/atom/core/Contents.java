@@ -2,6 +2,9 @@ package fr.vidal.oss.jaxb.atom.core;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlValue;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 
 public class Contents {
@@ -11,14 +14,15 @@ public class Contents {
     @XmlAttribute(name = "type")
     private final ContentType type;
     @XmlValue
-    private final String contents;
+    @XmlJavaTypeAdapter(TextSourceAdapter.class)
+    private final TextSource contents;
 
     //jaxb
     private Contents() {
         this(null, null);
     }
 
-    private Contents(ContentType type, String contents) {
+    private Contents(ContentType type, TextSource contents) {
         this.type = type;
         this.contents = contents;
     }
@@ -31,10 +35,32 @@ public class Contents {
         return type;
     }
 
+    /**
+     * @return the contents, read into memory when {@link #isStreamed() streamed}
+     * @throws UncheckedIOException when streamed contents cannot be read
+     */
     public String getContents() {
+        if (contents == null) {
+            return null;
+        }
+        try {
+            return contents.asCharSequence().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read contents from " + contents, e);
+        }
+    }
+
+    public TextSource getSource() {
         return contents;
     }
 
+    /**
+     * @return whether the contents are pulled from their source when written, instead of being held in memory
+     */
+    public boolean isStreamed() {
+        return contents != null && !(contents instanceof StringTextSource);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(type, contents);
@@ -64,7 +90,7 @@ public class Contents {
     public static class Builder {
 
         private ContentType type;
-        private String contents;
+        private TextSource contents;
 
         private Builder() {
         }
@@ -75,6 +101,11 @@ public class Contents {
         }
 
         public Builder withContents(String contents) {
+            this.contents = TextSource.of(contents);
+            return this;
+        }
+
+        public Builder withContentsSource(TextSource contents) {
             this.contents = contents;
             return this;
         }
@@ -9,6 +9,7 @@ import java.util.*;
 
 import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
 import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableSet;
 
 @XmlType(propOrder = {
     "title", "links", "categories", "author", "contributors", "id", "publishedDate", "updateDate", "summary", "contents", "extensionElements"
@@ -39,6 +40,7 @@ public class Entry {
     private final Collection<ExtensionElement> extensionElements;
     @XmlAnyAttribute
     private final Map<QName, String> additionalAttributes;
+    private final Set<EntryField> unloadedFields;
 
     @SuppressWarnings("unused")
     private Entry() {
@@ -46,11 +48,12 @@ public class Entry {
     }
 
     private Entry(Builder builder) {
+        unloadedFields = unmodifiableSet(builder.unloadedFields);
         extensionElements = builder.extensionElements;
         author = builder.author;
         contributors = builder.contributors;
         categories = builder.categories;
-        contents = builder.contents;
+        contents = unloadedFields.contains(EntryField.CONTENTS) ? null : builder.contents;
         id = builder.id;
         links = builder.links;
         summary = builder.summary;
@@ -65,56 +68,86 @@ public class Entry {
     }
 
     public String getTitle() {
+        checkLoaded(EntryField.TITLE);
         return title;
     }
 
     public Summary getSummary() {
+        checkLoaded(EntryField.SUMMARY);
         return summary;
     }
 
     public Collection<Category> getCategories() {
+        checkLoaded(EntryField.CATEGORIES);
         return unmodifiableCollection(categories);
     }
 
     public String getId() {
+        checkLoaded(EntryField.ID);
         return id;
     }
 
     public Date getPublishedDate() {
+        checkLoaded(EntryField.PUBLISHED_DATE);
         return publishedDate;
     }
 
     public Date getUpdateDate() {
+        checkLoaded(EntryField.UPDATE_DATE);
         return updateDate;
     }
 
     public Author getAuthor() {
+        checkLoaded(EntryField.AUTHOR);
         return author;
     }
 
     public Collection<Contributor> getContributors() {
+        checkLoaded(EntryField.CONTRIBUTORS);
         return unmodifiableCollection(contributors);
     }
 
     public Contents getContents() {
+        checkLoaded(EntryField.CONTENTS);
         return contents;
     }
 
     public Collection<Link> getLinks() {
+        checkLoaded(EntryField.LINKS);
         return unmodifiableCollection(links);
     }
 
     public Collection<ExtensionElement> getExtensionElements() {
+        checkLoaded(EntryField.EXTENSION_ELEMENTS);
         return unmodifiableCollection(extensionElements);
     }
 
     public Map<QName, String> getAdditionalAttributes() {
+        checkLoaded(EntryField.ADDITIONAL_ATTRIBUTES);
         return additionalAttributes;
     }
 
+    /**
+     * @return the fields left out when the entry was read, whose getters throw an {@link IllegalStateException}
+     */
+    public Set<EntryField> getUnloadedFields() {
+        return unloadedFields;
+    }
+
+    public boolean isLoaded(EntryField field) {
+        return !unloadedFields.contains(field);
+    }
+
+    private void checkLoaded(EntryField field) {
+        if (!unloadedFields.isEmpty() && unloadedFields.contains(field)) {
+            throw new IllegalStateException(field + " was not loaded");
+        }
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        // entries read without their id are only equal to themselves
+        return isLoaded(EntryField.ID) ? Objects.hash(id) : System.identityHashCode(this);
     }
 
     @Override
@@ -126,7 +159,7 @@ public class Entry {
             return false;
         }
         final Entry other = (Entry) obj;
-        return Objects.equals(this.id, other.id);
+        return isLoaded(EntryField.ID) && other.isLoaded(EntryField.ID) && Objects.equals(this.id, other.id);
     }
 
     @Override
@@ -170,6 +203,7 @@ public class Entry {
         private Collection<Link> links = new LinkedHashSet<>();
         private Collection<ExtensionElement> extensionElements = new LinkedHashSet<>();
         private Collection<Attribute> additionalAttributes = new LinkedHashSet<>();
+        private Set<EntryField> unloadedFields = EnumSet.noneOf(EntryField.class);
 
         private Builder() {
         }
@@ -234,11 +268,19 @@ public class Entry {
             return this;
         }
 
+        /**
+         * Marks fields as not loaded, which lifts their mandatory checks.
+         */
+        public Builder withUnloadedFields(Collection<EntryField> unloadedFields) {
+            this.unloadedFields = unloadedFields.isEmpty() ? EnumSet.noneOf(EntryField.class) : EnumSet.copyOf(unloadedFields);
+            return this;
+        }
+
         public Entry build() {
-            checkState(title != null, "title is mandatory");
-            checkState(id != null, "id is mandatory");
-            checkState(updateDate != null, "updateDate is mandatory");
-            checkState(!links.isEmpty(), "links cannot be empty");
+            checkState(title != null || unloadedFields.contains(EntryField.TITLE), "title is mandatory");
+            checkState(id != null || unloadedFields.contains(EntryField.ID), "id is mandatory");
+            checkState(updateDate != null || unloadedFields.contains(EntryField.UPDATE_DATE), "updateDate is mandatory");
+            checkState(!links.isEmpty() || unloadedFields.contains(EntryField.LINKS), "links cannot be empty");
             return new Entry(this);
         }
     }
@@ -0,0 +1,21 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+/**
+ * Fields of an {@link Entry}, some of which may be left unloaded when entries are read partially.
+ *
+ * @see Entry#getUnloadedFields()
+ */
+public enum EntryField {
+    TITLE,
+    LINKS,
+    CATEGORIES,
+    AUTHOR,
+    CONTRIBUTORS,
+    ID,
+    PUBLISHED_DATE,
+    UPDATE_DATE,
+    SUMMARY,
+    CONTENTS,
+    EXTENSION_ELEMENTS,
+    ADDITIONAL_ATTRIBUTES
+}
@@ -0,0 +1,23 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Reads and writes a top-level extension element as a typed value instead of an {@link ExtensionElement} tree.
+ *
+ * @param <T> the type of the value
+ * @see ExtensionRegistry
+ */
+public interface ExtensionCodec<T> {
+
+    T decode(Element element) throws Exception;
+
+    /**
+     * @param name     the name of the element to create, as registered
+     * @param document the document to create the element with, which must not be appended to it
+     */
+    Element encode(QName name, T value, Document document) throws Exception;
+}
@@ -1,49 +1,170 @@
 package fr.vidal.oss.jaxb.atom.core;
 
 import org.w3c.dom.*;
+import org.xml.sax.InputSource;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
+import javax.xml.XMLConstants;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import java.util.Arrays;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
 import static java.lang.String.format;
 
+/**
+ * Converts extension elements from and to DOM elements.
+ * <p>
+ * Nested elements are converted iteratively, with an explicit stack, so that the call stack does not grow
+ * with nesting. Elements nested deeper than the maximum depth are rejected with an {@link IllegalStateException}.
+ */
 public class ExtensionElementAdapter extends XmlAdapter<Element, ExtensionElement> {
 
-    private static final Class[] ADAPTED_TYPES = {StructuredElement.class, SimpleElement.class};
+    public static final int DEFAULT_MAX_DEPTH = 256;
 
+    private final ExtensionRegistry registry;
+    private final int maxDepth;
     private DocumentBuilder builder;
-    private JAXBContext context;
+
+    public ExtensionElementAdapter() {
+        this(ExtensionRegistry.EMPTY);
+    }
+
+    /**
+     * Binds the top-level extension elements registered in the given registry to typed values.
+     */
+    public ExtensionElementAdapter(ExtensionRegistry registry) {
+        this(registry, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxDepth the maximum nesting depth of extension elements, top-level elements having a depth of 1
+     */
+    public ExtensionElementAdapter(ExtensionRegistry registry, int maxDepth) {
+        checkState(registry != null, "registry is mandatory");
+        checkState(maxDepth > 0, "maxDepth must be positive");
+        this.registry = registry;
+        this.maxDepth = maxDepth;
+    }
+
+    public ExtensionRegistry registry() {
+        return registry;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
 
     @Override
     public Element marshal(ExtensionElement extensionElement) throws Exception {
         if (extensionElement == null) {
             return null;
         }
+        if (extensionElement instanceof TypedElement) {
+            return marshalTyped((TypedElement<?>) extensionElement);
+        }
+        if (extensionElement instanceof RawElement) {
+            return builder().parse(new InputSource(new StringReader(((RawElement) extensionElement).xml()))).getDocumentElement();
+        }
+        return toDom(extensionElement, builder().newDocument());
+    }
 
-        JAXBElement jaxbElement = extensionElement.toJAXBElement();
-
-        Document document = builder().newDocument();
-        context().createMarshaller().marshal(jaxbElement, document);
-        Element element = document.getDocumentElement();
+    private Element toDom(ExtensionElement root, Document document) throws Exception {
+        Deque<ExtensionElement> pending = new ArrayDeque<>();
+        Deque<Element> parents = new ArrayDeque<>();
+        Deque<Scope> scopes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        List<Element> elements = new ArrayList<>();
+        List<Element> elementParents = new ArrayList<>();
+        pending.push(root);
+        scopes.push(Scope.EMPTY);
+        depths.push(1);
+        while (!pending.isEmpty()) {
+            ExtensionElement extensionElement = pending.pop();
+            Element parent = parents.isEmpty() ? null : parents.pop();
+            Scope scope = scopes.pop();
+            int depth = depths.pop();
+            checkDepth(depth, extensionElement.tagName());
+            Element element;
+            if (extensionElement instanceof SimpleElement || extensionElement instanceof StructuredElement) {
+                element = createElement(document, extensionElement, scope);
+                scope = scope.declare(extensionElement.namespace());
+            } else {
+                element = (Element) document.importNode(marshal(extensionElement), true);
+            }
+            elements.add(element);
+            elementParents.add(parent);
+            if (extensionElement instanceof SimpleElement) {
+                element.setTextContent(((SimpleElement) extensionElement).value());
+            } else if (extensionElement instanceof StructuredElement) {
+                List<ExtensionElement> children = new ArrayList<>(((StructuredElement) extensionElement).getExtensionElements());
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                    parents.push(element);
+                    scopes.push(scope);
+                    depths.push(depth + 1);
+                }
+            }
+        }
+        // attach bottom-up, each element being inserted while its parent is still detached,
+        // so that the DOM hierarchy checks do not walk up the ancestors
+        for (int i = elements.size() - 1; i > 0; i--) {
+            Element parent = elementParents.get(i);
+            parent.insertBefore(elements.get(i), parent.getFirstChild());
+        }
+        return (Element) document.appendChild(elements.get(0));
+    }
 
+    private static Element createElement(Document document, ExtensionElement extensionElement, Scope scope) {
+        Namespace namespace = extensionElement.namespace();
+        if (namespace == null || namespace.uri() == null || namespace.uri().isEmpty()) {
+            Element element = document.createElementNS(null, extensionElement.tagName());
+            if (scope.lookup(null) != null) {
+                element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE, "");
+            }
+            addAttributes(element, extensionElement);
+            return element;
+        }
+        String prefix = prefix(namespace);
+        Element element = document.createElementNS(namespace.uri(),
+            prefix == null ? extensionElement.tagName() : prefix + ":" + extensionElement.tagName());
+        if (!namespace.uri().equals(scope.lookup(prefix))) {
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                prefix == null ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix,
+                namespace.uri());
+        }
         addAttributes(element, extensionElement);
         return element;
     }
 
+    private static String prefix(Namespace namespace) {
+        return namespace.prefix() == null || namespace.prefix().isEmpty() ? null : namespace.prefix();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Element marshalTyped(TypedElement<T> typedElement) throws Exception {
+        QName name = typedElement.name();
+        ExtensionCodec<T> codec = (ExtensionCodec<T>) registry.codec(name.getNamespaceURI(), name.getLocalPart());
+        if (codec == null) {
+            codec = typedElement.codec();
+        }
+        checkState(codec != null, "No codec registered for extension element %s", name);
+        return codec.encode(name, typedElement.value(), builder().newDocument());
+    }
+
     private DocumentBuilder builder() throws AtomExtensionException {
         try {
             if (builder == null) {
-                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                builder = dbf.newDocumentBuilder();
+                builder = XmlFactories.newDocumentBuilder();
             }
             return builder;
         } catch (ParserConfigurationException e) {
@@ -51,24 +172,17 @@ public class ExtensionElementAdapter extends XmlAdapter<Element, ExtensionElemen
         }
     }
 
-    private JAXBContext context() throws AtomExtensionException {
-        try {
-            if (context == null) {
-                context = JAXBContext.newInstance(ADAPTED_TYPES);
-            }
-            return context;
-        } catch (JAXBException e) {
-            throw new AtomExtensionException("Cannot instantiate JAXBContext for classes : " + Arrays.toString(ADAPTED_TYPES), e);
-        }
+    private void checkDepth(int depth, String tagName) {
+        checkState(depth <= maxDepth, "Extension element %s exceeds the maximum depth of %s", tagName, maxDepth);
     }
 
-    private void addAttributes(Element element, ExtensionElement extensionElement) {
+    private static void addAttributes(Element element, ExtensionElement extensionElement) {
         for (Attribute attribute : extensionElement.attributes()) {
             addAttribute(element, attribute);
         }
     }
 
-    private void addAttribute(Element element, Attribute attribute) {
+    private static void addAttribute(Element element, Attribute attribute) {
         Namespace namespace = attribute.getNamespace();
         String attributeName = attribute.getName();
         String attributeValue = attribute.getValue();
@@ -77,6 +191,12 @@ public class ExtensionElementAdapter extends XmlAdapter<Element, ExtensionElemen
             element.setAttribute(attributeName, attributeValue);
             return;
         }
+        if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespace.uri())) {
+            element.setAttributeNS(namespace.uri(),
+                attributeName.equals(XMLConstants.XMLNS_ATTRIBUTE) ? attributeName : XMLConstants.XMLNS_ATTRIBUTE + ":" + attributeName,
+                attributeValue);
+            return;
+        }
 
         element.setAttributeNS(
             namespace.uri(),
@@ -90,46 +210,56 @@ public class ExtensionElementAdapter extends XmlAdapter<Element, ExtensionElemen
         if (element == null) {
             return null;
         }
+        if (!registry.isEmpty()) {
+            ExtensionCodec<?> codec = registry.codec(element.getNamespaceURI(), element.getLocalName());
+            if (codec != null) {
+                return unmarshalTyped(element, codec);
+            }
+        }
         return extensionElement(element);
     }
 
-    private ExtensionElement extensionElement(Node node) {
-
-        ExtensionElement.Builder elementBuilder;
-        if (isSimpleElementNode(node)) {
-            elementBuilder = ExtensionElements.simpleElement(node.getLocalName(), node.getTextContent());
-        } else {
-            elementBuilder = ExtensionElements.structuredElement(node.getLocalName(), children(node));
+    private static <T> TypedElement<T> unmarshalTyped(Element element, ExtensionCodec<T> codec) {
+        QName name = new QName(element.getNamespaceURI() == null ? "" : element.getNamespaceURI(),
+            element.getLocalName(),
+            element.getPrefix() == null ? "" : element.getPrefix());
+        try {
+            return TypedElement.of(name, codec.decode(element), codec);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot decode extension element " + name + " with " + codec, e);
         }
+    }
 
-        return elementBuilder
-            .withNamespace(namespace(node))
-            .addAttributes(attributes(node))
-            .build();
+    private ExtensionElement extensionElement(Element root) {
+        Deque<ElementFrame> frames = new ArrayDeque<>();
+        frames.push(new ElementFrame(root));
+        while (true) {
+            ElementFrame frame = frames.peek();
+            Element child = frame.nextChild();
+            if (child != null) {
+                checkDepth(frames.size() + 1, child.getLocalName());
+                frames.push(new ElementFrame(child));
+                continue;
+            }
+            frames.pop();
+            ExtensionElement element = frame.build();
+            if (frames.isEmpty()) {
+                return element;
+            }
+            frames.peek().children.add(element);
+        }
     }
 
-    private boolean isSimpleElementNode(Node node) {
+    private static boolean isSimpleElementNode(Node node) {
         return node.getChildNodes().getLength() == 1
             && isTextualNode(node.getFirstChild());
     }
 
-    private boolean isTextualNode(Node node) {
+    private static boolean isTextualNode(Node node) {
         return Text.class.isAssignableFrom(node.getClass());
     }
 
-    private Collection<ExtensionElement> children(Node node) {
-        return toElements(node.getChildNodes());
-    }
-
-    private Collection<ExtensionElement> toElements(NodeList nodes) {
-        return IntStream.range(0, nodes.getLength())
-            .mapToObj(nodes::item)
-            .filter(n -> !isTextualNode(n))
-            .map(this::extensionElement)
-            .collect(Collectors.toList());
-    }
-
-    private Collection<Attribute> attributes(Node node) {
+    private static Collection<Attribute> attributes(Node node) {
         NamedNodeMap attributes = node.getAttributes();
 
         return IntStream.range(0, attributes.getLength())
@@ -154,4 +284,82 @@ public class ExtensionElementAdapter extends XmlAdapter<Element, ExtensionElemen
     private static Namespace namespace(Node item) {
         return Namespace.builder(item.getNamespaceURI()).withPrefix(item.getPrefix()).build();
     }
+
+    /**
+     * Namespace bindings declared by the ancestors of the element being marshalled, innermost first.
+     */
+    private static final class Scope {
+
+        static final Scope EMPTY = new Scope(null, null, null);
+
+        private final String prefix;
+        private final String uri;
+        private final Scope outer;
+
+        private Scope(String prefix, String uri, Scope outer) {
+            this.prefix = prefix;
+            this.uri = uri;
+            this.outer = outer;
+        }
+
+        Scope declare(Namespace namespace) {
+            String uri = namespace == null || namespace.uri() == null ? "" : namespace.uri();
+            String prefix = uri.isEmpty() ? null : prefix(namespace);
+            if (Objects.equals(uri.isEmpty() ? null : uri, lookup(prefix))) {
+                return this;
+            }
+            return new Scope(prefix, uri, this);
+        }
+
+        String lookup(String prefix) {
+            for (Scope scope = this; scope != EMPTY; scope = scope.outer) {
+                if (Objects.equals(prefix, scope.prefix)) {
+                    return scope.uri.isEmpty() ? null : scope.uri;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Element being unmarshalled, along with the children converted so far.
+     */
+    private static final class ElementFrame {
+
+        private final Element element;
+        private final NodeList nodes;
+        private final boolean simple;
+        private final List<ExtensionElement> children = new ArrayList<>();
+        private int index;
+
+        ElementFrame(Element element) {
+            this.element = element;
+            this.nodes = element.getChildNodes();
+            this.simple = isSimpleElementNode(element);
+        }
+
+        Element nextChild() {
+            while (!simple && index < nodes.getLength()) {
+                Node node = nodes.item(index++);
+                if (node instanceof Element) {
+                    return (Element) node;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        ExtensionElement build() {
+            ExtensionElement.Builder elementBuilder;
+            if (simple) {
+                elementBuilder = ExtensionElements.simpleElement(element.getLocalName(), element.getTextContent());
+            } else {
+                elementBuilder = ExtensionElements.structuredElement(element.getLocalName(), children);
+            }
+            return elementBuilder
+                .withNamespace(namespace(element))
+                .addAttributes(attributes(element))
+                .build();
+        }
+    }
 }
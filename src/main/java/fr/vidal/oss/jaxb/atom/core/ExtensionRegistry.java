@@ -0,0 +1,97 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Codecs of the top-level extension elements to bind to typed values, keyed by qualified name.
+ * Registered elements are unmarshalled as {@link TypedElement}s, any other one falling back to
+ * {@link SimpleElement} or {@link StructuredElement}.
+ * <p>
+ * The registry is put to use by an {@link ExtensionElementAdapter} set on marshallers and unmarshallers,
+ * see {@link AtomJaxb#createMarshaller(javax.xml.bind.JAXBContext, ExtensionRegistry)}.
+ * Instances are immutable and thread-safe, as codecs are expected to be.
+ */
+public final class ExtensionRegistry {
+
+    public static final ExtensionRegistry EMPTY = builder().build();
+
+    private final Map<String, Map<String, ExtensionCodec<?>>> codecs;
+    private final Set<Namespace> namespaces;
+
+    private ExtensionRegistry(Map<String, Map<String, ExtensionCodec<?>>> codecs, Set<Namespace> namespaces) {
+        this.codecs = codecs;
+        this.namespaces = namespaces;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isEmpty() {
+        return codecs.isEmpty();
+    }
+
+    /**
+     * @return the codec of the element, or null when the element is not registered
+     */
+    public ExtensionCodec<?> codec(String namespaceUri, String localName) {
+        Map<String, ExtensionCodec<?>> namespaceCodecs = codecs.get(namespaceUri == null ? "" : namespaceUri);
+        return namespaceCodecs == null ? null : namespaceCodecs.get(localName);
+    }
+
+    /**
+     * @return the namespaces of the elements registered with a prefix, to be hoisted with {@link NamespaceHoisting}
+     */
+    public Set<Namespace> namespaces() {
+        return namespaces;
+    }
+
+    @Override
+    public String toString() {
+        return "ExtensionRegistry{" +
+            "codecs=" + codecs +
+            '}';
+    }
+
+    public static class Builder {
+
+        private final Map<String, Map<String, ExtensionCodec<?>>> codecs = new HashMap<>();
+        private final Set<Namespace> namespaces = new LinkedHashSet<>();
+
+        private Builder() {
+        }
+
+        public <T> Builder register(QName name, ExtensionCodec<T> codec) {
+            checkState(name != null, "name is mandatory");
+            checkState(codec != null, "codec is mandatory");
+            codecs.computeIfAbsent(name.getNamespaceURI(), uri -> new HashMap<>()).put(name.getLocalPart(), codec);
+            if (!name.getPrefix().isEmpty()) {
+                namespaces.add(Namespace.builder(name.getNamespaceURI()).withPrefix(name.getPrefix()).build());
+            }
+            return this;
+        }
+
+        /**
+         * Binds the element to a JAXB class, whose context is created right away.
+         */
+        public <T> Builder register(QName name, Class<T> type) throws JAXBException {
+            checkState(type != null, "type is mandatory");
+            return register(name, new JaxbExtensionCodec<>(type));
+        }
+
+        public ExtensionRegistry build() {
+            Map<String, Map<String, ExtensionCodec<?>>> copy = new HashMap<>();
+            codecs.forEach((uri, namespaceCodecs) -> copy.put(uri, unmodifiableMap(new HashMap<>(namespaceCodecs))));
+            return new ExtensionRegistry(unmodifiableMap(copy), unmodifiableSet(new LinkedHashSet<>(namespaces)));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Holds every reference to the optional Fast Infoset library, so that {@link AtomFormat} loads without it.
+ */
+final class FastInfosetCodec {
+
+    private FastInfosetCodec() {
+    }
+
+    static void marshal(Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+        StAXDocumentSerializer serializer = new StAXDocumentSerializer(out);
+        marshaller.marshal(value, (XMLStreamWriter) serializer);
+        try {
+            serializer.flush();
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Cannot flush Fast Infoset document.", e);
+        }
+    }
+
+    static Object unmarshal(Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+        StAXDocumentParser parser = new StAXDocumentParser(in);
+        parser.setStringInterning(true);
+        return unmarshaller.unmarshal(parser);
+    }
+}
@@ -5,6 +5,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.Objects;
@@ -135,6 +136,7 @@ public class Feed {
         private Collection<Link> links = new LinkedHashSet<>();
         private Collection<ExtensionElement> extensionElements = new LinkedHashSet<>();
         private Collection<Entry> entries = new LinkedHashSet<>();
+        private TopEntries topEntries;
 
         private Builder() {
         }
@@ -180,7 +182,49 @@ public class Feed {
         }
 
         public Builder addEntry(Entry entry) {
-            this.entries.add(entry);
+            if (topEntries == null) {
+                this.entries.add(entry);
+            } else {
+                this.topEntries.offer(entry);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the entries in iteration order, as {@link #addEntry(Entry)} does one at a time.
+         */
+        public Builder addEntries(Collection<Entry> entries) {
+            if (topEntries == null) {
+                this.entries.addAll(entries);
+            } else {
+                entries.forEach(this.topEntries::offer);
+            }
+            return this;
+        }
+
+        /**
+         * Only keeps the most recently updated entries, most recent first, as they are added.
+         *
+         * @see TopEntries
+         */
+        public Builder withLatestEntries(int limit) {
+            return withTopEntries(TopEntries.latest(limit));
+        }
+
+        /**
+         * Only keeps the first entries in the given order, as they are added.
+         *
+         * @see TopEntries
+         */
+        public Builder withTopEntries(int limit, Comparator<? super Entry> order) {
+            return withTopEntries(TopEntries.of(limit, order));
+        }
+
+        private Builder withTopEntries(TopEntries topEntries) {
+            Collection<Entry> added = this.topEntries == null ? entries : this.topEntries.toList();
+            this.topEntries = topEntries;
+            this.entries = new LinkedHashSet<>();
+            added.forEach(this::addEntry);
             return this;
         }
 
@@ -189,6 +233,9 @@ public class Feed {
             checkState(id != null, "id is mandatory");
             checkState(updateDate != null, "updateDate is mandatory");
             checkState(!links.isEmpty(), "links cannot be empty");
+            if (topEntries != null) {
+                entries = new LinkedHashSet<>(topEntries.toList());
+            }
             return new Feed(this);
         }
     }
@@ -0,0 +1,129 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collector;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Collects entries built by parallel streams into feeds.
+ * <p>
+ * Each thread accumulates its own entries, only keeping the first one of a given id. Joined accumulations keep
+ * the entries of the left one over those of the right one sharing their ids, and are concatenated in encounter order,
+ * or merged when sorted, so that entries are only added to the feed once, in bulk, by the thread finishing the collection.
+ * The resulting feed is the same whether the stream is parallel or not.
+ */
+public final class FeedCollectors {
+
+    private static final Comparator<Entry> MOST_RECENT_FIRST = Comparator.comparing(Entry::getUpdateDate).reversed();
+
+    private FeedCollectors() {
+    }
+
+    /**
+     * Collects entries into a feed with the title, links, extension elements and other header fields of the given feed,
+     * its own entries coming first, followed by the collected entries in encounter order.
+     * Like {@link Feed.Builder#addEntry(Entry)}, only the first entry of a given id is kept.
+     */
+    public static Collector<Entry, ?, Feed> toFeed(Feed header) {
+        return toFeed(header, null);
+    }
+
+    /**
+     * Collects entries like {@link #toFeed(Feed)} does, sorting the collected entries with the given comparator.
+     * Sorting is stable: entries comparing equal keep their encounter order.
+     */
+    public static Collector<Entry, ?, Feed> toFeed(Feed header, Comparator<? super Entry> order) {
+        checkState(header != null, "header is mandatory");
+        return Collector.<Entry, Run, Feed>of(
+            () -> new Run(order),
+            Run::add,
+            Run::join,
+            run -> build(header, run.entries()));
+    }
+
+    /**
+     * @return a comparator of entries by update date, most recent first
+     */
+    public static Comparator<Entry> mostRecentFirst() {
+        return MOST_RECENT_FIRST;
+    }
+
+    private static Feed build(Feed header, List<Entry> entries) {
+        Feed.Builder feed = Feed.builder()
+            .withTitle(header.getTitle())
+            .withSubtitle(header.getSubtitle())
+            .withId(header.getId())
+            .withUpdateDate(header.getUpdateDate())
+            .withAuthor(header.getAuthor());
+        header.getContributors().forEach(feed::addContributor);
+        header.getLinks().forEach(feed::addLink);
+        header.getExtensionElements().forEach(feed::addExtensionElement);
+        return feed
+            .addEntries(header.getEntries())
+            .addEntries(entries)
+            .build();
+    }
+
+    /**
+     * Entries accumulated by a thread, in encounter order until sorted, entries being equal when their ids are.
+     */
+    private static final class Run {
+
+        private final Comparator<? super Entry> order;
+        private final Set<Entry> ids = new HashSet<>();
+        private List<Entry> entries = new ArrayList<>();
+        private boolean sorted;
+
+        Run(Comparator<? super Entry> order) {
+            this.order = order;
+        }
+
+        void add(Entry entry) {
+            if (ids.add(entry)) {
+                entries.add(entry);
+                sorted = false;
+            }
+        }
+
+        /**
+         * Joins the run following this one in encounter order, merging both once sorted.
+         * Merging is stable, entries of this run coming first when comparing equal.
+         */
+        Run join(Run next) {
+            List<Entry> kept = new ArrayList<>(next.entries.size());
+            for (Entry entry : next.entries()) {
+                if (ids.add(entry)) {
+                    kept.add(entry);
+                }
+            }
+            if (order == null) {
+                entries.addAll(kept);
+                return this;
+            }
+            List<Entry> left = entries();
+            List<Entry> merged = new ArrayList<>(left.size() + kept.size());
+            int i = 0;
+            int j = 0;
+            while (i < left.size() && j < kept.size()) {
+                merged.add(order.compare(kept.get(j), left.get(i)) < 0 ? kept.get(j++) : left.get(i++));
+            }
+            merged.addAll(left.subList(i, left.size()));
+            merged.addAll(kept.subList(j, kept.size()));
+            entries = merged;
+            return this;
+        }
+
+        List<Entry> entries() {
+            if (order != null && !sorted) {
+                entries.sort(order);
+                sorted = true;
+            }
+            return entries;
+        }
+    }
+}
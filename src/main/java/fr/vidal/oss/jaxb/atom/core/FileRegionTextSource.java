@@ -0,0 +1,82 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+final class FileRegionTextSource implements TextSource {
+
+    private final Path file;
+    private final long position;
+    private final long length;
+    private final Charset charset;
+
+    FileRegionTextSource(Path file, long position, long length, Charset charset) {
+        this.file = file;
+        this.position = position;
+        this.length = length;
+        this.charset = charset;
+    }
+
+    @Override
+    public Reader openReader() throws IOException {
+        FileChannel channel = FileChannel.open(file, READ);
+        long end = length < 0 ? Long.MAX_VALUE : position + length;
+        return new InputStreamReader(new RegionInputStream(channel, position, end), charset.newDecoder());
+    }
+
+    @Override
+    public String toString() {
+        return "TextSource{file=" + file + ", position=" + position + ", length=" + length + ", charset=" + charset + '}';
+    }
+
+    /**
+     * Reads with positional reads, so that the channel position is never shared.
+     */
+    private static final class RegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        RegionInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            int length = (int) Math.min(count, end - position);
+            if (length <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
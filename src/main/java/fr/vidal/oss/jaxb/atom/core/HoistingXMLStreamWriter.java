@@ -0,0 +1,294 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Declares namespaces on the root element, and drops the declarations binding a prefix
+ * to the namespace it is already bound to.
+ * <p>
+ * Hoisted declarations are written once the root element declared its own namespaces,
+ * a hoisted prefix already declared by the root element being left out.
+ */
+class HoistingXMLStreamWriter implements XMLStreamWriter {
+
+    private final XMLStreamWriter delegate;
+    private final Collection<Namespace> hoisted;
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<String> uris = new ArrayList<>();
+    private int[] scopeStarts = new int[16];
+    private int depth;
+    private boolean rootPending;
+    private boolean emptyPending;
+
+    HoistingXMLStreamWriter(XMLStreamWriter delegate, Collection<Namespace> hoisted) {
+        this.delegate = delegate;
+        this.hoisted = hoisted;
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        beforeContent();
+        delegate.writeStartElement(localName);
+        push(false);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        beforeContent();
+        delegate.writeStartElement(namespaceURI, localName);
+        push(false);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        beforeContent();
+        delegate.writeStartElement(prefix, localName, namespaceURI);
+        push(false);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        beforeContent();
+        delegate.writeEmptyElement(namespaceURI, localName);
+        push(true);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        beforeContent();
+        delegate.writeEmptyElement(prefix, localName, namespaceURI);
+        push(true);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        beforeContent();
+        delegate.writeEmptyElement(localName);
+        push(true);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        beforeContent();
+        delegate.writeEndElement();
+        pop();
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        beforeContent();
+        delegate.writeEndDocument();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        delegate.close();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        delegate.flush();
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        writeRootDeclarations();
+        delegate.writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeRootDeclarations();
+        delegate.writeAttribute(prefix, namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeRootDeclarations();
+        delegate.writeAttribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || prefix.isEmpty() || prefix.equals("xmlns")) {
+            writeDefaultNamespace(namespaceURI);
+            return;
+        }
+        if (!isBound(prefix, namespaceURI)) {
+            bind(prefix, namespaceURI);
+            delegate.writeNamespace(prefix, namespaceURI);
+        }
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        if (!isBound("", namespaceURI)) {
+            bind("", namespaceURI);
+            delegate.writeDefaultNamespace(namespaceURI);
+        }
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        beforeContent();
+        delegate.writeComment(data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        beforeContent();
+        delegate.writeProcessingInstruction(target);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        beforeContent();
+        delegate.writeProcessingInstruction(target, data);
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        beforeContent();
+        delegate.writeCData(data);
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        delegate.writeDTD(dtd);
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        beforeContent();
+        delegate.writeEntityRef(name);
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        delegate.writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        delegate.writeStartDocument(version);
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        delegate.writeStartDocument(encoding, version);
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        beforeContent();
+        delegate.writeCharacters(text);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        beforeContent();
+        delegate.writeCharacters(text, start, len);
+    }
+
+    @Override
+    public String getPrefix(String uri) throws XMLStreamException {
+        return delegate.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        delegate.setPrefix(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        delegate.setDefaultNamespace(uri);
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        delegate.setNamespaceContext(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return delegate.getNamespaceContext();
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return delegate.getProperty(name);
+    }
+
+    private void push(boolean empty) {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth << 1);
+        }
+        rootPending = depth == 0;
+        scopeStarts[depth++] = prefixes.size();
+        emptyPending = empty;
+    }
+
+    private void pop() {
+        int start = scopeStarts[--depth];
+        for (int i = prefixes.size() - 1; i >= start; i--) {
+            prefixes.remove(i);
+            uris.remove(i);
+        }
+    }
+
+    /**
+     * Ends the start tag from the wrapper's point of view: hoisted declarations are written
+     * and the scope of an empty element is closed.
+     */
+    private void beforeContent() throws XMLStreamException {
+        writeRootDeclarations();
+        if (emptyPending) {
+            emptyPending = false;
+            pop();
+        }
+    }
+
+    private void writeRootDeclarations() throws XMLStreamException {
+        if (!rootPending) {
+            return;
+        }
+        rootPending = false;
+        for (Namespace namespace : hoisted) {
+            if (!isDeclaredInCurrentScope(namespace.prefix())) {
+                bind(namespace.prefix(), namespace.uri());
+                delegate.writeNamespace(namespace.prefix(), namespace.uri());
+            }
+        }
+    }
+
+    private void bind(String prefix, String uri) {
+        prefixes.add(prefix);
+        uris.add(uri == null ? "" : uri);
+    }
+
+    private boolean isBound(String prefix, String uri) {
+        for (int i = prefixes.size() - 1; i >= 0; i--) {
+            if (prefixes.get(i).equals(prefix)) {
+                return uris.get(i).equals(uri == null ? "" : uri);
+            }
+        }
+        return prefix.isEmpty() && (uri == null || uri.isEmpty());
+    }
+
+    private boolean isDeclaredInCurrentScope(String prefix) {
+        int start = depth == 0 ? 0 : scopeStarts[depth - 1];
+        for (int i = prefixes.size() - 1; i >= start; i--) {
+            if (prefixes.get(i).equals(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+
+/**
+ * Binds extension elements to a JAXB class through a context created once for that class.
+ */
+class JaxbExtensionCodec<T> implements ExtensionCodec<T> {
+
+    private final Class<T> type;
+    private final JAXBContext context;
+
+    JaxbExtensionCodec(Class<T> type) throws JAXBException {
+        this.type = type;
+        this.context = JAXBContext.newInstance(type);
+    }
+
+    @Override
+    public T decode(Element element) throws JAXBException {
+        return context.createUnmarshaller().unmarshal(element, type).getValue();
+    }
+
+    @Override
+    public Element encode(QName name, T value, Document document) throws JAXBException {
+        context.createMarshaller().marshal(new JAXBElement<>(name, type, value), document);
+        return document.getDocumentElement();
+    }
+
+    @Override
+    public String toString() {
+        return "JaxbExtensionCodec{type=" + type.getName() + '}';
+    }
+}
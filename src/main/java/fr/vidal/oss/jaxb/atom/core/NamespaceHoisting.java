@@ -0,0 +1,99 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Declares extension namespaces once, on the root element, instead of on every extension element.
+ * <p>
+ * {@link ExtensionElementAdapter} turns each extension element into a standalone DOM element, which JAXB
+ * writes along with its own namespace declarations. Marshalling through {@link #writer(XMLStreamWriter, Collection)}
+ * declares the hoisted namespaces on the root element and drops the declarations binding a prefix to the namespace
+ * it is already bound to, so the document is the same once namespaces are resolved.
+ */
+public final class NamespaceHoisting {
+
+    private NamespaceHoisting() {
+    }
+
+    /**
+     * Collects the prefixed namespaces of the extension elements and entry attributes of the feed, in document order.
+     * When several namespaces share a prefix, the first one wins and the others keep being declared where used.
+     */
+    public static Set<Namespace> collect(Feed feed) {
+        Set<Namespace> namespaces = new LinkedHashSet<>();
+        Set<String> prefixes = new HashSet<>();
+        collect(feed.getExtensionElements(), namespaces, prefixes);
+        for (Entry entry : feed.getEntries()) {
+            for (QName attribute : entry.getAdditionalAttributes().keySet()) {
+                add(Namespace.builder(attribute.getNamespaceURI()).withPrefix(attribute.getPrefix()).build(), namespaces, prefixes);
+            }
+            collect(entry.getExtensionElements(), namespaces, prefixes);
+        }
+        return namespaces;
+    }
+
+    /**
+     * @return a writer declaring the namespaces on the root element written to the given writer
+     */
+    public static XMLStreamWriter writer(XMLStreamWriter writer, Collection<Namespace> namespaces) {
+        checkState(writer != null, "writer is mandatory");
+        checkState(namespaces != null, "namespaces are mandatory");
+        return new HoistingXMLStreamWriter(writer, namespaces);
+    }
+
+    /**
+     * Marshals the feed as UTF-8 XML, hoisting the namespaces {@linkplain #collect(Feed) collected} from the feed.
+     */
+    public static void marshal(Marshaller marshaller, Feed feed, OutputStream out) throws JAXBException {
+        marshal(marshaller, feed, out, collect(feed));
+    }
+
+    /**
+     * Marshals the feed as UTF-8 XML, hoisting the given namespaces, such as those of an {@link ExtensionRegistry}.
+     */
+    public static void marshal(Marshaller marshaller, Feed feed, OutputStream out, Collection<Namespace> namespaces) throws JAXBException {
+        try {
+            XMLStreamWriter writer = writer(XmlFactories.outputFactory().createXMLStreamWriter(out, "UTF-8"), namespaces);
+            marshaller.marshal(feed, writer);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Cannot write feed.", e);
+        }
+    }
+
+    private static void collect(Collection<ExtensionElement> elements, Set<Namespace> namespaces, Set<String> prefixes) {
+        for (ExtensionElement element : elements) {
+            add(element.namespace(), namespaces, prefixes);
+            for (Attribute attribute : element.attributes()) {
+                add(attribute.getNamespace(), namespaces, prefixes);
+            }
+            if (element instanceof StructuredElement) {
+                collect(((StructuredElement) element).getExtensionElements(), namespaces, prefixes);
+            }
+        }
+    }
+
+    private static void add(Namespace namespace, Set<Namespace> namespaces, Set<String> prefixes) {
+        if (namespace == null || namespace.prefix() == null || namespace.prefix().isEmpty() || namespace.uri().isEmpty()) {
+            return;
+        }
+        if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespace.uri()) || XMLConstants.XML_NS_URI.equals(namespace.uri())) {
+            return;
+        }
+        if (prefixes.add(namespace.prefix())) {
+            namespaces.add(namespace);
+        }
+    }
+}
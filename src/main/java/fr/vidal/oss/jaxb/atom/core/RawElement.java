@@ -0,0 +1,87 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import javax.xml.bind.JAXBElement;
+import java.util.Collection;
+import java.util.Objects;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.util.Collections.emptyList;
+
+/**
+ * Extension element kept as an XML fragment, without being parsed, to be written back as is.
+ * The fragment declares every namespace it uses, so that it can be moved to any document.
+ * Comments, processing instructions and mixed content are preserved.
+ */
+public final class RawElement extends ExtensionElement {
+
+    private final Namespace namespace;
+    private final String tagName;
+    private final String xml;
+
+    private RawElement(Namespace namespace, String tagName, String xml) {
+        this.namespace = namespace;
+        this.tagName = tagName;
+        this.xml = xml;
+    }
+
+    /**
+     * @param namespace the namespace of the fragment root element, null when it has none
+     * @param tagName   the local name of the fragment root element
+     * @param xml       the fragment, made of a single element declaring the namespaces it uses
+     */
+    public static RawElement of(Namespace namespace, String tagName, String xml) {
+        checkState(tagName != null, TAG_NAME_IS_MANDATORY);
+        checkState(xml != null, "A raw element should contain an XML fragment.");
+        return new RawElement(namespace, tagName, xml);
+    }
+
+    @Override
+    public Namespace namespace() {
+        return namespace;
+    }
+
+    @Override
+    public String tagName() {
+        return tagName;
+    }
+
+    public String xml() {
+        return xml;
+    }
+
+    @Override
+    protected Collection<Attribute> attributes() {
+        return emptyList();
+    }
+
+    @Override
+    protected JAXBElement toJAXBElement() {
+        return new JAXBElement<>(qualifiedName(), String.class, xml);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(namespace, tagName, xml);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RawElement other = (RawElement) obj;
+        return Objects.equals(namespace, other.namespace) && Objects.equals(tagName, other.tagName) && Objects.equals(xml, other.xml);
+    }
+
+    @Override
+    public String toString() {
+        return "RawElement{" +
+            "namespace=" + namespace +
+            ", tagName='" + tagName + '\'' +
+            ", xml='" + xml + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,37 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.io.Reader;
+
+final class StringTextSource implements TextSource {
+
+    private final String value;
+
+    StringTextSource(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public Reader openReader() {
+        return new CharSequenceReader(value);
+    }
+
+    @Override
+    public String asCharSequence() {
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof StringTextSource && value.equals(((StringTextSource) obj).value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -26,6 +26,9 @@ public class StructuredElement extends ExtensionElement {
     @XmlAnyElement
     private Collection<ExtensionElement> extensionElements;
 
+    // children are hashed when added to their parent, caching keeps hashing linear in the nesting depth
+    private int hash;
+
     @SuppressWarnings("unused") //jaxb
     private StructuredElement() {
     }
@@ -33,8 +36,9 @@ public class StructuredElement extends ExtensionElement {
     private StructuredElement(Builder builder) {
         this.namespace = builder.namespace;
         this.tagName = builder.tagName;
-        this.attributes = builder.attributes;
-        this.extensionElements = builder.extensionElements;
+        // copied so that builders reused after build() cannot change the cached hash
+        this.attributes = unmodifiableSet(new LinkedHashSet<>(builder.attributes));
+        this.extensionElements = unmodifiableSet(new LinkedHashSet<>(builder.extensionElements));
     }
 
     @Override
@@ -63,7 +67,12 @@ public class StructuredElement extends ExtensionElement {
 
     @Override
     public int hashCode() {
-        return Objects.hash(namespace, tagName, attributes, extensionElements);
+        int result = hash;
+        if (result == 0) {
+            result = Objects.hash(namespace, tagName, attributes, extensionElements);
+            hash = result;
+        }
+        return result;
     }
 
     @Override
@@ -2,12 +2,16 @@ package fr.vidal.oss.jaxb.atom.core;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlValue;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 
 public class Summary {
 
     @XmlValue
-    private final String value;
+    @XmlJavaTypeAdapter(TextSourceAdapter.class)
+    private final TextSource value;
     @XmlAttribute(name = "type")
     private final String type;
 
@@ -16,7 +20,7 @@ public class Summary {
         this(null, null);
     }
 
-    private Summary(String value, String type) {
+    private Summary(TextSource value, String type) {
         this.value = value;
         this.type = type;
     }
@@ -25,10 +29,32 @@ public class Summary {
         return new Builder();
     }
 
+    /**
+     * @return the value, read into memory when {@link #isStreamed() streamed}
+     * @throws UncheckedIOException when a streamed value cannot be read
+     */
     public String getValue() {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.asCharSequence().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read summary from " + value, e);
+        }
+    }
+
+    public TextSource getSource() {
         return value;
     }
 
+    /**
+     * @return whether the value is pulled from its source when written, instead of being held in memory
+     */
+    public boolean isStreamed() {
+        return value != null && !(value instanceof StringTextSource);
+    }
+
     public String getType() {
         return type;
     }
@@ -61,13 +87,18 @@ public class Summary {
 
     public static class Builder {
 
-        private String value;
+        private TextSource value;
         private String type;
 
         private Builder() {
         }
 
         public Builder withValue(String value) {
+            this.value = TextSource.of(value);
+            return this;
+        }
+
+        public Builder withValueSource(TextSource value) {
             this.value = value;
             return this;
         }
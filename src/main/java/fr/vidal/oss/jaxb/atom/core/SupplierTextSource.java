@@ -0,0 +1,29 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.io.Reader;
+import java.util.function.Supplier;
+
+final class SupplierTextSource implements TextSource {
+
+    private final Supplier<? extends CharSequence> supplier;
+
+    SupplierTextSource(Supplier<? extends CharSequence> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public Reader openReader() {
+        return new CharSequenceReader(asCharSequence());
+    }
+
+    @Override
+    public CharSequence asCharSequence() {
+        CharSequence value = supplier.get();
+        return value == null ? "" : value;
+    }
+
+    @Override
+    public String toString() {
+        return "TextSource{supplier=" + supplier + '}';
+    }
+}
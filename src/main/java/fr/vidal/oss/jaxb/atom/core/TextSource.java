@@ -0,0 +1,63 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Text value of {@link Contents} or {@link Summary}, either held in memory or pulled when written.
+ * Any {@link Reader} factory is a text source, each call opening a new reader over the whole value.
+ */
+@FunctionalInterface
+public interface TextSource {
+
+    Reader openReader() throws IOException;
+
+    /**
+     * @return the whole value, which is read into memory unless the source already holds it
+     */
+    default CharSequence asCharSequence() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = openReader()) {
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                builder.append(buffer, 0, count);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * @return an in-memory source, or null when the value is null
+     */
+    static TextSource of(String value) {
+        return value == null ? null : new StringTextSource(value);
+    }
+
+    /**
+     * @return a source asking the supplier for the value each time it is read
+     */
+    static TextSource ofSupplier(Supplier<? extends CharSequence> supplier) {
+        checkState(supplier != null, "supplier is mandatory");
+        return new SupplierTextSource(supplier);
+    }
+
+    static TextSource ofFile(Path file, Charset charset) {
+        return ofFileRegion(file, 0, -1, charset);
+    }
+
+    /**
+     * @param length the number of bytes to read from the position, or -1 to read up to the end of the file
+     */
+    static TextSource ofFileRegion(Path file, long position, long length, Charset charset) {
+        checkState(file != null, "file is mandatory");
+        checkState(charset != null, "charset is mandatory");
+        checkState(position >= 0, "position cannot be negative");
+        return new FileRegionTextSource(file, position, length, charset);
+    }
+}
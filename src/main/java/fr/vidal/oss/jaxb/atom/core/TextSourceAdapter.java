@@ -0,0 +1,19 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+/**
+ * Binds text sources to character data, streamed ones being read into memory when marshalled.
+ */
+public class TextSourceAdapter extends XmlAdapter<String, TextSource> {
+
+    @Override
+    public String marshal(TextSource source) throws Exception {
+        return source == null ? null : source.asCharSequence().toString();
+    }
+
+    @Override
+    public TextSource unmarshal(String value) {
+        return TextSource.of(value);
+    }
+}
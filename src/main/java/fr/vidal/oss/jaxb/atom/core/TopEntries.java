@@ -0,0 +1,202 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Keeps the first entries of a given order among the entries offered, in memory bounded by their number.
+ * <p>
+ * Kept entries are held in a binary heap whose root is the last one in order, so that each offer
+ * takes logarithmic time. Ordered by update date, entries are compared on primitive timestamps, without going
+ * through {@link Date}s. Entries comparing equal keep their offer order.
+ * Like {@link Feed.Builder#addEntry(Entry)}, only the first kept entry of a given id is retained.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @see Feed.Builder#withLatestEntries(int)
+ */
+public final class TopEntries {
+
+    private final int limit;
+    private final Comparator<? super Entry> order;
+    private final Set<String> ids = new HashSet<>();
+    private Entry[] entries;
+    private long[] updateTimes;
+    private long[] sequences;
+    private long sequence;
+    private int size;
+
+    private TopEntries(int limit, Comparator<? super Entry> order) {
+        checkState(limit > 0, "Limit must be positive");
+        this.limit = limit;
+        this.order = order;
+        int capacity = Math.min(limit, 16);
+        this.entries = new Entry[capacity];
+        this.updateTimes = new long[capacity];
+        this.sequences = new long[capacity];
+    }
+
+    /**
+     * @return the most recently updated entries, most recent first
+     */
+    public static TopEntries latest(int limit) {
+        return new TopEntries(limit, null);
+    }
+
+    /**
+     * @return the first entries in the given order
+     */
+    public static TopEntries of(int limit, Comparator<? super Entry> order) {
+        checkState(order != null, "Order is mandatory");
+        return new TopEntries(limit, order);
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether an entry updated at the given date would be kept, for entries ordered by update date,
+     * so that entries can be discarded before being built. Always true for other orders.
+     */
+    public boolean accepts(Date updateDate) {
+        return accepts(updateDate == null ? Long.MIN_VALUE : updateDate.getTime());
+    }
+
+    /**
+     * Same as {@link #accepts(Date)} for an update time in milliseconds since the epoch, {@link Long#MIN_VALUE}
+     * standing for a missing update date.
+     */
+    public boolean accepts(long updateTime) {
+        return order != null || updateTime == Long.MIN_VALUE || size < limit || updateTime > updateTimes[0];
+    }
+
+    /**
+     * @return whether the entry is kept, another entry being discarded when the limit is reached
+     */
+    public boolean offer(Entry entry) {
+        checkState(entry != null, "Entry is mandatory");
+        String id = id(entry);
+        if (id != null && ids.contains(id)) {
+            return false;
+        }
+        long updateTime = order == null ? updateTime(entry) : Long.MIN_VALUE;
+        long offered = sequence++;
+        if (size < limit) {
+            if (size == entries.length) {
+                int capacity = (int) Math.min(limit, 2L * size);
+                entries = Arrays.copyOf(entries, capacity);
+                updateTimes = Arrays.copyOf(updateTimes, capacity);
+                sequences = Arrays.copyOf(sequences, capacity);
+            }
+            set(size, entry, updateTime, offered);
+            ids.add(id);
+            siftUp(size++);
+            return true;
+        }
+        if (!isBefore(entry, updateTime, offered, 0)) {
+            return false;
+        }
+        ids.remove(id(entries[0]));
+        ids.add(id);
+        set(0, entry, updateTime, offered);
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * @return the kept entries, in order
+     */
+    public List<Entry> toList() {
+        Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (left, right) -> isBefore(left, right) ? -1 : 1);
+        List<Entry> sorted = new ArrayList<>(size);
+        for (Integer position : positions) {
+            sorted.add(entries[position]);
+        }
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return the id of the entry, or null when not loaded, such entries never being considered duplicates
+     */
+    private static String id(Entry entry) {
+        return entry.isLoaded(EntryField.ID) ? entry.getId() : null;
+    }
+
+    private static long updateTime(Entry entry) {
+        checkState(entry.isLoaded(EntryField.UPDATE_DATE), "Entry %s cannot be ordered by update date, its update date was not loaded", id(entry));
+        return entry.getUpdateDate() == null ? Long.MIN_VALUE : entry.getUpdateDate().getTime();
+    }
+
+    private void set(int position, Entry entry, long updateTime, long offered) {
+        entries[position] = entry;
+        updateTimes[position] = updateTime;
+        sequences[position] = offered;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBefore(parent, position)) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && isBefore(child, child + 1)) {
+                child++;
+            }
+            if (!isBefore(position, child)) {
+                return;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private boolean isBefore(int left, int right) {
+        return isBefore(entries[left], updateTimes[left], sequences[left], right);
+    }
+
+    /**
+     * @return whether the entry comes before the one kept at the given position
+     */
+    private boolean isBefore(Entry entry, long updateTime, long offered, int position) {
+        int comparison = order == null
+            ? Long.compare(updateTimes[position], updateTime)
+            : order.compare(entry, entries[position]);
+        return comparison < 0 || comparison == 0 && offered < sequences[position];
+    }
+
+    private void swap(int left, int right) {
+        Entry entry = entries[left];
+        long updateTime = updateTimes[left];
+        long offered = sequences[left];
+        set(left, entries[right], updateTimes[right], sequences[right]);
+        set(right, entry, updateTime, offered);
+    }
+}
@@ -0,0 +1,139 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.w3c.dom.Element;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import java.util.Collection;
+import java.util.Objects;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.util.Collections.emptyList;
+
+/**
+ * Top-level extension element bound to a typed value by the {@link ExtensionCodec} registered for its name.
+ * Attributes and children of the element belong to the value.
+ * <p>
+ * Elements decoded through a registry keep their codec, so that writers going without a JAXB marshaller,
+ * such as {@link fr.vidal.oss.jaxb.atom.stream.FeedWriter}, can {@linkplain #encode() encode} them.
+ *
+ * @see ExtensionRegistry
+ */
+public final class TypedElement<T> extends ExtensionElement {
+
+    private final QName name;
+    private final Namespace namespace;
+    private final T value;
+    private final ExtensionCodec<T> codec;
+
+    private TypedElement(QName name, T value, ExtensionCodec<T> codec) {
+        this.name = name;
+        this.namespace = name.getNamespaceURI().isEmpty() ? null : Namespace.builder(name.getNamespaceURI())
+            .withPrefix(name.getPrefix().isEmpty() ? null : name.getPrefix())
+            .build();
+        this.value = value;
+        this.codec = codec;
+    }
+
+    public static <T> TypedElement<T> of(QName name, T value) {
+        checkState(name != null, TAG_NAME_IS_MANDATORY);
+        checkState(value != null, "A typed element should contain a value.");
+        return new TypedElement<>(name, value, null);
+    }
+
+    /**
+     * @param codec the codec to encode the value with when the registry in use has none for the name
+     */
+    public static <T> TypedElement<T> of(QName name, T value, ExtensionCodec<T> codec) {
+        checkState(name != null, TAG_NAME_IS_MANDATORY);
+        checkState(value != null, "A typed element should contain a value.");
+        checkState(codec != null, "A typed element codec is mandatory.");
+        return new TypedElement<>(name, value, codec);
+    }
+
+    public QName name() {
+        return name;
+    }
+
+    @Override
+    public Namespace namespace() {
+        return namespace;
+    }
+
+    @Override
+    public String tagName() {
+        return name.getLocalPart();
+    }
+
+    public T value() {
+        return value;
+    }
+
+    /**
+     * @return the codec the element was decoded or created with, or null when none was given
+     */
+    public ExtensionCodec<T> codec() {
+        return codec;
+    }
+
+    /**
+     * Encodes the value through the codec of the element.
+     *
+     * @return the element as a tree of {@link SimpleElement}s and {@link StructuredElement}s
+     * @throws IllegalStateException when the element has no codec or cannot be encoded
+     */
+    public ExtensionElement encode() {
+        checkState(codec != null, "No codec registered for extension element %s", name);
+        try {
+            Element element = codec.encode(name, value, XmlFactories.newDocumentBuilder().newDocument());
+            return new ExtensionElementAdapter().unmarshal(element);
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode extension element " + name + " with " + codec, e);
+        }
+    }
+
+    /**
+     * @return the value, or null when it is not of the given type
+     */
+    public <V> V value(Class<V> type) {
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    @Override
+    protected Collection<Attribute> attributes() {
+        return emptyList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected JAXBElement toJAXBElement() {
+        return new JAXBElement<>(name, (Class<T>) value.getClass(), value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TypedElement<?> other = (TypedElement<?>) obj;
+        return Objects.equals(name, other.name) && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        return "TypedElement{" +
+            "name=" + name +
+            ", value=" + value +
+            '}';
+    }
+}
@@ -0,0 +1,120 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * DOM, StAX and SAX factories shared by all reading and writing paths.
+ * <p>
+ * Factories are looked up once, rather than going through the JAXP lookup on every call, and parse
+ * with secure defaults: DTDs are rejected, external entities and resources are never fetched, and
+ * secure processing keeps its entity expansion limits on. A hostile feed therefore fails to parse
+ * instead of expanding entities.
+ * <p>
+ * Factories are not to be reconfigured. The builders, readers and parsers they create are not thread-safe.
+ */
+public final class XmlFactories {
+
+    private static final String DISALLOW_DOCTYPE = "http://apache.org/xml/features/disallow-doctype-decl";
+    private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+    private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+    private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+    private static final SAXParserFactory SAX_PARSER_FACTORY = createSaxParserFactory();
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private XmlFactories() {
+    }
+
+    /**
+     * @return a namespace aware document builder
+     */
+    public static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+    }
+
+    /**
+     * @return a namespace aware SAX reader, to unmarshal from a {@link javax.xml.transform.sax.SAXSource}
+     */
+    public static XMLReader newXmlReader() throws ParserConfigurationException, SAXException {
+        return SAX_PARSER_FACTORY.newSAXParser().getXMLReader();
+    }
+
+    /**
+     * @return the shared StAX input factory, which does not coalesce text
+     */
+    public static XMLInputFactory inputFactory() {
+        return INPUT_FACTORY;
+    }
+
+    public static XMLOutputFactory outputFactory() {
+        return OUTPUT_FACTORY;
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, DISALLOW_DOCTYPE, true);
+        setFeature(factory, EXTERNAL_GENERAL_ENTITIES, false);
+        setFeature(factory, EXTERNAL_PARAMETER_ENTITIES, false);
+        setFeature(factory, LOAD_EXTERNAL_DTD, false);
+        try {
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        } catch (IllegalArgumentException e) {
+            // JAXP 1.5 properties are not supported, external entities are disabled by features
+        }
+        return factory;
+    }
+
+    private static SAXParserFactory createSaxParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setXIncludeAware(false);
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, DISALLOW_DOCTYPE, true);
+        setFeature(factory, EXTERNAL_GENERAL_ENTITIES, false);
+        setFeature(factory, EXTERNAL_PARAMETER_ENTITIES, false);
+        setFeature(factory, LOAD_EXTERNAL_DTD, false);
+        return factory;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            // not supported by this implementation, the other settings still apply
+        }
+    }
+
+    private static void setFeature(SAXParserFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException | SAXNotRecognizedException | SAXNotSupportedException e) {
+            // not supported by this implementation, the other settings still apply
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fr.vidal.oss.jaxb.atom.extension;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Values selected by {@link ExtensionPath}s across the entries of a feed, so that repeated queries are lookups.
+ * Each path is evaluated over all entries the first time it is queried. Instances are thread-safe.
+ */
+public final class ExtensionIndex {
+
+    private final Collection<Entry> entries;
+    private final Map<ExtensionPath, PathIndex> indexes = new ConcurrentHashMap<>();
+
+    private ExtensionIndex(Collection<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static ExtensionIndex of(Feed feed) {
+        checkState(feed != null, "feed is mandatory");
+        return new ExtensionIndex(feed.getEntries());
+    }
+
+    /**
+     * @return the values the path selects in the entry, which must belong to the indexed feed
+     */
+    public List<String> values(ExtensionPath path, Entry entry) {
+        List<String> values = index(path).valuesByEntry.get(entry);
+        checkState(values != null, "Entry %s does not belong to the indexed feed", entry.getId());
+        return values;
+    }
+
+    /**
+     * @return the entries in which the path selects the given value, in feed order
+     */
+    public List<Entry> entries(ExtensionPath path, String value) {
+        List<Entry> matches = index(path).entriesByValue.get(value);
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    /**
+     * @return the distinct values the path selects across all entries
+     */
+    public Collection<String> distinctValues(ExtensionPath path) {
+        return index(path).entriesByValue.keySet();
+    }
+
+    private PathIndex index(ExtensionPath path) {
+        checkState(path != null, "path is mandatory");
+        return indexes.computeIfAbsent(path, this::build);
+    }
+
+    private PathIndex build(ExtensionPath path) {
+        Map<Entry, List<String>> valuesByEntry = new IdentityHashMap<>(entries.size());
+        Map<String, List<Entry>> entriesByValue = new HashMap<>();
+        for (Entry entry : entries) {
+            List<String> values = path.values(entry);
+            valuesByEntry.put(entry, Collections.unmodifiableList(values));
+            for (String value : values) {
+                List<Entry> matches = entriesByValue.computeIfAbsent(value, key -> new ArrayList<>(1));
+                if (matches.isEmpty() || matches.get(matches.size() - 1) != entry) {
+                    matches.add(entry);
+                }
+            }
+        }
+        entriesByValue.replaceAll((value, matches) -> Collections.unmodifiableList(matches));
+        return new PathIndex(valuesByEntry, Collections.unmodifiableMap(entriesByValue));
+    }
+
+    private static final class PathIndex {
+
+        private final Map<Entry, List<String>> valuesByEntry;
+        private final Map<String, List<Entry>> entriesByValue;
+
+        private PathIndex(Map<Entry, List<String>> valuesByEntry, Map<String, List<Entry>> entriesByValue) {
+            this.valuesByEntry = valuesByEntry;
+            this.entriesByValue = entriesByValue;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package fr.vidal.oss.jaxb.atom.extension;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.SimpleElement;
+import fr.vidal.oss.jaxb.atom.core.StructuredElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Compiled path selecting extension elements, or their attributes, by qualified name, such as
+ * {@code vidal:product/vidal:atc@code}.
+ * <p>
+ * A path is made of {@code /}-separated element steps, the first one matching top-level extension elements,
+ * optionally followed by an {@code @}-prefixed attribute step. A step is either {@code prefix:name},
+ * {@code name}, {@code prefix:*} or {@code *}. Prefixes are resolved against the namespaces given at compile time,
+ * a namespace without prefix applying to unprefixed steps, which otherwise match names without namespace.
+ * Unprefixed attribute steps always match attributes without namespace, as in XPath.
+ * <p>
+ * Names are matched on namespace URI and local name, prefixes used in documents being irrelevant.
+ * Instances are immutable and thread-safe.
+ */
+public final class ExtensionPath {
+
+    private static final String ANY = "*";
+
+    private final String expression;
+    private final Step[] steps;
+    private final Step attribute;
+
+    private ExtensionPath(String expression, Step[] steps, Step attribute) {
+        this.expression = expression;
+        this.steps = steps;
+        this.attribute = attribute;
+    }
+
+    public static ExtensionPath compile(String expression, Namespace... namespaces) {
+        checkState(expression != null, "expression is mandatory");
+        Map<String, String> uris = new HashMap<>();
+        for (Namespace namespace : namespaces) {
+            uris.put(namespace.prefix() == null ? "" : namespace.prefix(), namespace.uri());
+        }
+        int at = expression.indexOf('@');
+        String elementPath = at < 0 ? expression : expression.substring(0, at);
+        String[] names = elementPath.split("/", -1);
+        Step[] steps = new Step[names.length];
+        for (int i = 0; i < names.length; i++) {
+            steps[i] = step(expression, names[i], uris, true);
+        }
+        Step attribute = at < 0 ? null : step(expression, expression.substring(at + 1), uris, false);
+        return new ExtensionPath(expression, steps, attribute);
+    }
+
+    private static Step step(String expression, String name, Map<String, String> uris, boolean element) {
+        checkState(!name.isEmpty() && name.indexOf('@') < 0 && name.indexOf('/') < 0, "Invalid extension path: %s", expression);
+        int colon = name.indexOf(':');
+        String localName = colon < 0 ? name : name.substring(colon + 1);
+        checkState(!localName.isEmpty() && localName.indexOf(':') < 0, "Invalid extension path: %s", expression);
+        if (localName.equals(ANY)) {
+            localName = ANY;
+        }
+        if (name.equals(ANY)) {
+            return new Step(ANY, ANY);
+        }
+        if (colon < 0) {
+            String defaultUri = element ? uris.get("") : null;
+            return new Step(defaultUri == null ? "" : defaultUri, localName);
+        }
+        String prefix = name.substring(0, colon);
+        String uri = uris.get(prefix);
+        checkState(uri != null, "Unbound prefix %s in extension path: %s", prefix, expression);
+        return new Step(uri, localName);
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * @return whether the path selects attributes rather than elements
+     */
+    public boolean selectsAttribute() {
+        return attribute != null;
+    }
+
+    /**
+     * @return the selected elements, in document order
+     */
+    public List<ExtensionElement> elements(Collection<ExtensionElement> extensionElements) {
+        List<ExtensionElement> matches = new ArrayList<>();
+        collect(extensionElements, 0, matches);
+        return matches;
+    }
+
+    /**
+     * @return the values of the selected attributes, or of the selected simple elements, in document order
+     */
+    public List<String> values(Collection<ExtensionElement> extensionElements) {
+        List<ExtensionElement> matches = elements(extensionElements);
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(matches.size());
+        for (ExtensionElement element : matches) {
+            if (attribute != null) {
+                for (Attribute candidate : attributes(element)) {
+                    if (attribute.matches(candidate.getNamespace(), candidate.getName())) {
+                        values.add(candidate.getValue());
+                    }
+                }
+            } else if (element instanceof SimpleElement) {
+                values.add(((SimpleElement) element).value());
+            }
+        }
+        return values;
+    }
+
+    public List<String> values(Entry entry) {
+        return values(entry.getExtensionElements());
+    }
+
+    /**
+     * @return the first selected value, or null when nothing is selected
+     */
+    public String firstValue(Entry entry) {
+        List<String> values = values(entry);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private void collect(Collection<ExtensionElement> elements, int depth, List<ExtensionElement> matches) {
+        Step step = steps[depth];
+        boolean last = depth == steps.length - 1;
+        for (ExtensionElement element : elements) {
+            if (!step.matches(element.namespace(), element.tagName())) {
+                continue;
+            }
+            if (last) {
+                matches.add(element);
+            } else if (element instanceof StructuredElement) {
+                collect(((StructuredElement) element).getExtensionElements(), depth + 1, matches);
+            }
+        }
+    }
+
+    private static Collection<Attribute> attributes(ExtensionElement element) {
+        if (element instanceof SimpleElement) {
+            return ((SimpleElement) element).attributes();
+        }
+        if (element instanceof StructuredElement) {
+            return ((StructuredElement) element).attributes();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(steps) + Objects.hashCode(attribute);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ExtensionPath other = (ExtensionPath) obj;
+        return Arrays.equals(steps, other.steps) && Objects.equals(attribute, other.attribute);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static final class Step {
+
+        private final String uri;
+        private final String localName;
+
+        private Step(String uri, String localName) {
+            this.uri = uri;
+            this.localName = localName;
+        }
+
+        boolean matches(Namespace namespace, String name) {
+            if (localName != ANY && !localName.equals(name)) {
+                return false;
+            }
+            String actualUri = namespace == null || namespace.uri() == null ? "" : namespace.uri();
+            return uri == ANY || uri.equals(actualUri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, localName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Step)) {
+                return false;
+            }
+            Step other = (Step) obj;
+            return uri.equals(other.uri) && localName.equals(other.localName);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.AtomFormat;
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Java Flight Recorder events for feed marshalling, unmarshalling, entries, extension element adaptation
+ * and context creation.
+ * <p>
+ * Events are only emitted on Java 11+, from the multi-release part of the jar, and cost next to nothing
+ * while no recording is running. On older runtimes, or when the {@code jdk.jfr} module is missing,
+ * every method simply delegates to plain JAXB.
+ */
+public final class AtomFlightRecorder {
+
+    private static final boolean SUPPORTED = supported();
+
+    private AtomFlightRecorder() {
+    }
+
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Same as {@link AtomJaxb#newContext()}, recording the context creation.
+     */
+    public static JAXBContext newContext() throws JAXBException {
+        if (!SUPPORTED) {
+            return AtomJaxb.newContext();
+        }
+        return FlightRecorderEvents.newContext(Feed.class.getPackage().getName(), AtomJaxb::newContext);
+    }
+
+    /**
+     * Installs a listener, chained to the current one, and an extension element adapter recording events.
+     */
+    public static Marshaller instrument(Marshaller marshaller) {
+        if (SUPPORTED) {
+            FlightRecorderEvents.instrument(marshaller);
+        }
+        return marshaller;
+    }
+
+    /**
+     * Installs a listener, chained to the current one, and an extension element adapter recording events.
+     */
+    public static Unmarshaller instrument(Unmarshaller unmarshaller) {
+        if (SUPPORTED) {
+            FlightRecorderEvents.instrument(unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Marshals with the given format, adding the number of written bytes to the feed event
+     * when the marshaller has been {@link #instrument(Marshaller) instrumented}.
+     */
+    public static void marshal(AtomFormat format, Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+        if (!SUPPORTED) {
+            format.marshal(marshaller, value, out);
+            return;
+        }
+        FlightRecorderEvents.marshal(format, marshaller, value, out);
+    }
+
+    /**
+     * Unmarshals with the given format, adding the number of read bytes to the feed event
+     * when the unmarshaller has been {@link #instrument(Unmarshaller) instrumented}.
+     */
+    public static Object unmarshal(AtomFormat format, Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+        if (!SUPPORTED) {
+            return format.unmarshal(unmarshaller, in);
+        }
+        return FlightRecorderEvents.unmarshal(format, unmarshaller, in);
+    }
+
+    private static boolean supported() {
+        try {
+            return FlightRecorderEvents.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
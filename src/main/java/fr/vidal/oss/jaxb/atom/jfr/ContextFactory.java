@@ -0,0 +1,9 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+interface ContextFactory {
+
+    JAXBContext create() throws JAXBException;
+}
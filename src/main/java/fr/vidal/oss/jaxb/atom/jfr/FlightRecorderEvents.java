@@ -0,0 +1,42 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.AtomFormat;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Java 8 flavour, recording nothing.
+ * The Java 11 flavour, shipped in the multi-release part of the jar, emits Flight Recorder events.
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static void instrument(Marshaller marshaller) {
+    }
+
+    static void instrument(Unmarshaller unmarshaller) {
+    }
+
+    static JAXBContext newContext(String contextPath, ContextFactory factory) throws JAXBException {
+        return factory.create();
+    }
+
+    static void marshal(AtomFormat format, Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+        format.marshal(marshaller, value, out);
+    }
+
+    static Object unmarshal(AtomFormat format, Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+        return format.unmarshal(unmarshaller, in);
+    }
+}
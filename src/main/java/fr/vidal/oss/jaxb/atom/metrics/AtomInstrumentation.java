@@ -0,0 +1,86 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import fr.vidal.oss.jaxb.atom.core.AtomFormat;
+import fr.vidal.oss.jaxb.atom.core.DateAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionRegistry;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.MARSHAL;
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.UNMARSHAL;
+
+/**
+ * Wires {@link AtomMetrics} into marshallers and unmarshallers created from {@link fr.vidal.oss.jaxb.atom.core.AtomJaxb}.
+ * <p>
+ * Instrumentation relies on the JAXB listener and on timed adapters replacing the default ones,
+ * the {@link ExtensionRegistry} and maximum depth of a previously set extension adapter being kept.
+ * With {@link AtomMetrics#NONE}, nothing is installed and marshalling runs exactly as before.
+ */
+public final class AtomInstrumentation {
+
+    private AtomInstrumentation() {
+    }
+
+    public static Marshaller instrument(Marshaller marshaller, AtomMetrics metrics) {
+        if (metrics == AtomMetrics.NONE) {
+            return marshaller;
+        }
+        marshaller.setListener(new MetricsMarshallerListener(metrics, marshaller.getListener()));
+        marshaller.setAdapter(ExtensionElementAdapter.class, timed(metrics, marshaller.getAdapter(ExtensionElementAdapter.class)));
+        marshaller.setAdapter(DateAdapter.class, new TimedDateAdapter(metrics));
+        return marshaller;
+    }
+
+    public static Unmarshaller instrument(Unmarshaller unmarshaller, AtomMetrics metrics) {
+        if (metrics == AtomMetrics.NONE) {
+            return unmarshaller;
+        }
+        unmarshaller.setListener(new MetricsUnmarshallerListener(metrics, unmarshaller.getListener()));
+        unmarshaller.setAdapter(ExtensionElementAdapter.class, timed(metrics, unmarshaller.getAdapter(ExtensionElementAdapter.class)));
+        unmarshaller.setAdapter(DateAdapter.class, new TimedDateAdapter(metrics));
+        return unmarshaller;
+    }
+
+    /**
+     * @return a timed adapter keeping the registry and maximum depth of the adapter in place, if any
+     */
+    private static TimedExtensionElementAdapter timed(AtomMetrics metrics, ExtensionElementAdapter adapter) {
+        if (adapter == null) {
+            return new TimedExtensionElementAdapter(metrics);
+        }
+        return new TimedExtensionElementAdapter(metrics, adapter.registry(), adapter.maxDepth());
+    }
+
+    /**
+     * Marshals with the given format, additionally reporting the number of bytes written.
+     * The marshaller is expected to be {@link #instrument(Marshaller, AtomMetrics) instrumented} already.
+     */
+    public static void marshal(AtomFormat format, Marshaller marshaller, Object value, OutputStream out, AtomMetrics metrics) throws JAXBException {
+        if (metrics == AtomMetrics.NONE) {
+            format.marshal(marshaller, value, out);
+            return;
+        }
+        CountingOutputStream counter = new CountingOutputStream(out);
+        format.marshal(marshaller, value, counter);
+        metrics.bytes(MARSHAL, counter.count());
+    }
+
+    /**
+     * Unmarshals with the given format, additionally reporting the number of bytes read.
+     * The unmarshaller is expected to be {@link #instrument(Unmarshaller, AtomMetrics) instrumented} already.
+     */
+    public static Object unmarshal(AtomFormat format, Unmarshaller unmarshaller, InputStream in, AtomMetrics metrics) throws JAXBException {
+        if (metrics == AtomMetrics.NONE) {
+            return format.unmarshal(unmarshaller, in);
+        }
+        CountingInputStream counter = new CountingInputStream(in);
+        Object result = format.unmarshal(unmarshaller, counter);
+        metrics.bytes(UNMARSHAL, counter.count());
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+/**
+ * Listener notified of the work done while marshalling or unmarshalling feeds.
+ * All durations are expressed in nanoseconds.
+ * <p>
+ * Implementations are called from the marshalling thread and must be thread-safe
+ * when shared across marshallers.
+ *
+ * @see AtomInstrumentation
+ */
+public interface AtomMetrics {
+
+    /**
+     * Disabled metrics: {@link AtomInstrumentation} installs nothing for it.
+     */
+    AtomMetrics NONE = new AtomMetrics() {
+    };
+
+    enum Operation {
+        MARSHAL, UNMARSHAL
+    }
+
+    /**
+     * A whole feed has been processed.
+     */
+    default void feed(Operation operation, long nanos, int entryCount) {
+    }
+
+    /**
+     * The feed header, i.e. every feed child but its entries, has been processed.
+     */
+    default void header(Operation operation, long nanos) {
+    }
+
+    default void entry(Operation operation, long nanos) {
+    }
+
+    /**
+     * A top-level extension element went through {@link fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter}.
+     */
+    default void extensionElement(Operation operation, long nanos) {
+    }
+
+    /**
+     * A date went through {@link fr.vidal.oss.jaxb.atom.core.DateAdapter}.
+     */
+    default void date(Operation operation, long nanos) {
+    }
+
+    default void bytes(Operation operation, long count) {
+    }
+}
@@ -0,0 +1,61 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation;
+
+/**
+ * Turns the before/after callbacks of JAXB listeners into feed, header and entry timings.
+ * The header ends when the first entry starts, entries being the last feed children.
+ * Nested callbacks for the same feed, as issued by the JAXB RI for root elements, are ignored.
+ */
+class FeedTimer {
+
+    private final AtomMetrics metrics;
+    private final Operation operation;
+    private int feedDepth;
+    private long feedStart;
+    private long entryStart;
+    private boolean inHeader;
+    private int entryCount;
+
+    FeedTimer(AtomMetrics metrics, Operation operation) {
+        this.metrics = metrics;
+        this.operation = operation;
+    }
+
+    void before(Object target) {
+        if (target instanceof Feed) {
+            if (feedDepth++ > 0) {
+                return;
+            }
+            feedStart = System.nanoTime();
+            inHeader = true;
+            entryCount = 0;
+        } else if (target instanceof Entry) {
+            entryStart = System.nanoTime();
+            endHeader(entryStart);
+        }
+    }
+
+    void after(Object target) {
+        if (target instanceof Entry) {
+            metrics.entry(operation, System.nanoTime() - entryStart);
+            entryCount++;
+        } else if (target instanceof Feed) {
+            if (--feedDepth > 0) {
+                return;
+            }
+            long end = System.nanoTime();
+            endHeader(end);
+            metrics.feed(operation, end - feedStart, entryCount);
+        }
+    }
+
+    private void endHeader(long now) {
+        if (inHeader) {
+            metrics.header(operation, now - feedStart);
+            inHeader = false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Lock-free histogram of non-negative long values.
+ * <p>
+ * Values below 16 are counted exactly, larger ones in log-linear buckets
+ * of 8 sub-buckets per power of two, i.e. with a relative error below 12.5%.
+ * Recording is a couple of atomic increments, safe to call from any thread.
+ */
+public class LongHistogram {
+
+    private static final int EXACT_VALUES = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        checkState(value >= 0, "Cannot record negative value %d", value);
+        buckets.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long sum() {
+        return sum.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value of the bucket containing the given percentile, capped by the recorded maximum
+     */
+    public long valueAtPercentile(double percentile) {
+        checkState(percentile >= 0 && percentile <= 100, "Percentile must be within [0, 100], got %s", percentile);
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "LongHistogram{" +
+            "count=" + count() +
+            ", mean=" + mean() +
+            ", p50=" + valueAtPercentile(50) +
+            ", p99=" + valueAtPercentile(99) +
+            ", max=" + max() +
+            '}';
+    }
+
+    static int index(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowestValue(int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long highestValue(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return lowestValue(index + 1) - 1;
+    }
+}
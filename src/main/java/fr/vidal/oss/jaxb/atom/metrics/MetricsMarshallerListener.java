@@ -0,0 +1,39 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import javax.xml.bind.Marshaller;
+
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.MARSHAL;
+
+/**
+ * Reports feed, header and entry marshalling times, then calls the delegate listener if any.
+ */
+public class MetricsMarshallerListener extends Marshaller.Listener {
+
+    private final FeedTimer timer;
+    private final Marshaller.Listener delegate;
+
+    public MetricsMarshallerListener(AtomMetrics metrics) {
+        this(metrics, null);
+    }
+
+    public MetricsMarshallerListener(AtomMetrics metrics, Marshaller.Listener delegate) {
+        this.timer = new FeedTimer(metrics, MARSHAL);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void beforeMarshal(Object source) {
+        timer.before(source);
+        if (delegate != null) {
+            delegate.beforeMarshal(source);
+        }
+    }
+
+    @Override
+    public void afterMarshal(Object source) {
+        if (delegate != null) {
+            delegate.afterMarshal(source);
+        }
+        timer.after(source);
+    }
+}
@@ -0,0 +1,39 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import javax.xml.bind.Unmarshaller;
+
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.UNMARSHAL;
+
+/**
+ * Reports feed, header and entry unmarshalling times, then calls the delegate listener if any.
+ */
+public class MetricsUnmarshallerListener extends Unmarshaller.Listener {
+
+    private final FeedTimer timer;
+    private final Unmarshaller.Listener delegate;
+
+    public MetricsUnmarshallerListener(AtomMetrics metrics) {
+        this(metrics, null);
+    }
+
+    public MetricsUnmarshallerListener(AtomMetrics metrics, Unmarshaller.Listener delegate) {
+        this.timer = new FeedTimer(metrics, UNMARSHAL);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void beforeUnmarshal(Object target, Object parent) {
+        timer.before(target);
+        if (delegate != null) {
+            delegate.beforeUnmarshal(target, parent);
+        }
+    }
+
+    @Override
+    public void afterUnmarshal(Object target, Object parent) {
+        if (delegate != null) {
+            delegate.afterUnmarshal(target, parent);
+        }
+        timer.after(target);
+    }
+}
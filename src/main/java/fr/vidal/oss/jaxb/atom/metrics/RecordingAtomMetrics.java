@@ -0,0 +1,115 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AtomMetrics} aggregating every notification into histograms and counters, per operation.
+ */
+public class RecordingAtomMetrics implements AtomMetrics {
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    public RecordingAtomMetrics() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder());
+        }
+    }
+
+    @Override
+    public void feed(Operation operation, long nanos, int entryCount) {
+        Recorder recorder = recorders.get(operation);
+        recorder.feedLatency.record(nanos);
+        recorder.entryCount.add(entryCount);
+    }
+
+    @Override
+    public void header(Operation operation, long nanos) {
+        recorders.get(operation).headerLatency.record(nanos);
+    }
+
+    @Override
+    public void entry(Operation operation, long nanos) {
+        recorders.get(operation).entryLatency.record(nanos);
+    }
+
+    @Override
+    public void extensionElement(Operation operation, long nanos) {
+        recorders.get(operation).extensionElementLatency.record(nanos);
+    }
+
+    @Override
+    public void date(Operation operation, long nanos) {
+        recorders.get(operation).dateLatency.record(nanos);
+    }
+
+    @Override
+    public void bytes(Operation operation, long count) {
+        recorders.get(operation).bytes.add(count);
+    }
+
+    public LongHistogram feedLatency(Operation operation) {
+        return recorders.get(operation).feedLatency;
+    }
+
+    public LongHistogram headerLatency(Operation operation) {
+        return recorders.get(operation).headerLatency;
+    }
+
+    public LongHistogram entryLatency(Operation operation) {
+        return recorders.get(operation).entryLatency;
+    }
+
+    /**
+     * Time spent in the extension element adapter, one value per top-level extension element.
+     */
+    public LongHistogram extensionElementLatency(Operation operation) {
+        return recorders.get(operation).extensionElementLatency;
+    }
+
+    public LongHistogram dateLatency(Operation operation) {
+        return recorders.get(operation).dateLatency;
+    }
+
+    public long entryCount(Operation operation) {
+        return recorders.get(operation).entryCount.sum();
+    }
+
+    public long extensionElementCount(Operation operation) {
+        return recorders.get(operation).extensionElementLatency.count();
+    }
+
+    public long bytes(Operation operation) {
+        return recorders.get(operation).bytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RecordingAtomMetrics" + recorders;
+    }
+
+    private static class Recorder {
+
+        private final LongHistogram feedLatency = new LongHistogram();
+        private final LongHistogram headerLatency = new LongHistogram();
+        private final LongHistogram entryLatency = new LongHistogram();
+        private final LongHistogram extensionElementLatency = new LongHistogram();
+        private final LongHistogram dateLatency = new LongHistogram();
+        private final LongAdder entryCount = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        @Override
+        public String toString() {
+            return "{" +
+                "feedLatency=" + feedLatency +
+                ", headerLatency=" + headerLatency +
+                ", entryLatency=" + entryLatency +
+                ", extensionElementLatency=" + extensionElementLatency +
+                ", dateLatency=" + dateLatency +
+                ", entryCount=" + entryCount +
+                ", bytes=" + bytes +
+                '}';
+        }
+    }
+}
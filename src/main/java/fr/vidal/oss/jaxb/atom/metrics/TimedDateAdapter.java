@@ -0,0 +1,40 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import fr.vidal.oss.jaxb.atom.core.DateAdapter;
+
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.MARSHAL;
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.UNMARSHAL;
+
+/**
+ * {@link DateAdapter} reporting the time spent formatting and parsing each date.
+ */
+public class TimedDateAdapter extends DateAdapter {
+
+    private final AtomMetrics metrics;
+
+    public TimedDateAdapter(AtomMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String marshal(Date date) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return super.marshal(date);
+        } finally {
+            metrics.date(MARSHAL, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Date unmarshal(String xmlDate) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return super.unmarshal(xmlDate);
+        } finally {
+            metrics.date(UNMARSHAL, System.nanoTime() - start);
+        }
+    }
+}
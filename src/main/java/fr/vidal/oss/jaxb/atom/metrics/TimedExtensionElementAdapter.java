@@ -0,0 +1,50 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionRegistry;
+import org.w3c.dom.Element;
+
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.MARSHAL;
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.UNMARSHAL;
+
+/**
+ * {@link ExtensionElementAdapter} reporting the time spent adapting each top-level extension element.
+ */
+public class TimedExtensionElementAdapter extends ExtensionElementAdapter {
+
+    private final AtomMetrics metrics;
+
+    public TimedExtensionElementAdapter(AtomMetrics metrics) {
+        this(metrics, ExtensionRegistry.EMPTY);
+    }
+
+    public TimedExtensionElementAdapter(AtomMetrics metrics, ExtensionRegistry registry) {
+        this(metrics, registry, DEFAULT_MAX_DEPTH);
+    }
+
+    public TimedExtensionElementAdapter(AtomMetrics metrics, ExtensionRegistry registry, int maxDepth) {
+        super(registry, maxDepth);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Element marshal(ExtensionElement extensionElement) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return super.marshal(extensionElement);
+        } finally {
+            metrics.extensionElement(MARSHAL, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ExtensionElement unmarshal(Element element) {
+        long start = System.nanoTime();
+        try {
+            return super.unmarshal(element);
+        } finally {
+            metrics.extensionElement(UNMARSHAL, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+
+/**
+ * Writes every emitted buffer at its own file position without waiting for the previous ones,
+ * the number of writes in flight being bounded by the pool. Failures surface on the next call.
+ */
+class AsynchronousFileSink extends PooledByteSink {
+
+    private final AsynchronousFileChannel channel;
+    private final Object lock = new Object();
+    private long position;
+    private int pending;
+    private Throwable failure;
+
+    AsynchronousFileSink(AsynchronousFileChannel channel, long position, ByteBufferPool pool) {
+        super(pool);
+        this.channel = channel;
+        this.position = position;
+    }
+
+    @Override
+    protected void emit(ByteBuffer buffer) throws IOException {
+        checkFailure();
+        synchronized (lock) {
+            pending++;
+        }
+        long start = position;
+        position += buffer.remaining();
+        channel.write(buffer, start, start, new CompletionHandler<Integer, Long>() {
+            @Override
+            public void completed(Integer written, Long bufferPosition) {
+                if (buffer.hasRemaining()) {
+                    long next = bufferPosition + written;
+                    channel.write(buffer, next, next, this);
+                    return;
+                }
+                done(null);
+            }
+
+            @Override
+            public void failed(Throwable e, Long bufferPosition) {
+                done(e);
+            }
+
+            private void done(Throwable e) {
+                pool.release(buffer);
+                synchronized (lock) {
+                    if (e != null && failure == null) {
+                        failure = e;
+                    }
+                    pending--;
+                    lock.notifyAll();
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void flushEmitted() throws IOException {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (pending > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * @return the file position right after the last emitted byte
+     */
+    long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e;
+        synchronized (lock) {
+            e = failure;
+        }
+        if (e != null) {
+            throw new IOException("Asynchronous file write failed", e);
+        }
+    }
+}
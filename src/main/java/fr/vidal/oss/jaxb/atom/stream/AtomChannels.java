@@ -0,0 +1,59 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Marshals straight to NIO targets through {@link Utf8XmlStreamWriter}, without going through
+ * an intermediate array holding the whole document.
+ * Channels are left open, only the bytes are flushed.
+ */
+public final class AtomChannels {
+
+    private AtomChannels() {
+    }
+
+    public static void marshal(Marshaller marshaller, Object value, WritableByteChannel channel) throws JAXBException {
+        marshal(marshaller, value, ByteSinks.of(channel));
+    }
+
+    /**
+     * Fills buffers from the pool and writes them to the channel with gathering writes.
+     */
+    public static void marshal(Marshaller marshaller, Object value, WritableByteChannel channel, ByteBufferPool pool) throws JAXBException {
+        marshal(marshaller, value, ByteSinks.of(channel, pool));
+    }
+
+    /**
+     * Fills buffers from the pool and hands them over to the consumer, which must release them.
+     */
+    public static void marshal(Marshaller marshaller, Object value, ByteBufferPool pool, Consumer<ByteBuffer> consumer) throws JAXBException {
+        marshal(marshaller, value, ByteSinks.of(pool, consumer));
+    }
+
+    /**
+     * Writes the document from the given file position, buffers being written concurrently.
+     *
+     * @return the file position right after the document
+     */
+    public static long marshal(Marshaller marshaller, Object value, AsynchronousFileChannel channel, long position, ByteBufferPool pool) throws JAXBException {
+        AsynchronousFileSink sink = new AsynchronousFileSink(channel, position, pool);
+        marshal(marshaller, value, sink);
+        return sink.position();
+    }
+
+    public static void marshal(Marshaller marshaller, Object value, ByteSink sink) throws JAXBException {
+        Utf8XmlStreamWriter writer = new Utf8XmlStreamWriter(sink);
+        marshaller.marshal(value, writer);
+        try {
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Cannot flush XML output.", e);
+        }
+    }
+}
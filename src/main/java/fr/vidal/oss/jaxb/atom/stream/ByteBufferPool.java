@@ -0,0 +1,30 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the buffers filled by pooled {@link ByteSinks}.
+ * Acquired buffers are cleared by the sinks before use and given back once their bytes are written,
+ * unless they are handed over to a consumer, which then becomes responsible for releasing them.
+ */
+public interface ByteBufferPool {
+
+    ByteBuffer acquire();
+
+    void release(ByteBuffer buffer);
+
+    /**
+     * @return how many buffers can be acquired before they are released, sinks never holding more
+     */
+    default int capacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return a thread-safe pool of at most {@code capacity} direct buffers of {@code bufferSize} bytes,
+     * allocated on first use; acquiring blocks while all of them are in use
+     */
+    static ByteBufferPool direct(int bufferSize, int capacity) {
+        return new DirectByteBufferPool(bufferSize, capacity);
+    }
+}
@@ -0,0 +1,22 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the bytes encoded by {@link Utf8XmlStreamWriter}.
+ * The given array is reused by the writer once the call returns.
+ *
+ * @see ByteSinks
+ */
+public interface ByteSink extends Closeable {
+
+    void write(byte[] bytes, int offset, int length) throws IOException;
+
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
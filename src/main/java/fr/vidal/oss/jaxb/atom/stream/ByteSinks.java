@@ -0,0 +1,97 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+public final class ByteSinks {
+
+    public static final int GATHERING_BATCH = 16;
+
+    private ByteSinks() {
+    }
+
+    public static ByteSink of(OutputStream out) {
+        return new ByteSink() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    public static ByteSink of(WritableByteChannel channel) {
+        return new ChannelSink(channel);
+    }
+
+    /**
+     * Stages the output into pooled buffers, written to the channel by batches of up to
+     * {@value #GATHERING_BATCH} buffers (or the pool capacity when lower), with a gathering write
+     * whenever the channel supports it.
+     */
+    public static ByteSink of(WritableByteChannel channel, ByteBufferPool pool) {
+        return new GatheringChannelSink(channel, pool, Math.min(GATHERING_BATCH, pool.capacity()));
+    }
+
+    /**
+     * Writes pooled buffers concurrently from the given file position, flushing waits for all of them.
+     */
+    public static ByteSink of(AsynchronousFileChannel channel, long position, ByteBufferPool pool) {
+        return new AsynchronousFileSink(channel, position, pool);
+    }
+
+    /**
+     * Hands every filled buffer, flipped, over to the consumer, which must release it to the pool once written.
+     */
+    public static ByteSink of(ByteBufferPool pool, Consumer<ByteBuffer> consumer) {
+        return new PooledByteSink(pool) {
+            @Override
+            protected void emit(ByteBuffer buffer) {
+                consumer.accept(buffer);
+            }
+
+            @Override
+            protected void flushEmitted() {
+            }
+        };
+    }
+
+    private static class ChannelSink implements ByteSink {
+
+        private final WritableByteChannel channel;
+        private ByteBuffer wrapper;
+
+        ChannelSink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (wrapper == null || wrapper.array() != bytes) {
+                wrapper = ByteBuffer.wrap(bytes);
+            }
+            wrapper.limit(offset + length).position(offset);
+            while (wrapper.hasRemaining()) {
+                channel.write(wrapper);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+class DirectByteBufferPool implements ByteBufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final BlockingQueue<ByteBuffer> available;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    DirectByteBufferPool(int bufferSize, int capacity) {
+        checkState(bufferSize > 0, "Buffer size must be positive");
+        checkState(capacity > 0, "Pool capacity must be positive");
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+        this.available = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = available.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        int count;
+        while ((count = allocated.get()) < capacity) {
+            if (allocated.compareAndSet(count, count + 1)) {
+                return ByteBuffer.allocateDirect(bufferSize);
+            }
+        }
+        return take();
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        checkState(buffer.isDirect() && buffer.capacity() == bufferSize, "Buffer does not belong to this pool");
+        buffer.clear();
+        checkState(available.offer(buffer), "More buffers released than acquired");
+    }
+
+    private ByteBuffer take() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return available.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
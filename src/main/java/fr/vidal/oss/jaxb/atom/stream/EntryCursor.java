@@ -0,0 +1,196 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.SimpleElement;
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Reads the entries of a {@link FeedReader} one after the other into the same buffers, without building
+ * {@link Entry} instances, their builders and collections.
+ * <p>
+ * Ids and titles are read into reused buffers, exposed through {@link #getIdChars()} and {@link #getTitleChars()},
+ * and timestamps straight into milliseconds, so that scanning them allocates nothing per entry beyond what
+ * the underlying StAX parser does. The other fields, as well as {@link #getId()}, {@link #getTitle()} and the
+ * {@link Date} accessors, are still allocated.
+ * <p>
+ * Accessors report the current entry and are only valid until the next call to {@link #next()}.
+ * An entry to be kept is materialized through {@link #toEntry()}. Entry filters, projections and extension
+ * handlers of the reader options apply as they do to entries read through the reader itself.
+ * Instances are not thread-safe.
+ *
+ * @see FeedReader#cursor()
+ */
+public final class EntryCursor implements EntryFields {
+
+    public static final long NO_DATE = TimestampParser.NO_TIME;
+
+    private final FeedReader reader;
+    private final EntryProjection projection;
+    private final ScannedEntry entry = new ScannedEntry();
+    private boolean positioned;
+
+    EntryCursor(FeedReader reader, EntryProjection projection) {
+        this.reader = reader;
+        this.projection = projection;
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return false once there are no more entries
+     */
+    public boolean next() {
+        positioned = reader.next(entry);
+        return positioned;
+    }
+
+    /**
+     * @return the current entry, built like the reader builds entries
+     */
+    public Entry toEntry() {
+        return current().toBuilder(projection).build();
+    }
+
+    @Override
+    public String getId() {
+        return current().getId();
+    }
+
+    /**
+     * @return the id, in a buffer overwritten by the next entry, or null when missing
+     */
+    public CharSequence getIdChars() {
+        return current().getIdChars();
+    }
+
+    @Override
+    public String getTitle() {
+        return current().getTitle();
+    }
+
+    /**
+     * @return the title, in a buffer overwritten by the next entry, or null when missing
+     */
+    public CharSequence getTitleChars() {
+        return current().getTitleChars();
+    }
+
+    @Override
+    public Date getUpdateDate() {
+        return current().getUpdateDate();
+    }
+
+    /**
+     * @return the update date in milliseconds since the epoch, or {@link #NO_DATE} when missing
+     */
+    public long getUpdateTime() {
+        return current().getUpdateTime();
+    }
+
+    @Override
+    public Date getPublishedDate() {
+        return current().getPublishedDate();
+    }
+
+    /**
+     * @return the publication date in milliseconds since the epoch, or {@link #NO_DATE} when missing
+     */
+    public long getPublishedTime() {
+        return current().getPublishedTime();
+    }
+
+    @Override
+    public int getCategoryCount() {
+        return current().getCategoryCount();
+    }
+
+    @Override
+    public String getCategoryTerm(int index) {
+        return current().getCategoryTerm(index);
+    }
+
+    @Override
+    public String getCategoryScheme(int index) {
+        return current().getCategoryScheme(index);
+    }
+
+    @Override
+    public int getLinkCount() {
+        return current().getLinkCount();
+    }
+
+    @Override
+    public String getLinkHref(int index) {
+        return current().getLinkHref(index);
+    }
+
+    @Override
+    public LinkRel getLinkRel(int index) {
+        return current().getLinkRel(index);
+    }
+
+    public String getLinkType(int index) {
+        return current().getLinkType(index);
+    }
+
+    public String getLinkTitle(int index) {
+        return current().getLinkTitle(index);
+    }
+
+    /**
+     * @return the author name, or null when the entry has no author
+     */
+    public String getAuthorName() {
+        return current().getAuthorName();
+    }
+
+    public String getAuthorEmail() {
+        return current().getAuthorEmail();
+    }
+
+    public TextSource getSummary() {
+        return current().getSummary();
+    }
+
+    public TextSource getContents() {
+        return current().getContents();
+    }
+
+    public int getExtensionElementCount() {
+        return current().getExtensionElementCount();
+    }
+
+    public ExtensionElement getExtensionElement(int index) {
+        return current().getExtensionElement(index);
+    }
+
+    /**
+     * @return the value of the first top-level simple extension element so named, or null when there is none
+     */
+    public String getExtensionValue(String namespaceUri, String localName) {
+        ScannedEntry current = current();
+        for (int i = 0; i < current.getExtensionElementCount(); i++) {
+            ExtensionElement element = current.getExtensionElement(i);
+            if (element instanceof SimpleElement && localName.equals(element.tagName()) && namespaceUri.equals(uri(element.namespace()))) {
+                return ((SimpleElement) element).value();
+            }
+        }
+        return null;
+    }
+
+    private ScannedEntry current() {
+        checkState(positioned, "The cursor is not positioned on an entry");
+        return entry;
+    }
+
+    private static String uri(Namespace namespace) {
+        return namespace == null || namespace.uri() == null ? "" : namespace.uri();
+    }
+}
@@ -0,0 +1,37 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+
+import java.util.Date;
+
+/**
+ * Fields of an entry a {@link FeedReader} filter is evaluated on, before the entry is bound.
+ * Instances are reused from one entry to the next and must not be retained by filters.
+ *
+ * @see FeedReaderOptions.Builder#withEntryFilter(java.util.function.Predicate)
+ */
+public interface EntryFields {
+
+    String getId();
+
+    String getTitle();
+
+    Date getUpdateDate();
+
+    Date getPublishedDate();
+
+    int getCategoryCount();
+
+    String getCategoryTerm(int index);
+
+    String getCategoryScheme(int index);
+
+    int getLinkCount();
+
+    String getLinkHref(int index);
+
+    /**
+     * @return the relation of the link, null when missing or unknown
+     */
+    LinkRel getLinkRel(int index);
+}
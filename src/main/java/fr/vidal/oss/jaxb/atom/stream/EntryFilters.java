@@ -0,0 +1,78 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Entry filters for {@link FeedReaderOptions.Builder#withEntryFilter(Predicate)},
+ * to be combined with {@link Predicate#and(Predicate)} and {@link Predicate#or(Predicate)}.
+ */
+public final class EntryFilters {
+
+    private EntryFilters() {
+    }
+
+    /**
+     * Rejects entries without update date.
+     */
+    public static Predicate<EntryFields> updatedAfter(Date date) {
+        checkState(date != null, "date is mandatory");
+        long time = date.getTime();
+        return fields -> fields.getUpdateDate() != null && fields.getUpdateDate().getTime() > time;
+    }
+
+    public static Predicate<EntryFields> idIn(Collection<String> ids) {
+        Set<String> accepted = new HashSet<>(ids);
+        return fields -> accepted.contains(fields.getId());
+    }
+
+    /**
+     * Accepts entries having at least one category in one of the schemes.
+     */
+    public static Predicate<EntryFields> hasCategoryScheme(String... schemes) {
+        Set<String> accepted = new HashSet<>(Arrays.asList(schemes));
+        return fields -> {
+            for (int i = 0; i < fields.getCategoryCount(); i++) {
+                if (accepted.contains(fields.getCategoryScheme(i))) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * @param scheme the scheme of the category, null matching categories of any scheme
+     */
+    public static Predicate<EntryFields> hasCategory(String scheme, String term) {
+        checkState(term != null, "term is mandatory");
+        return fields -> {
+            for (int i = 0; i < fields.getCategoryCount(); i++) {
+                if (term.equals(fields.getCategoryTerm(i)) && (scheme == null || scheme.equals(fields.getCategoryScheme(i)))) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    public static Predicate<EntryFields> hasLinkRel(LinkRel rel) {
+        return fields -> {
+            for (int i = 0; i < fields.getLinkCount(); i++) {
+                if (Objects.equals(rel, fields.getLinkRel(i))) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
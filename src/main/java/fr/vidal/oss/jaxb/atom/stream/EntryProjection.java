@@ -0,0 +1,114 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+
+import javax.xml.namespace.QName;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Entry fields a {@link FeedReader} binds, the other ones being skipped while parsing
+ * and reported by {@link fr.vidal.oss.jaxb.atom.core.Entry#getUnloadedFields()}.
+ * <p>
+ * Extension elements can be narrowed down to some qualified names, unmapped Atom elements being
+ * named in the Atom namespace. Entries then only hold the extension elements so named.
+ */
+public final class EntryProjection {
+
+    public static final EntryProjection ALL = builder(EnumSet.allOf(EntryField.class)).build();
+
+    private final Set<EntryField> loadedFields;
+    private final Set<EntryField> unloadedFields;
+    private final Set<QName> extensionElementNames;
+    private final Map<String, Set<String>> extensionElementLocalNames = new HashMap<>();
+
+    private EntryProjection(Builder builder) {
+        loadedFields = Collections.unmodifiableSet(EnumSet.copyOf(builder.fields));
+        unloadedFields = Collections.unmodifiableSet(EnumSet.complementOf(builder.fields));
+        extensionElementNames = builder.extensionElementNames.isEmpty() ? null : Collections.unmodifiableSet(builder.extensionElementNames);
+        for (QName name : builder.extensionElementNames) {
+            extensionElementLocalNames.computeIfAbsent(name.getNamespaceURI(), uri -> new HashSet<>()).add(name.getLocalPart());
+        }
+    }
+
+    public static Builder builder(EntryField... fields) {
+        return builder(fields.length == 0 ? EnumSet.noneOf(EntryField.class) : EnumSet.copyOf(Arrays.asList(fields)));
+    }
+
+    private static Builder builder(EnumSet<EntryField> fields) {
+        return new Builder(fields);
+    }
+
+    public Set<EntryField> getLoadedFields() {
+        return loadedFields;
+    }
+
+    public Set<EntryField> getUnloadedFields() {
+        return unloadedFields;
+    }
+
+    /**
+     * @return the names of the extension elements to load, or null when all are loaded along with {@link EntryField#EXTENSION_ELEMENTS}
+     */
+    public Set<QName> getExtensionElementNames() {
+        return extensionElementNames;
+    }
+
+    public boolean includes(EntryField field) {
+        return loadedFields.contains(field);
+    }
+
+    public boolean includesExtensionElement(String namespaceUri, String localName) {
+        if (!loadedFields.contains(EntryField.EXTENSION_ELEMENTS)) {
+            return false;
+        }
+        if (extensionElementNames == null) {
+            return true;
+        }
+        Set<String> localNames = extensionElementLocalNames.get(namespaceUri == null ? "" : namespaceUri);
+        return localNames != null && localNames.contains(localName);
+    }
+
+    boolean isComplete() {
+        return unloadedFields.isEmpty() && extensionElementNames == null;
+    }
+
+    @Override
+    public String toString() {
+        return "EntryProjection{" +
+            "loadedFields=" + loadedFields +
+            ", extensionElementNames=" + extensionElementNames +
+            '}';
+    }
+
+    public static class Builder {
+
+        private final EnumSet<EntryField> fields;
+        private final Set<QName> extensionElementNames = new HashSet<>();
+
+        private Builder(EnumSet<EntryField> fields) {
+            this.fields = fields;
+        }
+
+        /**
+         * Loads the extension elements of the given name, implying {@link EntryField#EXTENSION_ELEMENTS}.
+         */
+        public Builder addExtensionElement(QName name) {
+            checkState(name != null, "name is mandatory");
+            fields.add(EntryField.EXTENSION_ELEMENTS);
+            extensionElementNames.add(new QName(name.getNamespaceURI(), name.getLocalPart()));
+            return this;
+        }
+
+        public EntryProjection build() {
+            return new EntryProjection(this);
+        }
+    }
+}
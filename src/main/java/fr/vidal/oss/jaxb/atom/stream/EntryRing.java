@@ -0,0 +1,128 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Keeps the latest entries appended to an activity feed, in a ring of bounded capacity.
+ * <p>
+ * Any number of threads may append concurrently: each append claims a sequence number, then publishes the entry
+ * in the slot of that sequence unless an append of the next lap got there first. No append blocks another one.
+ * <p>
+ * {@link #snapshot()} and {@link FeedWriter#writeLatestEntries(EntryRing)} read the slots of the last
+ * {@link #capacity()} sequences without writing anything, so they neither block nor slow down appends.
+ * Snapshots hold the entries in reverse order of appending, each id appearing once with its latest appended version.
+ * Entries read without their id are all kept.
+ * Appends still in progress when the snapshot is taken are left out of it.
+ * <p>
+ * Like a seqlock, a snapshot reads the sequence again after reading the slots, and reads them again when appends
+ * made meanwhile may have overwritten some of them. After a few attempts, it keeps the sequences that cannot have
+ * been overwritten: under sustained contention, a snapshot may thus hold fewer than the {@link #capacity()} latest
+ * entries, but never misses a completed append more recent than the oldest entry it holds.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class EntryRing {
+
+    private static final int SNAPSHOT_ATTEMPTS = 8;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private EntryRing(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @return a ring keeping the given number of latest appended entries
+     */
+    public static EntryRing create(int capacity) {
+        checkState(capacity > 0, "Capacity must be positive");
+        return new EntryRing(capacity);
+    }
+
+    public void append(Entry entry) {
+        checkState(entry != null, "Entry is mandatory");
+        long claimed = sequence.getAndIncrement();
+        int index = (int) (claimed % capacity);
+        Slot slot = new Slot(claimed, entry);
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > claimed) {
+                // already overwritten by a later append
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    /**
+     * @return the latest appended entries, most recent first, without duplicate ids
+     */
+    public List<Entry> snapshot() {
+        Slot[] read = new Slot[capacity];
+        long start;
+        long end;
+        int attempts = 0;
+        while (true) {
+            end = sequence.get();
+            start = Math.max(0, end - capacity);
+            for (long claimed = end - 1; claimed >= start; claimed--) {
+                int index = (int) (claimed % capacity);
+                read[index] = slots.get(index);
+            }
+            // appends claimed meanwhile overwrote the slots of the sequences a lap before theirs
+            long overwritten = sequence.get() - capacity;
+            if (overwritten <= start) {
+                break;
+            }
+            if (++attempts == SNAPSHOT_ATTEMPTS) {
+                start = Math.min(end, overwritten);
+                break;
+            }
+        }
+        List<Entry> entries = new ArrayList<>((int) (end - start));
+        Set<String> ids = new HashSet<>();
+        for (long claimed = end - 1; claimed >= start; claimed--) {
+            Slot slot = read[(int) (claimed % capacity)];
+            if (slot != null && slot.sequence == claimed && (!slot.entry.isLoaded(EntryField.ID) || ids.add(slot.entry.getId()))) {
+                entries.add(slot.entry);
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of entries appended since creation, including those no longer kept
+     */
+    public long appendedCount() {
+        return sequence.get();
+    }
+
+    private static final class Slot {
+
+        private final long sequence;
+        private final Entry entry;
+
+        Slot(long sequence, Entry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Keeps entries serialized out of the heap, so that feeds of millions of entries can be served
+ * without holding {@link Entry} instances.
+ * <p>
+ * Each entry is stored as a standalone UTF-8 XML fragment, as {@link FeedWriter} writes it, in fixed-size segments
+ * of direct buffers or of a memory-mapped file. {@link FeedWriter#writeEntry(EntryStore, String)} and
+ * {@link FeedWriter#writeLatestEntries(EntryStore, int)} copy the stored bytes to the output as they are.
+ * <p>
+ * Entries are indexed by id through an open-addressing hash table of primitive slots, and ordered by update date,
+ * entries without update date coming last. Only a few primitive values per entry are held on the heap.
+ * Storage is append-only: replaced and removed entries leave their bytes behind, as reported by {@link #garbageBytes()}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class EntryStore implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte[] FEED_START = ("<feed xmlns=\"" + FeedWriter.ATOM_NAMESPACE + "\">").getBytes(UTF_8);
+    private static final byte[] FEED_END = "</feed>".getBytes(UTF_8);
+
+    private final int segmentShift;
+    private final int segmentMask;
+    private final FileChannel file;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long limit;
+    private long garbage;
+    private FeedWriter encoder;
+
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] idLengths = new int[INITIAL_CAPACITY];
+    private int[] xmlLengths = new int[INITIAL_CAPACITY];
+    private long[] updateTimes = new long[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int size;
+
+    private int[] table = newTable(2 * INITIAL_CAPACITY);
+
+    private int[] recency = new int[INITIAL_CAPACITY];
+    private boolean recencySorted = true;
+
+    private EntryStore(int segmentSize, FileChannel file) {
+        checkState(segmentSize >= 4096 && Integer.bitCount(segmentSize) == 1, "Segment size must be a power of two of at least 4096 bytes");
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.segmentMask = segmentSize - 1;
+        this.file = file;
+    }
+
+    /**
+     * @return a store of direct buffers of {@value #DEFAULT_SEGMENT_SIZE} bytes
+     */
+    public static EntryStore create() {
+        return create(DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static EntryStore create(int segmentSize) {
+        return new EntryStore(segmentSize, null);
+    }
+
+    /**
+     * Stores entries in a new file mapped in memory, deleted when the store is closed.
+     * The file only backs the store and cannot be opened again.
+     */
+    public static EntryStore open(Path file) throws IOException {
+        return open(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static EntryStore open(Path file, int segmentSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE, DELETE_ON_CLOSE);
+        try {
+            return new EntryStore(segmentSize, channel);
+        } catch (IllegalStateException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes of the stored fragments, garbage included
+     */
+    public long storedBytes() {
+        return limit;
+    }
+
+    /**
+     * @return the number of stored bytes of replaced and removed entries
+     */
+    public long garbageBytes() {
+        return garbage;
+    }
+
+    /**
+     * Stores the entry, replacing the entry stored under the same id.
+     */
+    public void put(Entry entry) {
+        checkState(entry != null, "Entry is mandatory");
+        String id = entry.getId();
+        checkState(id != null, "Entry id is mandatory");
+        byte[] idBytes = id.getBytes(UTF_8);
+        int hash = hash(id);
+        long start = limit;
+        try {
+            append(idBytes, 0, idBytes.length);
+            encoder().writeEntryFragment(entry);
+            encoder.flush();
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            limit = start;
+            encoder = null;
+            throw new IllegalStateException("Cannot store entry " + id, e);
+        }
+        Date updateDate = entry.getUpdateDate();
+        long updateTime = updateDate == null ? Long.MIN_VALUE : updateDate.getTime();
+        int index = find(idBytes, hash);
+        if (index >= 0) {
+            int slot = table[index];
+            garbage += idLengths[slot] + xmlLengths[slot];
+            recencySorted &= updateTimes[slot] == updateTime;
+            store(slot, start, idBytes.length, updateTime, hash);
+            return;
+        }
+        int slot = newSlot();
+        store(slot, start, idBytes.length, updateTime, hash);
+        table[-1 - index] = slot;
+        size++;
+        addToRecency(slot);
+        if (2 * size > table.length) {
+            rehash(2 * table.length);
+        }
+    }
+
+    public boolean contains(String id) {
+        return slot(id) >= 0;
+    }
+
+    /**
+     * @return the entry stored under the id, read back from its fragment, or null when there is none
+     */
+    public Entry get(String id) {
+        int slot = slot(id);
+        if (slot < 0) {
+            return null;
+        }
+        byte[] document = new byte[FEED_START.length + xmlLengths[slot] + FEED_END.length];
+        System.arraycopy(FEED_START, 0, document, 0, FEED_START.length);
+        read(offsets[slot] + idLengths[slot], document, FEED_START.length, xmlLengths[slot]);
+        System.arraycopy(FEED_END, 0, document, document.length - FEED_END.length, FEED_END.length);
+        return FeedReader.create(new ByteArrayInputStream(document)).next();
+    }
+
+    /**
+     * @return the update date of the entry stored under the id, in milliseconds since the epoch,
+     * or {@link Long#MIN_VALUE} when there is no such entry or it has no update date
+     */
+    public long getUpdateTime(String id) {
+        int slot = slot(id);
+        return slot < 0 ? Long.MIN_VALUE : updateTimes[slot];
+    }
+
+    /**
+     * @return whether an entry was stored under the id
+     */
+    public boolean remove(String id) {
+        checkState(id != null, "Entry id is mandatory");
+        int index = find(id.getBytes(UTF_8), hash(id));
+        if (index < 0) {
+            return false;
+        }
+        int slot = table[index];
+        deleteFromTable(index);
+        garbage += idLengths[slot] + xmlLengths[slot];
+        offsets[slot] = -1;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        recencySorted = false;
+        return true;
+    }
+
+    /**
+     * Releases the segments, deleting the mapped file if any.
+     */
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * @return the slot of the entry stored under the id, or -1 when there is none
+     */
+    int slot(String id) {
+        checkState(id != null, "Entry id is mandatory");
+        int index = find(id.getBytes(UTF_8), hash(id));
+        return index < 0 ? -1 : table[index];
+    }
+
+    /**
+     * @param rank 0 for the most recently updated entry
+     */
+    int slotByRecency(int rank) {
+        sortRecency();
+        return recency[size - 1 - rank];
+    }
+
+    void copy(int slot, Utf8XmlStreamWriter writer) throws XMLStreamException {
+        long offset = offsets[slot] + idLengths[slot];
+        int remaining = xmlLengths[slot];
+        while (remaining > 0) {
+            ByteBuffer segment = segments.get((int) (offset >>> segmentShift)).duplicate();
+            int position = (int) (offset & segmentMask);
+            int length = Math.min(remaining, segment.capacity() - position);
+            segment.limit(position + length).position(position);
+            writer.writeUtf8(segment);
+            offset += length;
+            remaining -= length;
+        }
+    }
+
+    String xml(int slot) {
+        byte[] xml = new byte[xmlLengths[slot]];
+        read(offsets[slot] + idLengths[slot], xml, 0, xml.length);
+        return new String(xml, UTF_8);
+    }
+
+    private FeedWriter encoder() {
+        if (encoder == null) {
+            encoder = new FeedWriter(new Utf8XmlStreamWriter(this::append));
+        }
+        return encoder;
+    }
+
+    private void store(int slot, long offset, int idLength, long updateTime, int hash) {
+        offsets[slot] = offset;
+        idLengths[slot] = idLength;
+        xmlLengths[slot] = (int) (limit - offset - idLength);
+        updateTimes[slot] = updateTime;
+        hashes[slot] = hash;
+    }
+
+    private int newSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == offsets.length) {
+            int capacity = 2 * slotCount;
+            offsets = Arrays.copyOf(offsets, capacity);
+            idLengths = Arrays.copyOf(idLengths, capacity);
+            xmlLengths = Arrays.copyOf(xmlLengths, capacity);
+            updateTimes = Arrays.copyOf(updateTimes, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        return slotCount++;
+    }
+
+    // id index: linear probing over slots, hashes being kept per slot
+
+    private static int hash(String id) {
+        int hash = id.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int[] newTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * @return the table index of the id, or -1 minus the index where it is to be inserted
+     */
+    private int find(byte[] id, int hash) {
+        int mask = table.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int slot = table[index];
+            if (slot == EMPTY) {
+                return -1 - index;
+            }
+            if (hashes[slot] == hash && idEquals(slot, id)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Shifts back the following entries of the probe sequence, so that no tombstone is needed.
+     */
+    private void deleteFromTable(int index) {
+        int mask = table.length - 1;
+        int hole = index;
+        for (int next = (hole + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hashes[table[next]] & mask;
+            boolean movable = hole <= next ? home <= hole || home > next : home <= hole && home > next;
+            if (movable) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void rehash(int length) {
+        int[] rehashed = newTable(length);
+        int mask = length - 1;
+        for (int slot : table) {
+            if (slot != EMPTY) {
+                int index = hashes[slot] & mask;
+                while (rehashed[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                rehashed[index] = slot;
+            }
+        }
+        table = rehashed;
+    }
+
+    // update date index: slots in ascending update time, sorted again on read once out of order
+
+    private void addToRecency(int slot) {
+        if (!recencySorted) {
+            return;
+        }
+        int count = size - 1;
+        if (count > 0 && updateTimes[recency[count - 1]] > updateTimes[slot]) {
+            recencySorted = false;
+            return;
+        }
+        if (count == recency.length) {
+            recency = Arrays.copyOf(recency, 2 * count);
+        }
+        recency[count] = slot;
+    }
+
+    private void sortRecency() {
+        if (recencySorted) {
+            return;
+        }
+        if (recency.length < size) {
+            recency = new int[offsets.length];
+        }
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] >= 0) {
+                recency[count++] = slot;
+            }
+        }
+        mergeSort(recency, new int[count], 0, count, updateTimes);
+        recencySorted = true;
+    }
+
+    private static void mergeSort(int[] slots, int[] buffer, int from, int to, long[] keys) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(slots, buffer, from, middle, keys);
+        mergeSort(slots, buffer, middle, to, keys);
+        if (keys[slots[middle - 1]] <= keys[slots[middle]]) {
+            return;
+        }
+        System.arraycopy(slots, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || left < middle && keys[buffer[left]] <= keys[buffer[right]]) {
+                slots[i] = buffer[left++];
+            } else {
+                slots[i] = buffer[right++];
+            }
+        }
+    }
+
+    // segments
+
+    private void append(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer segment = segment((int) (limit >>> segmentShift)).duplicate();
+            segment.position((int) (limit & segmentMask));
+            int count = Math.min(length, segment.remaining());
+            segment.put(bytes, offset, count);
+            limit += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void read(long offset, byte[] bytes, int start, int length) {
+        int end = start + length;
+        while (start < end) {
+            ByteBuffer segment = segments.get((int) (offset >>> segmentShift)).duplicate();
+            segment.position((int) (offset & segmentMask));
+            int count = Math.min(end - start, segment.remaining());
+            segment.get(bytes, start, count);
+            offset += count;
+            start += count;
+        }
+    }
+
+    private boolean idEquals(int slot, byte[] id) {
+        if (idLengths[slot] != id.length) {
+            return false;
+        }
+        long offset = offsets[slot];
+        for (byte b : id) {
+            if (segments.get((int) (offset >>> segmentShift)).get((int) (offset & segmentMask)) != b) {
+                return false;
+            }
+            offset++;
+        }
+        return true;
+    }
+
+    private ByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            int size = segmentMask + 1;
+            segments.add(file == null
+                ? ByteBuffer.allocateDirect(size)
+                : file.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * size, size));
+        }
+        return segments.get(index);
+    }
+}
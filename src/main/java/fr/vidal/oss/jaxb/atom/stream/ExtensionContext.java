@@ -0,0 +1,28 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+/**
+ * Position of the extension element an {@link ExtensionHandler} is called for.
+ * Instances are reused from one call to the next and must not be retained by handlers.
+ */
+public interface ExtensionContext {
+
+    /**
+     * @return whether the element belongs to the feed header rather than to an entry
+     */
+    boolean isHeader();
+
+    /**
+     * @return the position of the current entry in the feed, starting at 0, or -1 in the header
+     */
+    int getEntryIndex();
+
+    /**
+     * @return the id of the current entry, or null when it follows the element or is missing
+     */
+    String getEntryId();
+
+    /**
+     * @return the depth of the element, top-level extension elements having a depth of 1
+     */
+    int getDepth();
+}
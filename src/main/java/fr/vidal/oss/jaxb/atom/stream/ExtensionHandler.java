@@ -0,0 +1,39 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+/**
+ * Callbacks a {@link FeedReader} invokes as it parses extension elements, so that their values can be
+ * processed without building {@link fr.vidal.oss.jaxb.atom.core.ExtensionElement} trees.
+ * <p>
+ * For each top-level extension element, {@link #keepsElement} tells whether the element is to be bound as usual.
+ * Elements that are not kept are reported through the other callbacks, nested elements included, and are left out
+ * of the read headers and entries. Kept elements are not reported.
+ * Namespace URIs are empty for elements and attributes without namespace.
+ *
+ * @see FeedReaderOptions.Builder#withExtensionHandler(ExtensionHandler)
+ */
+public interface ExtensionHandler {
+
+    /**
+     * @return whether the top-level element is to be bound instead of being reported, false by default
+     */
+    default boolean keepsElement(ExtensionContext context, String namespaceUri, String localName) {
+        return false;
+    }
+
+    void startElement(ExtensionContext context, String namespaceUri, String localName);
+
+    /**
+     * Called for each attribute of the element just started, namespace declarations excepted.
+     */
+    default void attribute(ExtensionContext context, String namespaceUri, String localName, String value) {
+    }
+
+    /**
+     * Called for each chunk of character data of the current element. The characters are only valid during the call.
+     */
+    default void text(ExtensionContext context, char[] characters, int start, int length) {
+    }
+
+    default void endElement(ExtensionContext context, String namespaceUri, String localName) {
+    }
+}
@@ -0,0 +1,391 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Streams a feed from a {@link FeedReader} to a {@link FeedWriter}, transforming it on the way.
+ * <p>
+ * Entries go through the stages one at a time, in the order the stages were added, and are written
+ * as soon as they come out: memory use is bounded by the largest entry rather than by the feed, and output
+ * starts while input is still being read. A stage drops an entry by returning null.
+ * Consecutive link, category and extension element stages share a single copy of the entry,
+ * entries they leave unchanged not being copied at all.
+ * <p>
+ * Instances are immutable and can run concurrently on distinct readers and writers.
+ */
+public final class FeedPipeline {
+
+    private final List<UnaryOperator<Entry>> stages;
+    private final List<UnaryOperator<Feed>> headerStages;
+
+    private FeedPipeline(Builder builder) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(builder.stages));
+        this.headerStages = Collections.unmodifiableList(new ArrayList<>(builder.headerStages));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Writes the transformed header and entries of the reader, then ends the feed.
+     * Neither the reader nor the writer is closed.
+     *
+     * @return the number of entries written
+     */
+    public long run(FeedReader reader, FeedWriter writer) throws XMLStreamException {
+        writer.startFeed(transformHeader(reader.header()));
+        long written = 0;
+        while (reader.hasNext()) {
+            Entry entry = transform(reader.next());
+            if (entry != null) {
+                writer.writeEntry(entry);
+                written++;
+            }
+        }
+        writer.endFeed();
+        return written;
+    }
+
+    /**
+     * Same as {@link #run(FeedReader, FeedWriter)}, closing both streams.
+     */
+    public long run(InputStream in, OutputStream out) throws XMLStreamException, IOException {
+        try (FeedReader reader = FeedReader.create(in); FeedWriter writer = FeedWriter.create(out)) {
+            return run(reader, writer);
+        }
+    }
+
+    /**
+     * @return the entry coming out of the stages, or null when one of them dropped it
+     */
+    public Entry transform(Entry entry) {
+        Entry current = entry;
+        for (int i = 0; i < stages.size() && current != null; i++) {
+            current = stages.get(i).apply(current);
+        }
+        return current;
+    }
+
+    public Feed transformHeader(Feed header) {
+        Feed current = header;
+        for (UnaryOperator<Feed> stage : headerStages) {
+            current = stage.apply(current);
+            checkState(current != null, "Header transforms cannot drop the header");
+        }
+        return current;
+    }
+
+    /**
+     * Copies the loaded fields of the entry, fields left unloaded by a projection staying unloaded.
+     */
+    private static Entry copy(Entry entry, Collection<Link> links, Collection<Category> categories,
+                              Collection<ExtensionElement> extensionElements) {
+        Entry.Builder builder = Entry.builder().withUnloadedFields(entry.getUnloadedFields());
+        if (entry.isLoaded(EntryField.TITLE)) {
+            builder.withTitle(entry.getTitle());
+        }
+        if (entry.isLoaded(EntryField.ID)) {
+            builder.withId(entry.getId());
+        }
+        if (entry.isLoaded(EntryField.PUBLISHED_DATE)) {
+            builder.withPublishedDate(entry.getPublishedDate());
+        }
+        if (entry.isLoaded(EntryField.UPDATE_DATE)) {
+            builder.withUpdateDate(entry.getUpdateDate());
+        }
+        if (entry.isLoaded(EntryField.AUTHOR)) {
+            builder.withAuthor(entry.getAuthor());
+        }
+        if (entry.isLoaded(EntryField.SUMMARY)) {
+            builder.withSummary(entry.getSummary());
+        }
+        if (entry.isLoaded(EntryField.CONTENTS)) {
+            builder.withContents(entry.getContents());
+        }
+        links.forEach(builder::addLink);
+        categories.forEach(builder::addCategory);
+        if (entry.isLoaded(EntryField.CONTRIBUTORS)) {
+            entry.getContributors().forEach(builder::addContributor);
+        }
+        extensionElements.forEach(builder::addExtensionElement);
+        if (entry.isLoaded(EntryField.ADDITIONAL_ATTRIBUTES)) {
+            for (Map.Entry<QName, String> attribute : entry.getAdditionalAttributes().entrySet()) {
+                QName name = attribute.getKey();
+                builder.addAttribute(Attribute.builder(name.getLocalPart(), attribute.getValue())
+                    .withNamespace(Namespace.builder(name.getNamespaceURI()).withPrefix(name.getPrefix()).build())
+                    .build());
+            }
+        }
+        return builder.build();
+    }
+
+    private static Feed rewriteLinks(Feed header, UnaryOperator<Link> rewrite) {
+        Feed.Builder builder = Feed.builder()
+            .withTitle(header.getTitle())
+            .withSubtitle(header.getSubtitle())
+            .withId(header.getId())
+            .withAuthor(header.getAuthor())
+            .withUpdateDate(header.getUpdateDate());
+        for (Link link : header.getLinks()) {
+            Link rewritten = rewrite.apply(link);
+            if (rewritten != null) {
+                builder.addLink(rewritten);
+            }
+        }
+        header.getContributors().forEach(builder::addContributor);
+        header.getExtensionElements().forEach(builder::addExtensionElement);
+        return builder.build();
+    }
+
+    public static class Builder {
+
+        private final List<UnaryOperator<Entry>> stages = new ArrayList<>();
+        private final List<UnaryOperator<Feed>> headerStages = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder filter(Predicate<? super Entry> filter) {
+            checkState(filter != null, "filter is mandatory");
+            stages.add(entry -> filter.test(entry) ? entry : null);
+            return this;
+        }
+
+        /**
+         * Adds a stage free to return another entry, or null to drop it.
+         */
+        public Builder map(UnaryOperator<Entry> stage) {
+            checkState(stage != null, "stage is mandatory");
+            stages.add(stage);
+            return this;
+        }
+
+        /**
+         * Rewrites the links of the feed header and of its entries, links mapped to null being removed.
+         */
+        public Builder rewriteLinks(UnaryOperator<Link> rewrite) {
+            checkState(rewrite != null, "rewrite is mandatory");
+            headerStages.add(header -> FeedPipeline.rewriteLinks(header, rewrite));
+            return rewrite(lastRewrite().withLinks(rewrite));
+        }
+
+        /**
+         * Maps entry categories, categories mapped to null being removed.
+         */
+        public Builder mapCategories(UnaryOperator<Category> mapping) {
+            checkState(mapping != null, "mapping is mandatory");
+            return rewrite(lastRewrite().withCategories(mapping));
+        }
+
+        /**
+         * Removes the extension elements of entries matching the predicate.
+         */
+        public Builder stripExtensionElements(Predicate<? super ExtensionElement> predicate) {
+            checkState(predicate != null, "predicate is mandatory");
+            EntryRewrite last = lastRewrite();
+            if (last.hasAdditions()) {
+                stages.add(EntryRewrite.IDENTITY.withStrip(predicate));
+                return this;
+            }
+            return rewrite(last.withStrip(predicate));
+        }
+
+        public Builder stripExtensionNamespace(String uri) {
+            checkState(uri != null, "uri is mandatory");
+            return stripExtensionElements(element -> element.namespace() != null && uri.equals(element.namespace().uri()));
+        }
+
+        /**
+         * Appends the element computed for each entry, if not null. The function is given the entry as it was
+         * before the link, category and extension stages added since the last other stage.
+         */
+        public Builder addExtensionElement(Function<? super Entry, ? extends ExtensionElement> element) {
+            checkState(element != null, "element is mandatory");
+            return rewrite(lastRewrite().withAddition(element));
+        }
+
+        /**
+         * Transforms the feed header, after the link rewrites added before.
+         */
+        public Builder transformHeader(UnaryOperator<Feed> transform) {
+            checkState(transform != null, "transform is mandatory");
+            headerStages.add(transform);
+            return this;
+        }
+
+        public FeedPipeline build() {
+            return new FeedPipeline(this);
+        }
+
+        private EntryRewrite lastRewrite() {
+            return endsWithRewrite() ? (EntryRewrite) stages.get(stages.size() - 1) : EntryRewrite.IDENTITY;
+        }
+
+        /**
+         * Replaces the last stage when it is a rewrite, so that consecutive rewrites share a copy.
+         */
+        private Builder rewrite(EntryRewrite rewrite) {
+            if (endsWithRewrite()) {
+                stages.set(stages.size() - 1, rewrite);
+            } else {
+                stages.add(rewrite);
+            }
+            return this;
+        }
+
+        private boolean endsWithRewrite() {
+            return !stages.isEmpty() && stages.get(stages.size() - 1) instanceof EntryRewrite;
+        }
+    }
+
+    /**
+     * Link, category and extension element changes, applied in a single copy of the entry.
+     * Fields left unloaded by a projection stay so, extension elements only being added to entries that loaded theirs.
+     */
+    private static final class EntryRewrite implements UnaryOperator<Entry> {
+
+        static final EntryRewrite IDENTITY = new EntryRewrite(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+        private final List<UnaryOperator<Link>> linkRewrites;
+        private final List<UnaryOperator<Category>> categoryMappings;
+        private final List<Predicate<? super ExtensionElement>> strips;
+        private final List<Function<? super Entry, ? extends ExtensionElement>> additions;
+
+        private EntryRewrite(List<UnaryOperator<Link>> linkRewrites, List<UnaryOperator<Category>> categoryMappings,
+                             List<Predicate<? super ExtensionElement>> strips,
+                             List<Function<? super Entry, ? extends ExtensionElement>> additions) {
+            this.linkRewrites = linkRewrites;
+            this.categoryMappings = categoryMappings;
+            this.strips = strips;
+            this.additions = additions;
+        }
+
+        EntryRewrite withLinks(UnaryOperator<Link> rewrite) {
+            return new EntryRewrite(append(linkRewrites, rewrite), categoryMappings, strips, additions);
+        }
+
+        EntryRewrite withCategories(UnaryOperator<Category> mapping) {
+            return new EntryRewrite(linkRewrites, append(categoryMappings, mapping), strips, additions);
+        }
+
+        EntryRewrite withStrip(Predicate<? super ExtensionElement> strip) {
+            return new EntryRewrite(linkRewrites, categoryMappings, append(strips, strip), additions);
+        }
+
+        EntryRewrite withAddition(Function<? super Entry, ? extends ExtensionElement> addition) {
+            return new EntryRewrite(linkRewrites, categoryMappings, strips, append(additions, addition));
+        }
+
+        boolean hasAdditions() {
+            return !additions.isEmpty();
+        }
+
+        @Override
+        public Entry apply(Entry entry) {
+            Collection<Link> links = entry.isLoaded(EntryField.LINKS) ? entry.getLinks() : Collections.emptyList();
+            Collection<Category> categories = entry.isLoaded(EntryField.CATEGORIES) ? entry.getCategories() : Collections.emptyList();
+            boolean extensionsLoaded = entry.isLoaded(EntryField.EXTENSION_ELEMENTS);
+            checkState(extensionsLoaded || additions.isEmpty(), "Cannot add extension elements to entry %s, its extension elements were not loaded",
+                entry.isLoaded(EntryField.ID) ? entry.getId() : null);
+            Collection<ExtensionElement> extensionElements = extensionsLoaded ? entry.getExtensionElements() : Collections.emptyList();
+            List<Link> rewrittenLinks = map(links, linkRewrites);
+            List<Category> mappedCategories = map(categories, categoryMappings);
+            List<ExtensionElement> keptElements = strip(extensionElements);
+            List<ExtensionElement> addedElements = new ArrayList<>(additions.size());
+            for (Function<? super Entry, ? extends ExtensionElement> addition : additions) {
+                ExtensionElement element = addition.apply(entry);
+                if (element != null) {
+                    addedElements.add(element);
+                }
+            }
+            if (rewrittenLinks == null && mappedCategories == null && keptElements == null && addedElements.isEmpty()) {
+                return entry;
+            }
+            List<ExtensionElement> elements = new ArrayList<>(keptElements == null ? extensionElements : keptElements);
+            elements.addAll(addedElements);
+            return copy(entry,
+                rewrittenLinks == null ? links : rewrittenLinks,
+                mappedCategories == null ? categories : mappedCategories,
+                elements);
+        }
+
+        /**
+         * @return the mapped values, or null when every value mapped to itself
+         */
+        private static <T> List<T> map(Collection<T> values, List<UnaryOperator<T>> mappings) {
+            if (mappings.isEmpty()) {
+                return null;
+            }
+            List<T> mapped = new ArrayList<>(values.size());
+            boolean changed = false;
+            for (T value : values) {
+                T current = value;
+                for (int i = 0; i < mappings.size() && current != null; i++) {
+                    current = mappings.get(i).apply(current);
+                }
+                changed |= current != value;
+                if (current != null) {
+                    mapped.add(current);
+                }
+            }
+            return changed ? mapped : null;
+        }
+
+        /**
+         * @return the kept elements, or null when none was stripped
+         */
+        private List<ExtensionElement> strip(Collection<ExtensionElement> elements) {
+            if (strips.isEmpty()) {
+                return null;
+            }
+            List<ExtensionElement> kept = new ArrayList<>(elements.size());
+            for (ExtensionElement element : elements) {
+                if (!isStripped(element)) {
+                    kept.add(element);
+                }
+            }
+            return kept.size() == elements.size() ? null : kept;
+        }
+
+        private boolean isStripped(ExtensionElement element) {
+            for (Predicate<? super ExtensionElement> strip : strips) {
+                if (strip.test(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static <T> List<T> append(List<T> values, T value) {
+            List<T> appended = new ArrayList<>(values.size() + 1);
+            appended.addAll(values);
+            appended.add(value);
+            return Collections.unmodifiableList(appended);
+        }
+    }
+}
@@ -0,0 +1,1047 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.DateAdapter;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+import fr.vidal.oss.jaxb.atom.core.TopEntries;
+import fr.vidal.oss.jaxb.atom.core.XmlFactories;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static fr.vidal.oss.jaxb.atom.stream.FeedWriter.ATOM_NAMESPACE;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Reads an Atom feed from an {@link XMLStreamReader}, one entry at a time, so that only
+ * the current entry is held in memory.
+ * <p>
+ * Entries are mapped the way the JAXB binding maps them: unmapped elements become
+ * {@link ExtensionElement}s, top-level ones carrying every namespace declaration in scope,
+ * and extension elements the model cannot represent are skipped.
+ * Entries are built through {@link Entry.Builder}, so an entry missing a mandatory field
+ * fails with an {@link IllegalStateException}, as do XML errors.
+ * <p>
+ * The header is made of the feed elements preceding the first entry. Feed elements following
+ * entries are skipped. Instances are not thread-safe.
+ * <p>
+ * Content and summary values longer than the {@link FeedReaderOptions#getSpillThreshold() spill threshold}
+ * are moved out of the heap as they are parsed, so that huge values do not need to fit in memory.
+ * They are exposed as {@link Contents#getSource() streamed sources}.
+ * <p>
+ * With an {@link FeedReaderOptions#getEntryFilter() entry filter}, the leading fields of each entry, namely
+ * the title, links, categories, author, contributors, id, published and updated dates preceding any other
+ * element, are scanned into {@link EntryFields} first. The filter is evaluated once another element is reached,
+ * and the rest of a rejected entry is skipped without being bound. Fields following other elements are not
+ * seen by the filter, which suits the element order JAXB and {@link FeedWriter} produce.
+ * <p>
+ * With an {@link FeedReaderOptions#getProjection() entry projection}, elements of fields left out are skipped
+ * without being bound, and entries report them as {@link Entry#getUnloadedFields() unloaded}.
+ * <p>
+ * Extension elements outside the {@link FeedReaderOptions#getParsedExtensionNamespaces() parsed namespaces}
+ * are kept as {@link RawElement} fragments, which {@link FeedWriter} writes back as is.
+ * <p>
+ * With an {@link FeedReaderOptions#getExtensionHandler() extension handler}, extension elements the handler
+ * does not keep are reported to it as they are parsed, without being bound.
+ * <p>
+ * Entries can also be read through an {@link #cursor() entry cursor}, which reuses its buffers from one entry
+ * to the next instead of building an {@link Entry} per entry.
+ * <p>
+ * With an {@link FeedReaderOptions#getEntryLimit() entry limit}, only the first entries in order are returned,
+ * kept in a {@link TopEntries} heap as the whole feed is read. Ordered by update date, entries older than the kept
+ * ones are rejected once their leading fields are scanned, like filtered entries are.
+ */
+public class FeedReader implements Iterator<Entry>, AutoCloseable {
+
+    private static final Namespace XMLNS_DEFAULT = Namespace.builder(XMLConstants.XMLNS_ATTRIBUTE_NS_URI).build();
+    private static final Namespace XMLNS_PREFIXED = Namespace.builder(XMLConstants.XMLNS_ATTRIBUTE_NS_URI)
+        .withPrefix(XMLConstants.XMLNS_ATTRIBUTE)
+        .build();
+
+    private final XMLStreamReader reader;
+    private final Closeable source;
+    private final FeedReaderOptions options;
+    private final SpillStorage spillStorage;
+    private final ScannedEntry scannedEntry = new ScannedEntry();
+    private final Context context = new Context();
+    private RawXmlCapture rawCapture;
+    private final DateFormat dateFormat = (DateFormat) DateAdapter.DATE_FORMAT.clone();
+    private final TimestampParser timestampParser = new TimestampParser(dateFormat);
+    private final StringBuilder text = new StringBuilder();
+    private Map<String, String> feedNamespaces;
+    private Map<String, String> entryNamespaces;
+    private Feed.Builder headerBuilder;
+    private Feed header;
+    private boolean started;
+    private boolean atEntry;
+    private boolean ended;
+    private Entry next;
+    private Predicate<EntryFields> entryFilter;
+    private Iterator<Entry> topEntries;
+
+    public FeedReader(XMLStreamReader reader) {
+        this(reader, FeedReaderOptions.DEFAULT);
+    }
+
+    /**
+     * Values are only spilled in bounded memory when the XML stream reader is not coalescing.
+     */
+    public FeedReader(XMLStreamReader reader, FeedReaderOptions options) {
+        this(reader, options, null);
+    }
+
+    private FeedReader(XMLStreamReader reader, FeedReaderOptions options, Closeable source) {
+        checkState(reader != null, "XML stream reader is mandatory");
+        checkState(options != null, "Options are mandatory");
+        this.reader = reader;
+        this.source = source;
+        this.options = options;
+        this.spillStorage = options.spills() ? options.newSpillStorage() : null;
+        this.entryFilter = options.getEntryFilter();
+    }
+
+    /**
+     * The stream is not closed along with the reader.
+     */
+    public static FeedReader create(InputStream in) {
+        return create(in, FeedReaderOptions.DEFAULT);
+    }
+
+    public static FeedReader create(InputStream in, FeedReaderOptions options) {
+        try {
+            return new FeedReader(XmlFactories.inputFactory().createXMLStreamReader(in), options);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Cannot read feed", e);
+        }
+    }
+
+    /**
+     * Reads the file through memory-mapped windows of {@value MappedFileInputStream#DEFAULT_WINDOW_SIZE} bytes.
+     * The file is closed along with the reader.
+     */
+    public static FeedReader open(Path file) throws IOException {
+        return open(file, MappedFileInputStream.DEFAULT_WINDOW_SIZE);
+    }
+
+    public static FeedReader open(Path file, int windowSize) throws IOException {
+        return open(file, windowSize, FeedReaderOptions.DEFAULT);
+    }
+
+    public static FeedReader open(Path file, FeedReaderOptions options) throws IOException {
+        return open(file, MappedFileInputStream.DEFAULT_WINDOW_SIZE, options);
+    }
+
+    public static FeedReader open(Path file, int windowSize, FeedReaderOptions options) throws IOException {
+        MappedFileInputStream in = MappedFileInputStream.open(file, windowSize);
+        try {
+            return new FeedReader(XmlFactories.inputFactory().createXMLStreamReader(in), options, in);
+        } catch (XMLStreamException e) {
+            in.close();
+            throw new IOException("Cannot read feed from " + file, e);
+        }
+    }
+
+    /**
+     * @return the feed elements preceding the first entry, without entries
+     */
+    public Feed header() {
+        start();
+        if (header == null) {
+            header = headerBuilder.build();
+        }
+        return header;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        start();
+        if (options.getEntryLimit() > 0) {
+            if (topEntries == null) {
+                topEntries = readTopEntries().iterator();
+            }
+            next = topEntries.hasNext() ? topEntries.next() : null;
+        } else {
+            next = readNextEntry();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry entry = next;
+        next = null;
+        return entry;
+    }
+
+    /**
+     * @return the next entry the entry filter accepts, or null once there are no more entries
+     */
+    private Entry readNextEntry() {
+        if (ended) {
+            return null;
+        }
+        try {
+            Entry entry = null;
+            while (entry == null) {
+                if (!atEntry && !nextEntry()) {
+                    ended = true;
+                    return null;
+                }
+                atEntry = false;
+                entry = entryFilter == null ? readEntry() : readFilteredEntry();
+            }
+            return entry;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Cannot read feed entry", e);
+        }
+    }
+
+    /**
+     * Reads all remaining entries, skipping those older than the kept ones when ordered by update date.
+     */
+    private List<Entry> readTopEntries() {
+        TopEntries top = options.newTopEntries();
+        Predicate<EntryFields> filter = options.getEntryFilter();
+        if (options.getEntryOrder() == null) {
+            // filters are only ever given the scanned entry, whose update time is read without allocating a date
+            entryFilter = filter == null
+                ? fields -> top.accepts(scannedEntry.getUpdateTime())
+                : fields -> top.accepts(scannedEntry.getUpdateTime()) && filter.test(fields);
+        }
+        Entry entry;
+        while ((entry = readNextEntry()) != null) {
+            top.offer(entry);
+        }
+        return top.toList();
+    }
+
+    /**
+     * Entries are read through either the cursor or this reader, not both.
+     *
+     * @return a cursor over the remaining entries
+     */
+    public EntryCursor cursor() {
+        checkState(next == null, "An entry has already been read");
+        checkState(options.getEntryLimit() < 0, "Entries cannot be limited when read through a cursor");
+        return new EntryCursor(this, options.getProjection());
+    }
+
+    /**
+     * Reads the next entry the entry filter accepts into the given fields, all of them being scanned.
+     *
+     * @return false once there are no more entries
+     */
+    boolean next(ScannedEntry entry) {
+        start();
+        if (ended) {
+            return false;
+        }
+        try {
+            while (true) {
+                if (!atEntry && !nextEntry()) {
+                    ended = true;
+                    return false;
+                }
+                atEntry = false;
+                if (scanEntry(entry)) {
+                    return true;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Cannot read feed entry", e);
+        }
+    }
+
+    /**
+     * @return the remaining entries, closing the stream closes this reader
+     */
+    public Stream<Entry> entries() {
+        Spliterator<Entry> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::closeUnchecked);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot close feed reader", e);
+        } finally {
+            try {
+                if (spillStorage != null) {
+                    spillStorage.close();
+                }
+            } finally {
+                if (source != null) {
+                    source.close();
+                }
+            }
+        }
+    }
+
+    private void closeUnchecked() {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close feed reader", e);
+        }
+    }
+
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        try {
+            checkState(nextStartElement(), "Empty document");
+            checkState(isAtom("feed"), "Not an Atom feed: %s", reader.getName());
+            feedNamespaces = declarations(new LinkedHashMap<>());
+            headerBuilder = Feed.builder();
+            while (nextChild()) {
+                if (isAtom("entry")) {
+                    atEntry = true;
+                    return;
+                }
+                readHeaderElement();
+            }
+            ended = true;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Cannot read feed header", e);
+        }
+    }
+
+    private void readHeaderElement() throws XMLStreamException {
+        if (ATOM_NAMESPACE.equals(reader.getNamespaceURI())) {
+            switch (reader.getLocalName()) {
+                case "title":
+                    headerBuilder.withTitle(readText());
+                    return;
+                case "subtitle":
+                    headerBuilder.withSubtitle(readText());
+                    return;
+                case "link":
+                    headerBuilder.addLink(readLink());
+                    return;
+                case "id":
+                    headerBuilder.withId(readText());
+                    return;
+                case "author":
+                    headerBuilder.withAuthor(readAuthor());
+                    return;
+                case "contributor":
+                    headerBuilder.addContributor(readContributor());
+                    return;
+                case "updated":
+                    headerBuilder.withUpdateDate(readDate());
+                    return;
+                default:
+            }
+        }
+        ExtensionElement element = readExtension(feedNamespaces);
+        if (element != null) {
+            headerBuilder.addExtensionElement(element);
+        }
+    }
+
+    private boolean nextEntry() throws XMLStreamException {
+        while (nextChild()) {
+            if (isAtom("entry")) {
+                return true;
+            }
+            skipElement();
+        }
+        return false;
+    }
+
+    private Entry readEntry() throws XMLStreamException {
+        entryNamespaces = entryNamespaces();
+        context.startEntry();
+        EntryProjection projection = options.getProjection();
+        Entry.Builder builder = Entry.builder().withUnloadedFields(projection.getUnloadedFields());
+        for (int i = 0; projection.includes(EntryField.ADDITIONAL_ATTRIBUTES) && i < reader.getAttributeCount(); i++) {
+            String uri = reader.getAttributeNamespace(i);
+            builder.addAttribute(Attribute.builder(reader.getAttributeLocalName(i), reader.getAttributeValue(i))
+                .withNamespace(Namespace.builder(uri == null ? "" : uri).withPrefix(prefix(reader.getAttributePrefix(i), "")).build())
+                .build());
+        }
+        while (nextChild()) {
+            readEntryElement(builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the entry, or null when rejected by the entry filter, its subtree being consumed in both cases
+     */
+    private Entry readFilteredEntry() throws XMLStreamException {
+        entryNamespaces = entryNamespaces();
+        context.startEntry();
+        scannedEntry.reset();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String uri = reader.getAttributeNamespace(i);
+            scannedEntry.addAttribute(uri == null ? "" : uri, prefix(reader.getAttributePrefix(i), ""),
+                reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        Entry.Builder builder = null;
+        while (nextChild()) {
+            if (builder == null) {
+                if (scanLeadingField(scannedEntry)) {
+                    continue;
+                }
+                if (!entryFilter.test(scannedEntry)) {
+                    skipElement();
+                    skipRemainingChildren();
+                    return null;
+                }
+                builder = scannedEntry.toBuilder(options.getProjection());
+            }
+            readEntryElement(builder);
+        }
+        if (builder == null) {
+            if (!entryFilter.test(scannedEntry)) {
+                return null;
+            }
+            builder = scannedEntry.toBuilder(options.getProjection());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return whether the current element is a leading field, which has been consumed
+     */
+    private boolean scanLeadingField(ScannedEntry scannedEntry) throws XMLStreamException {
+        if (!ATOM_NAMESPACE.equals(reader.getNamespaceURI())) {
+            return false;
+        }
+        switch (reader.getLocalName()) {
+            case "title":
+                readText(scannedEntry.startTitle());
+                return true;
+            case "link":
+                scannedEntry.addLink(reader.getAttributeValue(null, "href"),
+                    linkRel(reader.getAttributeValue(null, "rel")),
+                    reader.getAttributeValue(null, "type"),
+                    reader.getAttributeValue(null, "title"));
+                skipElement();
+                return true;
+            case "category":
+                scannedEntry.addCategory(reader.getAttributeValue(null, "term"), reader.getAttributeValue(null, "scheme"));
+                skipElement();
+                return true;
+            case "author":
+                String[] author = readPerson();
+                scannedEntry.setAuthor(author[0], author[1]);
+                return true;
+            case "contributor":
+                String[] contributor = readPerson();
+                scannedEntry.addContributor(contributor[0], contributor[1]);
+                return true;
+            case "id":
+                readText(scannedEntry.startId());
+                context.entryIdChars = scannedEntry.getIdChars();
+                return true;
+            case "published":
+                scannedEntry.setPublishedTime(readTime());
+                return true;
+            case "updated":
+                scannedEntry.setUpdateTime(readTime());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return whether the entry filter accepts the entry, its subtree being consumed in both cases
+     */
+    private boolean scanEntry(ScannedEntry entry) throws XMLStreamException {
+        entryNamespaces = entryNamespaces();
+        context.startEntry();
+        entry.reset();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String uri = reader.getAttributeNamespace(i);
+            entry.addAttribute(uri == null ? "" : uri, prefix(reader.getAttributePrefix(i), ""),
+                reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        Predicate<EntryFields> filter = options.getEntryFilter();
+        boolean accepted = filter == null;
+        while (nextChild()) {
+            if (!accepted) {
+                if (scanLeadingField(entry)) {
+                    continue;
+                }
+                if (!filter.test(entry)) {
+                    skipElement();
+                    skipRemainingChildren();
+                    return false;
+                }
+                accepted = true;
+            }
+            scanEntryElement(entry);
+        }
+        return accepted || filter.test(entry);
+    }
+
+    private void scanEntryElement(ScannedEntry entry) throws XMLStreamException {
+        if (!isProjected()) {
+            skipElement();
+            return;
+        }
+        if (isAtom("summary")) {
+            entry.setSummary(reader.getAttributeValue(null, "type"), readValue());
+            return;
+        }
+        if (isAtom("content")) {
+            entry.setContents(reader.getAttributeValue(null, "type"), readValue());
+            return;
+        }
+        if (scanLeadingField(entry)) {
+            return;
+        }
+        ExtensionElement element = readExtension(entryNamespaces);
+        if (element != null) {
+            entry.addExtensionElement(element);
+        }
+    }
+
+    private void readEntryElement(Entry.Builder builder) throws XMLStreamException {
+        if (!isProjected()) {
+            skipElement();
+            return;
+        }
+        if (ATOM_NAMESPACE.equals(reader.getNamespaceURI())) {
+            switch (reader.getLocalName()) {
+                case "title":
+                    builder.withTitle(readText());
+                    return;
+                case "link":
+                    builder.addLink(readLink());
+                    return;
+                case "category":
+                    builder.addCategory(Category.builder(reader.getAttributeValue(null, "term"))
+                        .withScheme(reader.getAttributeValue(null, "scheme"))
+                        .build());
+                    skipElement();
+                    return;
+                case "author":
+                    builder.withAuthor(readAuthor());
+                    return;
+                case "contributor":
+                    builder.addContributor(readContributor());
+                    return;
+                case "id":
+                    context.entryId = readText();
+                    builder.withId(context.entryId);
+                    return;
+                case "published":
+                    builder.withPublishedDate(readDate());
+                    return;
+                case "updated":
+                    builder.withUpdateDate(readDate());
+                    return;
+                case "summary":
+                    String summaryType = reader.getAttributeValue(null, "type");
+                    builder.withSummary(Summary.builder().withType(summaryType).withValueSource(readValue()).build());
+                    return;
+                case "content":
+                    String contentType = reader.getAttributeValue(null, "type");
+                    builder.withContents(Contents.builder()
+                        .withType(contentType == null ? null : ContentType.builder(contentType).build())
+                        .withContentsSource(readValue())
+                        .build());
+                    return;
+                default:
+            }
+        }
+        ExtensionElement element = readExtension(entryNamespaces);
+        if (element != null) {
+            builder.addExtensionElement(element);
+        }
+    }
+
+    private boolean isProjected() {
+        EntryProjection projection = options.getProjection();
+        if (projection.isComplete()) {
+            return true;
+        }
+        String uri = reader.getNamespaceURI();
+        EntryField field = ATOM_NAMESPACE.equals(uri) ? entryField(reader.getLocalName()) : null;
+        return field == null ? projection.includesExtensionElement(uri, reader.getLocalName()) : projection.includes(field);
+    }
+
+    /**
+     * @return the field an Atom element of an entry is bound to, null for unmapped ones
+     */
+    private static EntryField entryField(String localName) {
+        switch (localName) {
+            case "title":
+                return EntryField.TITLE;
+            case "link":
+                return EntryField.LINKS;
+            case "category":
+                return EntryField.CATEGORIES;
+            case "author":
+                return EntryField.AUTHOR;
+            case "contributor":
+                return EntryField.CONTRIBUTORS;
+            case "id":
+                return EntryField.ID;
+            case "published":
+                return EntryField.PUBLISHED_DATE;
+            case "updated":
+                return EntryField.UPDATE_DATE;
+            case "summary":
+                return EntryField.SUMMARY;
+            case "content":
+                return EntryField.CONTENTS;
+            default:
+                return null;
+        }
+    }
+
+    private Link readLink() throws XMLStreamException {
+        Link link = Link.builder(reader.getAttributeValue(null, "href"))
+            .withRel(linkRel(reader.getAttributeValue(null, "rel")))
+            .withType(reader.getAttributeValue(null, "type"))
+            .withTitle(reader.getAttributeValue(null, "title"))
+            .build();
+        skipElement();
+        return link;
+    }
+
+    private static LinkRel linkRel(String rel) {
+        if (rel == null) {
+            return null;
+        }
+        try {
+            return LinkRel.valueOf(rel);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Author readAuthor() throws XMLStreamException {
+        String[] person = readPerson();
+        return Author.builder(person[0]).withEmail(person[1]).build();
+    }
+
+    private Contributor readContributor() throws XMLStreamException {
+        String[] person = readPerson();
+        return Contributor.builder(person[0]).withEmail(person[1]).build();
+    }
+
+    private String[] readPerson() throws XMLStreamException {
+        String[] person = new String[2];
+        while (nextChild()) {
+            if (isAtom("name")) {
+                person[0] = readText();
+            } else if (isAtom("email")) {
+                person[1] = readText();
+            } else {
+                skipElement();
+            }
+        }
+        return person;
+    }
+
+    private Date readDate() throws XMLStreamException {
+        long time = readTime();
+        return time == TimestampParser.NO_TIME ? null : new Date(time);
+    }
+
+    private long readTime() throws XMLStreamException {
+        text.setLength(0);
+        return timestampParser.parse(readText(text));
+    }
+
+    /**
+     * Reads the character data of the current element, ignoring nested elements.
+     */
+    private String readText() throws XMLStreamException {
+        text.setLength(0);
+        return readText(text).toString();
+    }
+
+    /**
+     * Appends the character data of the current element to the given buffer, ignoring nested elements.
+     */
+    private StringBuilder readText(StringBuilder buffer) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                if (depth-- == 0) {
+                    return buffer;
+                }
+            } else if (depth == 0 && isText(event)) {
+                buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    /**
+     * Reads the character data of the current element like {@link #readText()},
+     * spilling it once it exceeds the spill threshold.
+     */
+    private TextSource readValue() throws XMLStreamException {
+        if (spillStorage == null) {
+            return TextSource.of(readText());
+        }
+        int threshold = options.getSpillThreshold();
+        text.setLength(0);
+        boolean spilling = false;
+        int depth = 0;
+        try {
+            while (true) {
+                int event = reader.next();
+                if (event == START_ELEMENT) {
+                    depth++;
+                } else if (event == END_ELEMENT) {
+                    if (depth-- == 0) {
+                        return spilling ? spillStorage.finish() : TextSource.of(text.toString());
+                    }
+                } else if (depth == 0 && isText(event)) {
+                    if (spilling) {
+                        spillStorage.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    } else {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        if (text.length() > threshold) {
+                            spillStorage.append(text);
+                            text.setLength(0);
+                            spilling = true;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot spill text value", e);
+        }
+    }
+
+    /**
+     * Reads a top-level extension element, raw unless its namespace is to be parsed.
+     */
+    private ExtensionElement readExtension(Map<String, String> inScope) throws XMLStreamException {
+        String uri = reader.getNamespaceURI();
+        ExtensionHandler handler = options.getExtensionHandler();
+        if (handler != null) {
+            context.depth = 1;
+            if (!handler.keepsElement(context, uri == null ? "" : uri, reader.getLocalName())) {
+                reportExtension(handler);
+                return null;
+            }
+        }
+        Set<String> parsedNamespaces = options.getParsedExtensionNamespaces();
+        if (parsedNamespaces == null || parsedNamespaces.contains(uri == null ? "" : uri)) {
+            return readExtensionElement(inScope);
+        }
+        if (rawCapture == null) {
+            rawCapture = new RawXmlCapture();
+        }
+        Namespace namespace = uri == null || uri.isEmpty() ? null : Namespace.builder(uri).withPrefix(prefix(reader.getPrefix(), null)).build();
+        String localName = reader.getLocalName();
+        return RawElement.of(namespace, localName, rawCapture.capture(reader));
+    }
+
+    /**
+     * Reports the current element and its subtree to the handler, the reader being left on its end tag.
+     */
+    private void reportExtension(ExtensionHandler handler) throws XMLStreamException {
+        reportStartElement(handler);
+        while (context.depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                context.depth++;
+                reportStartElement(handler);
+            } else if (event == END_ELEMENT) {
+                String uri = reader.getNamespaceURI();
+                handler.endElement(context, uri == null ? "" : uri, reader.getLocalName());
+                context.depth--;
+            } else if (isText(event)) {
+                handler.text(context, reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    private void reportStartElement(ExtensionHandler handler) {
+        String uri = reader.getNamespaceURI();
+        handler.startElement(context, uri == null ? "" : uri, reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeUri = reader.getAttributeNamespace(i);
+            handler.attribute(context, attributeUri == null ? "" : attributeUri, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+    }
+
+    /**
+     * Mirrors {@link fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter}: an element whose only child is text
+     * is simple, any other is structured and its text is dropped. Nested elements are read with an explicit stack,
+     * elements nested deeper than the {@linkplain FeedReaderOptions#getMaxExtensionDepth() maximum depth} being rejected.
+     *
+     * @param inScope the namespaces declared by ancestors, reported on top-level elements only
+     * @return the element, or null when it cannot be represented, its subtree being consumed in both cases
+     */
+    private ExtensionElement readExtensionElement(Map<String, String> inScope) throws XMLStreamException {
+        int maxDepth = options.getMaxExtensionDepth();
+        Deque<ExtensionFrame> frames = new ArrayDeque<>();
+        frames.push(new ExtensionFrame(inScope));
+        while (true) {
+            ExtensionFrame frame = frames.peek();
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                checkState(frames.size() < maxDepth, "Extension element %s exceeds the maximum depth of %s", reader.getLocalName(), maxDepth);
+                frames.push(new ExtensionFrame(null));
+            } else if (isText(event)) {
+                frame.addText(reader.getText());
+            } else if (event == END_ELEMENT) {
+                frames.pop();
+                ExtensionElement element = frame.build();
+                if (frames.isEmpty()) {
+                    return element;
+                }
+                frames.peek().addChild(element);
+            }
+        }
+    }
+
+    private static Attribute namespaceDeclaration(String prefix, String uri) {
+        if (prefix.isEmpty()) {
+            return Attribute.builder(XMLConstants.XMLNS_ATTRIBUTE, uri).withNamespace(XMLNS_DEFAULT).build();
+        }
+        return Attribute.builder(prefix, uri).withNamespace(XMLNS_PREFIXED).build();
+    }
+
+    /**
+     * @return the namespaces in scope on the current entry, shared with the feed when the entry declares none
+     */
+    private Map<String, String> entryNamespaces() {
+        return reader.getNamespaceCount() == 0 ? feedNamespaces : declarations(new LinkedHashMap<>(feedNamespaces));
+    }
+
+    /**
+     * Adds the namespaces declared by the current element, keyed by prefix, the default one being keyed by "".
+     */
+    private Map<String, String> declarations(Map<String, String> declarations) {
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String uri = reader.getNamespaceURI(i);
+            declarations.put(prefix(reader.getNamespacePrefix(i), ""), uri == null ? "" : uri);
+        }
+        return declarations;
+    }
+
+    private static String prefix(String prefix, String none) {
+        return prefix == null || prefix.isEmpty() ? none : prefix;
+    }
+
+    private boolean isAtom(String localName) {
+        return localName.equals(reader.getLocalName()) && ATOM_NAMESPACE.equals(reader.getNamespaceURI());
+    }
+
+    private static boolean isText(int event) {
+        return event == CHARACTERS || event == CDATA || event == SPACE;
+    }
+
+    private boolean nextStartElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == START_ELEMENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the next child of the current element.
+     *
+     * @return false once the end of the current element is reached
+     */
+    private boolean nextChild() throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                return true;
+            }
+            if (event == END_ELEMENT || event == END_DOCUMENT) {
+                return false;
+            }
+        }
+    }
+
+    private void skipRemainingChildren() throws XMLStreamException {
+        while (nextChild()) {
+            skipElement();
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT && depth-- == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Extension element being read, its start tag having been consumed.
+     */
+    private final class ExtensionFrame {
+
+        private final String uri;
+        private final String prefix;
+        private final String localName;
+        private final List<Attribute> attributes;
+        private final List<ExtensionElement> children = new ArrayList<>();
+        private String value;
+        private int childNodes;
+        private boolean representable = true;
+        private boolean previousIsText;
+
+        ExtensionFrame(Map<String, String> inScope) {
+            uri = reader.getNamespaceURI();
+            prefix = prefix(reader.getPrefix(), null);
+            localName = reader.getLocalName();
+            attributes = new ArrayList<>(reader.getAttributeCount() + reader.getNamespaceCount());
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                Attribute.Builder attribute = Attribute.builder(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                String attributeUri = reader.getAttributeNamespace(i);
+                if (attributeUri != null && !attributeUri.isEmpty()) {
+                    attribute.withNamespace(Namespace.builder(attributeUri).withPrefix(prefix(reader.getAttributePrefix(i), null)).build());
+                }
+                attributes.add(attribute.build());
+            }
+            Map<String, String> declarations = inScope == null ? declarations(new LinkedHashMap<>()) : declarations(new LinkedHashMap<>(inScope));
+            declarations.forEach((declaredPrefix, declaredUri) -> attributes.add(namespaceDeclaration(declaredPrefix, declaredUri)));
+        }
+
+        void addChild(ExtensionElement child) {
+            representable &= child != null;
+            children.add(child);
+            childNodes++;
+            previousIsText = false;
+        }
+
+        void addText(String text) {
+            if (previousIsText) {
+                value += text;
+            } else {
+                value = text;
+                childNodes++;
+            }
+            previousIsText = true;
+        }
+
+        ExtensionElement build() {
+            if (!representable) {
+                return null;
+            }
+            Namespace namespace = uri == null || uri.isEmpty() ? null : Namespace.builder(uri).withPrefix(prefix).build();
+            try {
+                if (childNodes == 1 && value != null) {
+                    return ExtensionElements.simpleElement(localName, value)
+                        .withNamespace(namespace)
+                        .addAttributes(attributes)
+                        .build();
+                }
+                return ExtensionElements.structuredElement(localName, children)
+                    .withNamespace(namespace)
+                    .addAttributes(attributes)
+                    .build();
+            } catch (IllegalStateException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Context reported to the extension handler, updated as the feed is read.
+     */
+    private static final class Context implements ExtensionContext {
+
+        private int entryIndex = -1;
+        private String entryId;
+        private CharSequence entryIdChars;
+        private int depth;
+
+        void startEntry() {
+            entryIndex++;
+            entryId = null;
+            entryIdChars = null;
+        }
+
+        @Override
+        public boolean isHeader() {
+            return entryIndex < 0;
+        }
+
+        @Override
+        public int getEntryIndex() {
+            return entryIndex;
+        }
+
+        @Override
+        public String getEntryId() {
+            if (entryId == null && entryIdChars != null) {
+                entryId = entryIdChars.toString();
+            }
+            return entryId;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.TopEntries;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Options of a {@link FeedReader}. Instances are immutable and can be shared between readers.
+ */
+public final class FeedReaderOptions {
+
+    public static final FeedReaderOptions DEFAULT = builder().build();
+
+    private final int spillThreshold;
+    private final Path spillDirectory;
+    private final Predicate<EntryFields> entryFilter;
+    private final EntryProjection projection;
+    private final Set<String> parsedExtensionNamespaces;
+    private final ExtensionHandler extensionHandler;
+    private final int maxExtensionDepth;
+    private final int entryLimit;
+    private final Comparator<? super Entry> entryOrder;
+
+    private FeedReaderOptions(Builder builder) {
+        this.spillThreshold = builder.spillThreshold;
+        this.spillDirectory = builder.spillDirectory;
+        this.entryFilter = builder.entryFilter;
+        this.projection = builder.projection;
+        this.parsedExtensionNamespaces = builder.parsedExtensionNamespaces == null ? null : Collections.unmodifiableSet(new HashSet<>(builder.parsedExtensionNamespaces));
+        this.extensionHandler = builder.extensionHandler;
+        this.maxExtensionDepth = builder.maxExtensionDepth;
+        this.entryLimit = builder.entryLimit;
+        this.entryOrder = builder.entryOrder;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the length, in chars, above which content and summary values are spilled, or -1 when they never are
+     */
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * @return the directory of the temporary file values are spilled to, or null when they are spilled off-heap
+     */
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return the filter entries must match to be read, or null when all entries are
+     */
+    public Predicate<EntryFields> getEntryFilter() {
+        return entryFilter;
+    }
+
+    public EntryProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * @return the namespace URIs of the extension elements to parse, or null when all are parsed
+     */
+    public Set<String> getParsedExtensionNamespaces() {
+        return parsedExtensionNamespaces;
+    }
+
+    /**
+     * @return the handler extension elements are reported to, or null when all are bound
+     */
+    public ExtensionHandler getExtensionHandler() {
+        return extensionHandler;
+    }
+
+    /**
+     * @return the maximum nesting depth of parsed extension elements, top-level elements having a depth of 1
+     */
+    public int getMaxExtensionDepth() {
+        return maxExtensionDepth;
+    }
+
+    /**
+     * @return the number of entries to read, the first ones in {@linkplain #getEntryOrder() order}, or -1 when all are read
+     */
+    public int getEntryLimit() {
+        return entryLimit;
+    }
+
+    /**
+     * @return the order of the entries to read when limited, or null when ordered by update date, most recent first
+     */
+    public Comparator<? super Entry> getEntryOrder() {
+        return entryOrder;
+    }
+
+    boolean spills() {
+        return spillThreshold >= 0;
+    }
+
+    SpillStorage newSpillStorage() {
+        return spillDirectory == null ? new OffHeapSpillStorage() : new FileSpillStorage(spillDirectory);
+    }
+
+    TopEntries newTopEntries() {
+        return entryOrder == null ? TopEntries.latest(entryLimit) : TopEntries.of(entryLimit, entryOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "FeedReaderOptions{" +
+            "spillThreshold=" + spillThreshold +
+            ", spillDirectory=" + spillDirectory +
+            ", entryFilter=" + entryFilter +
+            ", projection=" + projection +
+            ", parsedExtensionNamespaces=" + parsedExtensionNamespaces +
+            ", extensionHandler=" + extensionHandler +
+            ", maxExtensionDepth=" + maxExtensionDepth +
+            ", entryLimit=" + entryLimit +
+            ", entryOrder=" + entryOrder +
+            '}';
+    }
+
+    public static class Builder {
+
+        private int spillThreshold = -1;
+        private Path spillDirectory;
+        private Predicate<EntryFields> entryFilter;
+        private EntryProjection projection = EntryProjection.ALL;
+        private Set<String> parsedExtensionNamespaces;
+        private ExtensionHandler extensionHandler;
+        private int maxExtensionDepth = ExtensionElementAdapter.DEFAULT_MAX_DEPTH;
+        private int entryLimit = -1;
+        private Comparator<? super Entry> entryOrder;
+
+        private Builder() {
+        }
+
+        /**
+         * Moves content and summary values longer than the threshold out of the heap, off-heap by default.
+         * Such values are read back lazily through {@link fr.vidal.oss.jaxb.atom.core.TextSource}.
+         */
+        public Builder withSpillThreshold(int chars) {
+            this.spillThreshold = chars;
+            return this;
+        }
+
+        /**
+         * Spills to a temporary file created in the given directory, deleted when the reader is closed.
+         */
+        public Builder withSpillDirectory(Path directory) {
+            this.spillDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Skips the entries the filter rejects, without binding them.
+         *
+         * @see EntryFilters
+         */
+        public Builder withEntryFilter(Predicate<EntryFields> entryFilter) {
+            this.entryFilter = entryFilter;
+            return this;
+        }
+
+        /**
+         * Only binds the projected fields of entries, the header being read in full.
+         */
+        public Builder withProjection(EntryProjection projection) {
+            this.projection = projection;
+            return this;
+        }
+
+        /**
+         * Keeps the extension elements of any other namespace as {@link fr.vidal.oss.jaxb.atom.core.RawElement}s,
+         * which are not parsed into element trees and are written back as is. Elements without namespace
+         * are parsed when the empty namespace URI is given.
+         */
+        public Builder withParsedExtensionNamespaces(String... namespaceUris) {
+            this.parsedExtensionNamespaces = new HashSet<>(Arrays.asList(namespaceUris));
+            return this;
+        }
+
+        /**
+         * Reports extension elements to the handler as they are parsed, instead of binding them,
+         * unless the handler {@linkplain ExtensionHandler#keepsElement keeps} them.
+         */
+        public Builder withExtensionHandler(ExtensionHandler extensionHandler) {
+            this.extensionHandler = extensionHandler;
+            return this;
+        }
+
+        /**
+         * Rejects, with an {@link IllegalStateException}, parsed extension elements nested deeper than the given depth,
+         * {@value ExtensionElementAdapter#DEFAULT_MAX_DEPTH} by default.
+         */
+        public Builder withMaxExtensionDepth(int maxDepth) {
+            this.maxExtensionDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Only reads the most recently updated entries, most recent first. Entries are read in full before the first one
+         * is returned, keeping no more than the limit, and entries older than the ones kept are skipped without being bound.
+         * The {@linkplain #withProjection projection} must include the update date.
+         *
+         * @see TopEntries
+         */
+        public Builder withLatestEntries(int limit) {
+            this.entryLimit = limit;
+            this.entryOrder = null;
+            return this;
+        }
+
+        /**
+         * Only reads the first entries in the given order. Entries are read in full before the first one
+         * is returned, keeping no more than the limit.
+         *
+         * @see TopEntries
+         */
+        public Builder withTopEntries(int limit, Comparator<? super Entry> order) {
+            this.entryLimit = limit;
+            this.entryOrder = order;
+            return this;
+        }
+
+        public FeedReaderOptions build() {
+            checkState(projection != null, "Projection is mandatory");
+            checkState(spillThreshold >= -1, "Spill threshold cannot be negative");
+            checkState(spillDirectory == null || spillThreshold >= 0, "Spill directory requires a spill threshold");
+            checkState(maxExtensionDepth > 0, "Maximum extension depth must be positive");
+            checkState(entryLimit == -1 || entryLimit > 0, "Entry limit must be positive");
+            checkState(entryLimit == -1 || entryOrder != null || projection.includes(EntryField.UPDATE_DATE),
+                "Latest entries require the update date to be projected");
+            return new FeedReaderOptions(this);
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.DateAdapter;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.NamespaceHoisting;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.SimpleElement;
+import fr.vidal.oss.jaxb.atom.core.StructuredElement;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+import fr.vidal.oss.jaxb.atom.core.XmlFactories;
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+import fr.vidal.oss.jaxb.atom.core.TypedElement;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.WritableByteChannel;
+import java.text.DateFormat;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+
+/**
+ * Writes Atom feeds incrementally to an {@link XMLStreamWriter}, one entry at a time.
+ * <p>
+ * The output follows the element order of the JAXB mapping, dates being formatted
+ * like {@link DateAdapter} does. Namespaces of extension elements and attributes are only declared
+ * where they are not already in scope.
+ * Streamed {@link Contents} and {@link Summary} values are pulled from their source in chunks.
+ * {@link RawElement}s are written as is by a {@link Utf8XmlStreamWriter}, and replayed on other writers.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class FeedWriter implements AutoCloseable {
+
+    public static final String ATOM_NAMESPACE = "http://www.w3.org/2005/Atom";
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final XMLStreamWriter writer;
+    private final NamespaceScopes namespaces = new NamespaceScopes();
+    private final DateFormat dateFormat = (DateFormat) DateAdapter.DATE_FORMAT.clone();
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private State state = State.INITIAL;
+
+    public FeedWriter(XMLStreamWriter writer) {
+        checkState(writer != null, "XML stream writer is mandatory");
+        this.writer = writer;
+    }
+
+    public static FeedWriter create(OutputStream out) {
+        return new FeedWriter(Utf8XmlStreamWriter.create(out));
+    }
+
+    public static FeedWriter create(WritableByteChannel channel) {
+        return new FeedWriter(Utf8XmlStreamWriter.create(channel));
+    }
+
+    public static FeedWriter create(ByteSink sink) {
+        return new FeedWriter(new Utf8XmlStreamWriter(sink));
+    }
+
+    /**
+     * Writes the whole feed, header and entries.
+     */
+    public void write(Feed feed) throws XMLStreamException {
+        write(feed, Collections.emptyList());
+    }
+
+    /**
+     * Writes the whole feed, declaring the namespaces on the feed element.
+     */
+    public void write(Feed feed, Collection<Namespace> hoistedNamespaces) throws XMLStreamException {
+        startFeed(feed, hoistedNamespaces);
+        for (Entry entry : feed.getEntries()) {
+            writeEntry(entry);
+        }
+        endFeed();
+    }
+
+    /**
+     * Starts the document and writes the feed header, that is everything but its entries.
+     */
+    public void startFeed(Feed header) throws XMLStreamException {
+        startFeed(header, Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #startFeed(Feed)}, declaring the namespaces on the feed element so that
+     * extension elements and attributes of the feed do not redeclare them, see {@link NamespaceHoisting}.
+     */
+    public void startFeed(Feed header, Collection<Namespace> hoistedNamespaces) throws XMLStreamException {
+        checkState(state == State.INITIAL, "Feed has already been started");
+        state = State.FEED;
+        writer.writeStartDocument("UTF-8", "1.0");
+        startElement("", "feed", ATOM_NAMESPACE);
+        declareNamespace("", ATOM_NAMESPACE);
+        for (Namespace namespace : hoistedNamespaces) {
+            if (namespace.prefix() != null && !namespace.prefix().isEmpty() && !namespaces.isDeclaredInCurrentScope(namespace.prefix())) {
+                declareNamespace(namespace.prefix(), namespace.uri());
+            }
+        }
+        writeTextElement("title", header.getTitle());
+        writeTextElement("subtitle", header.getSubtitle());
+        writeLinks(header.getLinks());
+        writeTextElement("id", header.getId());
+        writePerson("author", header.getAuthor() == null ? null : header.getAuthor().getName(),
+            header.getAuthor() == null ? null : header.getAuthor().getEmail());
+        writeContributors(header.getContributors());
+        writeDateElement("updated", header.getUpdateDate());
+        writeExtensionElements(header.getExtensionElements());
+    }
+
+    public void writeEntry(Entry entry) throws XMLStreamException {
+        checkState(state == State.FEED, "Entries can only be written between startFeed and endFeed");
+        startElement("", "entry", ATOM_NAMESPACE);
+        writeEntryContent(entry);
+        endElement();
+    }
+
+    /**
+     * Writes the entry stored under the given id as it is stored, without binding it.
+     *
+     * @return false when no entry is stored under the id
+     */
+    public boolean writeEntry(EntryStore store, String id) throws XMLStreamException {
+        checkState(state == State.FEED, "Entries can only be written between startFeed and endFeed");
+        int slot = store.slot(id);
+        if (slot < 0) {
+            return false;
+        }
+        writeStoredEntry(store, slot);
+        return true;
+    }
+
+    /**
+     * Writes the most recently updated entries of the store, most recent first, as they are stored.
+     *
+     * @return the number of entries written
+     */
+    public int writeLatestEntries(EntryStore store, int limit) throws XMLStreamException {
+        checkState(state == State.FEED, "Entries can only be written between startFeed and endFeed");
+        int count = Math.min(limit, store.size());
+        for (int rank = 0; rank < count; rank++) {
+            writeStoredEntry(store, store.slotByRecency(rank));
+        }
+        return count;
+    }
+
+    /**
+     * Writes a {@linkplain EntryRing#snapshot() snapshot} of the ring, most recently appended entry first.
+     *
+     * @return the number of entries written
+     */
+    public int writeLatestEntries(EntryRing ring) throws XMLStreamException {
+        checkState(state == State.FEED, "Entries can only be written between startFeed and endFeed");
+        List<Entry> entries = ring.snapshot();
+        for (Entry entry : entries) {
+            writeEntry(entry);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Writes the entry as a standalone element, declaring the Atom namespace, outside of any feed.
+     */
+    void writeEntryFragment(Entry entry) throws XMLStreamException {
+        checkState(state == State.INITIAL, "Entry fragments cannot be written within a feed");
+        startElement("", "entry", ATOM_NAMESPACE);
+        declareNamespace("", ATOM_NAMESPACE);
+        writeEntryContent(entry);
+        endElement();
+    }
+
+    private void writeStoredEntry(EntryStore store, int slot) throws XMLStreamException {
+        if (writer instanceof Utf8XmlStreamWriter) {
+            store.copy(slot, (Utf8XmlStreamWriter) writer);
+        } else {
+            writeRaw(store.xml(slot));
+        }
+    }
+
+    private void writeEntryContent(Entry entry) throws XMLStreamException {
+        writeAdditionalAttributes(entry.getAdditionalAttributes());
+        writeTextElement("title", entry.getTitle());
+        writeLinks(entry.getLinks());
+        for (Category category : entry.getCategories()) {
+            startElement("", "category", ATOM_NAMESPACE);
+            writeAttribute("term", category.getTerm());
+            writeAttribute("scheme", category.getScheme());
+            endElement();
+        }
+        Author author = entry.getAuthor();
+        writePerson("author", author == null ? null : author.getName(), author == null ? null : author.getEmail());
+        writeContributors(entry.getContributors());
+        writeTextElement("id", entry.getId());
+        writeDateElement("published", entry.getPublishedDate());
+        writeDateElement("updated", entry.getUpdateDate());
+        writeSummary(entry.getSummary());
+        writeContents(entry.getContents());
+        writeExtensionElements(entry.getExtensionElements());
+    }
+
+    /**
+     * Closes the feed element and flushes the underlying writer.
+     */
+    public void endFeed() throws XMLStreamException {
+        checkState(state == State.FEED, "Feed has not been started");
+        state = State.ENDED;
+        endElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    public void flush() throws XMLStreamException {
+        writer.flush();
+    }
+
+    /**
+     * Closes the underlying writer, which does not end a started feed.
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        writer.close();
+    }
+
+    private void writeSummary(Summary summary) throws XMLStreamException {
+        if (summary == null) {
+            return;
+        }
+        startElement("", "summary", ATOM_NAMESPACE);
+        writeAttribute("type", summary.getType());
+        if (summary.isStreamed()) {
+            writeCharacters(summary.getSource());
+        } else {
+            writeCharacters(summary.getValue());
+        }
+        endElement();
+    }
+
+    private void writeContents(Contents contents) throws XMLStreamException {
+        if (contents == null) {
+            return;
+        }
+        startElement("", "content", ATOM_NAMESPACE);
+        writeAttribute("type", contents.getType() == null ? null : contents.getType().getType());
+        if (contents.isStreamed()) {
+            writeCharacters(contents.getSource());
+        } else {
+            writeCharacters(contents.getContents());
+        }
+        endElement();
+    }
+
+    private void writeLinks(Collection<Link> links) throws XMLStreamException {
+        for (Link link : links) {
+            startElement("", "link", ATOM_NAMESPACE);
+            writeAttribute("rel", link.getRel() == null ? null : link.getRel().name());
+            writeAttribute("type", link.getType());
+            writeAttribute("href", link.getHref());
+            writeAttribute("title", link.getTitle());
+            endElement();
+        }
+    }
+
+    private void writeContributors(Collection<Contributor> contributors) throws XMLStreamException {
+        for (Contributor contributor : contributors) {
+            writePerson("contributor", contributor.getName(), contributor.getEmail());
+        }
+    }
+
+    private void writePerson(String elementName, String name, String email) throws XMLStreamException {
+        if (name == null && email == null) {
+            return;
+        }
+        startElement("", elementName, ATOM_NAMESPACE);
+        writeTextElement("name", name);
+        writeTextElement("email", email);
+        endElement();
+    }
+
+    private void writeDateElement(String name, Date date) throws XMLStreamException {
+        if (date != null) {
+            writeTextElement(name, dateFormat.format(date));
+        }
+    }
+
+    private void writeTextElement(String name, String value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        startElement("", name, ATOM_NAMESPACE);
+        writeCharacters(value);
+        endElement();
+    }
+
+    private void writeAdditionalAttributes(Map<QName, String> attributes) throws XMLStreamException {
+        for (Map.Entry<QName, String> attribute : attributes.entrySet()) {
+            QName name = attribute.getKey();
+            writeAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), attribute.getValue());
+        }
+    }
+
+    private void writeExtensionElements(Collection<ExtensionElement> elements) throws XMLStreamException {
+        for (ExtensionElement element : elements) {
+            writeExtensionElement(element);
+        }
+    }
+
+    private void writeExtensionElement(ExtensionElement element) throws XMLStreamException {
+        if (element instanceof RawElement) {
+            writeRaw(((RawElement) element).xml());
+            return;
+        }
+        if (element instanceof TypedElement) {
+            writeExtensionElement(((TypedElement<?>) element).encode());
+            return;
+        }
+        Namespace namespace = element.namespace();
+        String uri = namespace == null || namespace.uri() == null ? "" : namespace.uri();
+        String prefix = uri.isEmpty() || namespace.prefix() == null ? "" : namespace.prefix();
+        Collection<Attribute> attributes;
+        if (element instanceof SimpleElement) {
+            attributes = ((SimpleElement) element).attributes();
+        } else if (element instanceof StructuredElement) {
+            attributes = ((StructuredElement) element).attributes();
+        } else {
+            throw new IllegalArgumentException("Unsupported extension element type: " + element.getClass().getName());
+        }
+        startElement(prefix, element.tagName(), uri);
+        declareNamespace(prefix, uri);
+        for (Attribute attribute : attributes) {
+            if (isNamespaceDeclaration(attribute)) {
+                String declaredPrefix = XMLConstants.XMLNS_ATTRIBUTE.equals(attribute.getName()) ? "" : attribute.getName();
+                if (!namespaces.isDeclaredInCurrentScope(declaredPrefix)) {
+                    declareNamespace(declaredPrefix, attribute.getValue());
+                }
+            }
+        }
+        for (Attribute attribute : attributes) {
+            if (!isNamespaceDeclaration(attribute)) {
+                Namespace attributeNamespace = attribute.getNamespace();
+                if (attributeNamespace == null) {
+                    writeAttribute(attribute.getName(), attribute.getValue());
+                } else {
+                    writeAttribute(attributeNamespace.prefix(), attributeNamespace.uri(), attribute.getName(), attribute.getValue());
+                }
+            }
+        }
+        if (element instanceof SimpleElement) {
+            writeCharacters(((SimpleElement) element).value());
+        } else {
+            writeExtensionElements(((StructuredElement) element).getExtensionElements());
+        }
+        endElement();
+    }
+
+    private void writeRaw(String xml) throws XMLStreamException {
+        if (writer instanceof Utf8XmlStreamWriter) {
+            ((Utf8XmlStreamWriter) writer).writeRaw(xml);
+            return;
+        }
+        XMLStreamReader fragment = XmlFactories.inputFactory().createXMLStreamReader(new StringReader(xml));
+        try {
+            while (fragment.hasNext()) {
+                switch (fragment.next()) {
+                    case XMLStreamReader.START_ELEMENT:
+                        writer.writeStartElement(nonNull(fragment.getPrefix()), fragment.getLocalName(), nonNull(fragment.getNamespaceURI()));
+                        for (int i = 0; i < fragment.getNamespaceCount(); i++) {
+                            String prefix = nonNull(fragment.getNamespacePrefix(i));
+                            if (prefix.isEmpty()) {
+                                writer.writeDefaultNamespace(nonNull(fragment.getNamespaceURI(i)));
+                            } else {
+                                writer.writeNamespace(prefix, nonNull(fragment.getNamespaceURI(i)));
+                            }
+                        }
+                        for (int i = 0; i < fragment.getAttributeCount(); i++) {
+                            writer.writeAttribute(nonNull(fragment.getAttributePrefix(i)), nonNull(fragment.getAttributeNamespace(i)),
+                                fragment.getAttributeLocalName(i), fragment.getAttributeValue(i));
+                        }
+                        break;
+                    case XMLStreamReader.END_ELEMENT:
+                        writer.writeEndElement();
+                        break;
+                    case XMLStreamReader.CHARACTERS:
+                    case XMLStreamReader.SPACE:
+                        writer.writeCharacters(fragment.getTextCharacters(), fragment.getTextStart(), fragment.getTextLength());
+                        break;
+                    case XMLStreamReader.CDATA:
+                        writer.writeCData(fragment.getText());
+                        break;
+                    case XMLStreamReader.COMMENT:
+                        writer.writeComment(fragment.getText());
+                        break;
+                    case XMLStreamReader.PROCESSING_INSTRUCTION:
+                        writer.writeProcessingInstruction(fragment.getPITarget(), fragment.getPIData());
+                        break;
+                    default:
+                }
+            }
+        } finally {
+            fragment.close();
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static boolean isNamespaceDeclaration(Attribute attribute) {
+        Namespace namespace = attribute.getNamespace();
+        return namespace != null && XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespace.uri());
+    }
+
+    private void startElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writer.writeStartElement(prefix, localName, namespaceURI);
+        namespaces.push();
+    }
+
+    private void endElement() throws XMLStreamException {
+        writer.writeEndElement();
+        namespaces.pop();
+    }
+
+    private void declareNamespace(String prefix, String uri) throws XMLStreamException {
+        if (namespaces.isBound(prefix, uri)) {
+            return;
+        }
+        namespaces.bind(prefix, uri);
+        if (prefix.isEmpty()) {
+            writer.writeDefaultNamespace(uri);
+        } else {
+            writer.writeNamespace(prefix, uri);
+        }
+    }
+
+    private void writeAttribute(String name, String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeAttribute(name, value);
+        }
+    }
+
+    private void writeAttribute(String prefix, String uri, String localName, String value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        if (uri == null || uri.isEmpty()) {
+            writer.writeAttribute(localName, value);
+            return;
+        }
+        String attributePrefix = attributePrefix(prefix, uri);
+        declareNamespace(attributePrefix, uri);
+        writer.writeAttribute(attributePrefix, uri, localName, value);
+    }
+
+    /**
+     * Unprefixed attributes are never in a namespace, so namespaced ones always need a prefix,
+     * which is generated when none is given or when the given one is bound to another namespace.
+     */
+    private String attributePrefix(String prefix, String uri) {
+        if (prefix != null && !prefix.isEmpty()
+            && (namespaces.isBound(prefix, uri) || namespaces.getNamespaceURI(prefix) == null)) {
+            return prefix;
+        }
+        String bound = namespaces.getPrefix(uri);
+        if (bound != null && !bound.isEmpty()) {
+            return bound;
+        }
+        int index = 1;
+        while (namespaces.getNamespaceURI("ns" + index) != null) {
+            index++;
+        }
+        return "ns" + index;
+    }
+
+    /**
+     * Pulls the text in chunks, so that only one chunk is held in memory at a time.
+     * A high surrogate ending a chunk is held back until the next one, so that surrogate pairs are written whole.
+     */
+    private void writeCharacters(TextSource source) throws XMLStreamException {
+        try (Reader reader = source.openReader()) {
+            int kept = 0;
+            int count;
+            while ((count = reader.read(chunk, kept, CHUNK_SIZE - kept)) >= 0) {
+                int length = kept + count;
+                kept = length > 0 && Character.isHighSurrogate(chunk[length - 1]) ? 1 : 0;
+                if (length > kept) {
+                    writer.writeCharacters(chunk, 0, length - kept);
+                }
+                if (kept > 0) {
+                    chunk[0] = chunk[length - 1];
+                }
+            }
+            if (kept > 0) {
+                writer.writeCharacters(chunk, 0, kept);
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot read text from " + source, e);
+        }
+    }
+
+    private void writeCharacters(String value) throws XMLStreamException {
+        if (value != null && !value.isEmpty()) {
+            writer.writeCharacters(value);
+        }
+    }
+
+    private enum State {
+        INITIAL, FEED, ENDED
+    }
+}
@@ -0,0 +1,89 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends values, encoded as UTF-16, to a single temporary file created on first use,
+ * each value being read back through its own read-only mapping.
+ * Mappings outlive the file: spilled values stay readable once the storage is closed,
+ * as long as the platform lets mapped files be deleted.
+ */
+final class FileSpillStorage implements SpillStorage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharBuffer chars = buffer.asCharBuffer();
+    private Path file;
+    private FileChannel channel;
+    private long start;
+
+    FileSpillStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void append(char[] value, int offset, int length) throws IOException {
+        if (channel == null) {
+            file = Files.createTempFile(directory, "atom-spill", ".tmp");
+            channel = FileChannel.open(file, READ, WRITE);
+        }
+        while (length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(value, offset, count);
+            offset += count;
+            length -= count;
+            if (!chars.hasRemaining()) {
+                drain();
+            }
+        }
+    }
+
+    @Override
+    public TextSource finish() throws IOException {
+        if (channel == null) {
+            return new SpilledText(CharBuffer.allocate(0).asReadOnlyBuffer());
+        }
+        drain();
+        long end = channel.position();
+        CharBuffer value = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).asCharBuffer();
+        start = end;
+        return new SpilledText(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.limit(chars.position() * 2).position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        chars.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Batches full buffers so that a {@link GatheringByteChannel} writes them with a single call.
+ */
+class GatheringChannelSink extends PooledByteSink {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer[] batch;
+    private int batchSize;
+
+    GatheringChannelSink(WritableByteChannel channel, ByteBufferPool pool, int batchLength) {
+        super(pool);
+        this.channel = channel;
+        this.batch = new ByteBuffer[batchLength];
+    }
+
+    @Override
+    protected void emit(ByteBuffer buffer) throws IOException {
+        batch[batchSize++] = buffer;
+        if (batchSize == batch.length) {
+            flushEmitted();
+        }
+    }
+
+    @Override
+    protected void flushEmitted() throws IOException {
+        try {
+            if (channel instanceof GatheringByteChannel) {
+                GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+                int offset = 0;
+                while (offset < batchSize) {
+                    gatheringChannel.write(batch, offset, batchSize - offset);
+                    while (offset < batchSize && !batch[offset].hasRemaining()) {
+                        offset++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < batchSize; i++) {
+                    while (batch[i].hasRemaining()) {
+                        channel.write(batch[i]);
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < batchSize; i++) {
+                pool.release(batch[i]);
+                batch[i] = null;
+            }
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
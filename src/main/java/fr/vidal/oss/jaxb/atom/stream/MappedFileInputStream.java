@@ -0,0 +1,141 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads a file through read-only memory mappings, so that bytes come straight from the page cache
+ * instead of going through read system calls and intermediate heap buffers.
+ * <p>
+ * A single mapping cannot exceed 2 GB, larger files are mapped one window at a time as reading progresses.
+ * Windows are unmapped once garbage collected.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long mark;
+
+    private MappedFileInputStream(FileChannel channel, int windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    public static MappedFileInputStream open(Path file) throws IOException {
+        return open(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static MappedFileInputStream open(Path file, int windowSize) throws IOException {
+        checkState(windowSize > 0, "Window size must be positive");
+        FileChannel channel = FileChannel.open(file, READ);
+        try {
+            return new MappedFileInputStream(channel, windowSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the offset of the next byte to read in the file
+     */
+    public long position() {
+        return windowStart + window.position();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = Math.max(0, Math.min(count, size - position()));
+        seek(position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - position());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        seek(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean ensureRemaining() throws IOException {
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long next = windowStart + window.limit();
+        if (next >= size) {
+            return false;
+        }
+        map(next);
+        return true;
+    }
+
+    private void seek(long position) throws IOException {
+        if (position >= windowStart && position <= windowStart + window.limit()) {
+            window.position((int) (position - windowStart));
+        } else {
+            map(position);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+}
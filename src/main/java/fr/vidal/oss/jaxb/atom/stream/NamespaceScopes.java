@@ -0,0 +1,133 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Stack of prefix bindings, one scope per open element.
+ * Bindings are kept in flat arrays so that pushing and popping scopes does not allocate.
+ * Prefixes bound in no scope are looked up in the root context, if any, then among the predefined ones.
+ */
+class NamespaceScopes implements NamespaceContext {
+
+    private String[] prefixes = new String[16];
+    private String[] uris = new String[16];
+    private int size;
+    private int[] scopeStarts = new int[16];
+    private int depth;
+    private NamespaceContext root;
+
+    void setRoot(NamespaceContext root) {
+        this.root = root;
+    }
+
+    void push() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth << 1);
+        }
+        scopeStarts[depth++] = size;
+    }
+
+    void pop() {
+        int start = scopeStarts[--depth];
+        Arrays.fill(prefixes, start, size, null);
+        Arrays.fill(uris, start, size, null);
+        size = start;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    void bind(String prefix, String uri) {
+        if (size == prefixes.length) {
+            prefixes = Arrays.copyOf(prefixes, size << 1);
+            uris = Arrays.copyOf(uris, size << 1);
+        }
+        prefixes[size] = normalize(prefix);
+        uris[size] = normalize(uri);
+        size++;
+    }
+
+    boolean isBound(String prefix, String uri) {
+        return normalize(uri).equals(getNamespaceURI(normalize(prefix)));
+    }
+
+    /**
+     * @return whether the given prefix is bound in the innermost scope
+     */
+    boolean isDeclaredInCurrentScope(String prefix) {
+        String normalized = normalize(prefix);
+        int start = depth == 0 ? 0 : scopeStarts[depth - 1];
+        for (int i = size - 1; i >= start; i--) {
+            if (prefixes[i].equals(normalized)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getNamespaceURI(String prefix) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (prefixes[i].equals(prefix)) {
+                return uris[i];
+            }
+        }
+        String uri = root == null ? null : root.getNamespaceURI(prefix);
+        if (uri != null && !uri.isEmpty()) {
+            return uri;
+        }
+        if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        return XMLConstants.DEFAULT_NS_PREFIX.equals(prefix) ? XMLConstants.NULL_NS_URI : null;
+    }
+
+    @Override
+    public String getPrefix(String namespaceURI) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (uris[i].equals(namespaceURI) && isBound(prefixes[i], namespaceURI)) {
+                return prefixes[i];
+            }
+        }
+        String prefix = root == null ? null : root.getPrefix(namespaceURI);
+        if (prefix != null && isBound(prefix, namespaceURI)) {
+            return prefix;
+        }
+        if (isBound(XMLConstants.XML_NS_PREFIX, namespaceURI)) {
+            return XMLConstants.XML_NS_PREFIX;
+        }
+        return isBound(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI) ? XMLConstants.DEFAULT_NS_PREFIX : null;
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(String namespaceURI) {
+        List<String> result = new ArrayList<>();
+        for (int i = size - 1; i >= 0; i--) {
+            addIfBound(result, prefixes[i], namespaceURI);
+        }
+        if (root != null) {
+            for (Iterator<?> rootPrefixes = root.getPrefixes(namespaceURI); rootPrefixes.hasNext(); ) {
+                addIfBound(result, (String) rootPrefixes.next(), namespaceURI);
+            }
+        }
+        addIfBound(result, XMLConstants.XML_NS_PREFIX, namespaceURI);
+        addIfBound(result, XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+        return result.iterator();
+    }
+
+    private void addIfBound(List<String> result, String prefix, String namespaceURI) {
+        if (isBound(prefix, namespaceURI) && !result.contains(prefix)) {
+            result.add(prefix);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value;
+    }
+}
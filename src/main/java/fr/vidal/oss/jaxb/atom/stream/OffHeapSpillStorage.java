@@ -0,0 +1,47 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Spills each value to its own direct buffer, grown by doubling and released by the garbage collector.
+ */
+final class OffHeapSpillStorage implements SpillStorage {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private CharBuffer buffer;
+
+    @Override
+    public void append(char[] chars, int offset, int length) {
+        if (buffer == null) {
+            buffer = allocate(Math.max(INITIAL_CAPACITY, length));
+        } else if (buffer.remaining() < length) {
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + length);
+            CharBuffer grown = allocate((int) Math.min(capacity, Integer.MAX_VALUE / 2));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        buffer.put(chars, offset, length);
+    }
+
+    @Override
+    public TextSource finish() {
+        CharBuffer value = buffer == null ? CharBuffer.allocate(0) : buffer;
+        buffer = null;
+        value.flip();
+        return new SpilledText(value.asReadOnlyBuffer());
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    private static CharBuffer allocate(int chars) {
+        return ByteBuffer.allocateDirect(chars * 2).asCharBuffer();
+    }
+}
@@ -0,0 +1,61 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the encoded bytes in bulk into buffers taken from a {@link ByteBufferPool},
+ * emitting each buffer once it is full or when the sink is flushed.
+ * No buffer is held between a flush and the next write.
+ */
+abstract class PooledByteSink implements ByteSink {
+
+    protected final ByteBufferPool pool;
+    private ByteBuffer current;
+
+    PooledByteSink(ByteBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (current == null) {
+                current = pool.acquire();
+                current.clear();
+            }
+            int count = Math.min(length, current.remaining());
+            current.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (!current.hasRemaining()) {
+                emitCurrent();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (current != null && current.position() > 0) {
+            emitCurrent();
+        }
+        flushEmitted();
+    }
+
+    private void emitCurrent() throws IOException {
+        ByteBuffer buffer = current;
+        current = null;
+        buffer.flip();
+        emit(buffer);
+    }
+
+    /**
+     * Takes ownership of a flipped buffer.
+     */
+    protected abstract void emit(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Completes the output of every emitted buffer.
+     */
+    protected abstract void flushEmitted() throws IOException;
+}
@@ -0,0 +1,200 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Serializes the element a reader is positioned on, subtree included, as a standalone XML fragment.
+ * Namespaces the fragment uses without declaring them are declared on its root element,
+ * so that the fragment keeps its meaning wherever it is written.
+ * Instances are reused from one element to the next and are not thread-safe.
+ */
+final class RawXmlCapture {
+
+    private final StringBuilder xml = new StringBuilder();
+    private final Map<String, String> inheritedNamespaces = new LinkedHashMap<>();
+    private final List<String> declaredPrefixes = new ArrayList<>();
+    private int[] scopes = new int[16];
+
+    /**
+     * Consumes the current element, the reader being left on its end tag.
+     */
+    String capture(XMLStreamReader reader) throws XMLStreamException {
+        xml.setLength(0);
+        inheritedNamespaces.clear();
+        declaredPrefixes.clear();
+        writeStartTag(reader, 0);
+        int declarations = xml.length();
+        boolean startTagOpen = true;
+        int depth = 0;
+        while (depth >= 0) {
+            int event = reader.next();
+            if (event == END_ELEMENT) {
+                if (startTagOpen) {
+                    xml.append("/>");
+                    startTagOpen = false;
+                } else {
+                    xml.append("</");
+                    appendName(reader.getPrefix(), reader.getLocalName());
+                    xml.append('>');
+                }
+                truncate(declaredPrefixes, scopes[depth]);
+                depth--;
+                continue;
+            }
+            if (startTagOpen && isContent(event)) {
+                xml.append('>');
+                startTagOpen = false;
+            }
+            switch (event) {
+                case START_ELEMENT:
+                    writeStartTag(reader, ++depth);
+                    startTagOpen = true;
+                    break;
+                case CHARACTERS:
+                case SPACE:
+                    appendEscaped(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength(), false);
+                    break;
+                case CDATA:
+                    xml.append("<![CDATA[").append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength()).append("]]>");
+                    break;
+                case COMMENT:
+                    xml.append("<!--").append(reader.getText()).append("-->");
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    xml.append("<?").append(reader.getPITarget());
+                    String data = reader.getPIData();
+                    if (data != null && !data.isEmpty()) {
+                        xml.append(' ').append(data);
+                    }
+                    xml.append("?>");
+                    break;
+                default:
+            }
+        }
+        xml.insert(declarations, inheritedDeclarations());
+        return xml.toString();
+    }
+
+    private static boolean isContent(int event) {
+        return event == START_ELEMENT || event == CHARACTERS || event == SPACE || event == CDATA
+            || event == COMMENT || event == PROCESSING_INSTRUCTION;
+    }
+
+    private void writeStartTag(XMLStreamReader reader, int depth) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth] = declaredPrefixes.size();
+        xml.append('<');
+        appendName(reader.getPrefix(), reader.getLocalName());
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = prefix(reader.getNamespacePrefix(i));
+            declaredPrefixes.add(prefix);
+            xml.append(prefix.isEmpty() ? " xmlns" : " xmlns:").append(prefix).append("=\"");
+            appendEscaped(uri(reader.getNamespaceURI(i)));
+            xml.append('"');
+        }
+        use(reader.getPrefix(), reader.getNamespaceURI());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            if (prefix != null && !prefix.isEmpty()) {
+                use(prefix, reader.getAttributeNamespace(i));
+            }
+            xml.append(' ');
+            appendName(prefix, reader.getAttributeLocalName(i));
+            xml.append("=\"");
+            appendEscaped(reader.getAttributeValue(i));
+            xml.append('"');
+        }
+    }
+
+    /**
+     * Records a namespace bound outside of the fragment, unless declared within the fragment.
+     */
+    private void use(String prefix, String uri) {
+        String usedPrefix = prefix(prefix);
+        if (XMLConstants.XML_NS_PREFIX.equals(usedPrefix) || declaredPrefixes.contains(usedPrefix)) {
+            return;
+        }
+        inheritedNamespaces.putIfAbsent(usedPrefix, uri(uri));
+    }
+
+    private String inheritedDeclarations() {
+        StringBuilder declarations = new StringBuilder();
+        inheritedNamespaces.forEach((prefix, uri) -> declarations
+            .append(prefix.isEmpty() ? " xmlns" : " xmlns:").append(prefix)
+            .append("=\"").append(uri.replace("&", "&amp;").replace("\"", "&quot;")).append('"'));
+        return declarations.toString();
+    }
+
+    private void appendName(String prefix, String localName) {
+        if (prefix != null && !prefix.isEmpty()) {
+            xml.append(prefix).append(':');
+        }
+        xml.append(localName);
+    }
+
+    private void appendEscaped(String value) {
+        appendEscaped(value.toCharArray(), 0, value.length(), true);
+    }
+
+    private void appendEscaped(char[] chars, int start, int length, boolean attribute) {
+        for (int i = start; i < start + length; i++) {
+            char c = chars[i];
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '"':
+                    xml.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\t':
+                    xml.append(attribute ? "&#9;" : "\t");
+                    break;
+                case '\n':
+                    xml.append(attribute ? "&#10;" : "\n");
+                    break;
+                case '\r':
+                    xml.append("&#13;");
+                    break;
+                default:
+                    xml.append(c);
+            }
+        }
+    }
+
+    private static void truncate(List<String> list, int size) {
+        while (list.size() > size) {
+            list.remove(list.size() - 1);
+        }
+    }
+
+    private static String prefix(String prefix) {
+        return prefix == null ? "" : prefix;
+    }
+
+    private static String uri(String uri) {
+        return uri == null ? "" : uri;
+    }
+}
@@ -0,0 +1,314 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Author;
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Contributor;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.LinkRel;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Fields of the entry being read, kept as plain values until the entry filter accepts it,
+ * or for the whole entry when read through an {@link EntryCursor}.
+ * Instances are reset and reused for every entry, the id and title being read into reused buffers
+ * and dates as milliseconds, only turned into strings and dates when asked for.
+ */
+final class ScannedEntry implements EntryFields {
+
+    private final List<String> attributes = new ArrayList<>();
+    private final List<String> categories = new ArrayList<>();
+    private final List<String> links = new ArrayList<>();
+    private final List<LinkRel> linkRels = new ArrayList<>();
+    private final List<String> contributors = new ArrayList<>();
+    private final List<ExtensionElement> extensionElements = new ArrayList<>();
+    private final StringBuilder id = new StringBuilder();
+    private final StringBuilder title = new StringBuilder();
+    private boolean hasId;
+    private boolean hasTitle;
+    private String idString;
+    private String titleString;
+    private long updateTime = TimestampParser.NO_TIME;
+    private long publishedTime = TimestampParser.NO_TIME;
+    private boolean hasAuthor;
+    private String authorName;
+    private String authorEmail;
+    private String summaryType;
+    private TextSource summary;
+    private String contentType;
+    private TextSource contents;
+
+    void reset() {
+        attributes.clear();
+        categories.clear();
+        links.clear();
+        linkRels.clear();
+        contributors.clear();
+        extensionElements.clear();
+        id.setLength(0);
+        title.setLength(0);
+        hasId = false;
+        hasTitle = false;
+        idString = null;
+        titleString = null;
+        updateTime = TimestampParser.NO_TIME;
+        publishedTime = TimestampParser.NO_TIME;
+        hasAuthor = false;
+        authorName = null;
+        authorEmail = null;
+        summaryType = null;
+        summary = null;
+        contentType = null;
+        contents = null;
+    }
+
+    void addAttribute(String uri, String prefix, String localName, String value) {
+        attributes.add(uri);
+        attributes.add(prefix);
+        attributes.add(localName);
+        attributes.add(value);
+    }
+
+    /**
+     * @return the buffer to read the id into
+     */
+    StringBuilder startId() {
+        hasId = true;
+        idString = null;
+        id.setLength(0);
+        return id;
+    }
+
+    /**
+     * @return the buffer to read the title into
+     */
+    StringBuilder startTitle() {
+        hasTitle = true;
+        titleString = null;
+        title.setLength(0);
+        return title;
+    }
+
+    void setUpdateTime(long updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    void setPublishedTime(long publishedTime) {
+        this.publishedTime = publishedTime;
+    }
+
+    void addCategory(String term, String scheme) {
+        categories.add(term);
+        categories.add(scheme);
+    }
+
+    void addLink(String href, LinkRel rel, String type, String title) {
+        links.add(href);
+        links.add(type);
+        links.add(title);
+        linkRels.add(rel);
+    }
+
+    void setAuthor(String name, String email) {
+        hasAuthor = true;
+        authorName = name;
+        authorEmail = email;
+    }
+
+    void addContributor(String name, String email) {
+        contributors.add(name);
+        contributors.add(email);
+    }
+
+    void setSummary(String type, TextSource value) {
+        summaryType = type;
+        summary = value;
+    }
+
+    void setContents(String type, TextSource value) {
+        contentType = type;
+        contents = value;
+    }
+
+    void addExtensionElement(ExtensionElement element) {
+        extensionElements.add(element);
+    }
+
+    /**
+     * @return a builder holding the projected scanned fields, in document order
+     */
+    Entry.Builder toBuilder(EntryProjection projection) {
+        Entry.Builder builder = Entry.builder().withUnloadedFields(projection.getUnloadedFields());
+        if (projection.includes(EntryField.ID)) {
+            builder.withId(getId());
+        }
+        if (projection.includes(EntryField.TITLE)) {
+            builder.withTitle(getTitle());
+        }
+        if (projection.includes(EntryField.UPDATE_DATE)) {
+            builder.withUpdateDate(getUpdateDate());
+        }
+        if (projection.includes(EntryField.PUBLISHED_DATE)) {
+            builder.withPublishedDate(getPublishedDate());
+        }
+        for (int i = 0; projection.includes(EntryField.ADDITIONAL_ATTRIBUTES) && i < attributes.size(); i += 4) {
+            builder.addAttribute(Attribute.builder(attributes.get(i + 2), attributes.get(i + 3))
+                .withNamespace(Namespace.builder(attributes.get(i)).withPrefix(attributes.get(i + 1)).build())
+                .build());
+        }
+        for (int i = 0; projection.includes(EntryField.CATEGORIES) && i < categories.size(); i += 2) {
+            builder.addCategory(Category.builder(categories.get(i)).withScheme(categories.get(i + 1)).build());
+        }
+        for (int i = 0; projection.includes(EntryField.LINKS) && i < linkRels.size(); i++) {
+            builder.addLink(Link.builder(links.get(3 * i))
+                .withRel(linkRels.get(i))
+                .withType(links.get(3 * i + 1))
+                .withTitle(links.get(3 * i + 2))
+                .build());
+        }
+        if (hasAuthor && projection.includes(EntryField.AUTHOR)) {
+            builder.withAuthor(Author.builder(authorName).withEmail(authorEmail).build());
+        }
+        for (int i = 0; projection.includes(EntryField.CONTRIBUTORS) && i < contributors.size(); i += 2) {
+            builder.addContributor(Contributor.builder(contributors.get(i)).withEmail(contributors.get(i + 1)).build());
+        }
+        if (summary != null) {
+            builder.withSummary(Summary.builder().withType(summaryType).withValueSource(summary).build());
+        }
+        if (contents != null) {
+            builder.withContents(Contents.builder()
+                .withType(contentType == null ? null : ContentType.builder(contentType).build())
+                .withContentsSource(contents)
+                .build());
+        }
+        for (ExtensionElement element : extensionElements) {
+            builder.addExtensionElement(element);
+        }
+        return builder;
+    }
+
+    @Override
+    public String getId() {
+        if (idString == null && hasId) {
+            idString = id.toString();
+        }
+        return idString;
+    }
+
+    /**
+     * @return the id, in a buffer reused for the next entry, or null when missing
+     */
+    CharSequence getIdChars() {
+        return hasId ? id : null;
+    }
+
+    @Override
+    public String getTitle() {
+        if (titleString == null && hasTitle) {
+            titleString = title.toString();
+        }
+        return titleString;
+    }
+
+    /**
+     * @return the title, in a buffer reused for the next entry, or null when missing
+     */
+    CharSequence getTitleChars() {
+        return hasTitle ? title : null;
+    }
+
+    @Override
+    public Date getUpdateDate() {
+        return date(updateTime);
+    }
+
+    long getUpdateTime() {
+        return updateTime;
+    }
+
+    @Override
+    public Date getPublishedDate() {
+        return date(publishedTime);
+    }
+
+    long getPublishedTime() {
+        return publishedTime;
+    }
+
+    @Override
+    public int getCategoryCount() {
+        return categories.size() / 2;
+    }
+
+    @Override
+    public String getCategoryTerm(int index) {
+        return categories.get(2 * index);
+    }
+
+    @Override
+    public String getCategoryScheme(int index) {
+        return categories.get(2 * index + 1);
+    }
+
+    @Override
+    public int getLinkCount() {
+        return linkRels.size();
+    }
+
+    @Override
+    public String getLinkHref(int index) {
+        return links.get(3 * index);
+    }
+
+    @Override
+    public LinkRel getLinkRel(int index) {
+        return linkRels.get(index);
+    }
+
+    String getLinkType(int index) {
+        return links.get(3 * index + 1);
+    }
+
+    String getLinkTitle(int index) {
+        return links.get(3 * index + 2);
+    }
+
+    String getAuthorName() {
+        return authorName;
+    }
+
+    String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    TextSource getSummary() {
+        return summary;
+    }
+
+    TextSource getContents() {
+        return contents;
+    }
+
+    int getExtensionElementCount() {
+        return extensionElements.size();
+    }
+
+    ExtensionElement getExtensionElement(int index) {
+        return extensionElements.get(index);
+    }
+
+    private static Date date(long time) {
+        return time == TimestampParser.NO_TIME ? null : new Date(time);
+    }
+}
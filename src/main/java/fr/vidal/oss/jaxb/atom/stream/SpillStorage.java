@@ -0,0 +1,30 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage of the text values a {@link FeedReader} keeps out of the heap, one value being written at a time.
+ */
+interface SpillStorage extends Closeable {
+
+    void append(char[] chars, int offset, int length) throws IOException;
+
+    default void append(CharSequence chars) throws IOException {
+        char[] buffer = new char[Math.min(chars.length(), 8192)];
+        for (int start = 0; start < chars.length(); start += buffer.length) {
+            int end = Math.min(start + buffer.length, chars.length());
+            for (int i = start; i < end; i++) {
+                buffer[i - start] = chars.charAt(i);
+            }
+            append(buffer, 0, end - start);
+        }
+    }
+
+    /**
+     * Completes the value being written.
+     */
+    TextSource finish() throws IOException;
+}
@@ -0,0 +1,64 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Text value held in a read-only buffer outside of the heap, either direct or mapped from a file.
+ */
+final class SpilledText implements TextSource {
+
+    private final CharBuffer value;
+
+    SpilledText(CharBuffer value) {
+        this.value = value;
+    }
+
+    @Override
+    public Reader openReader() {
+        CharBuffer buffer = value.duplicate();
+        return new Reader() {
+            @Override
+            public int read(char[] chars, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.get(chars, offset, count);
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @return a view of the value, which is not copied to the heap
+     */
+    @Override
+    public CharBuffer asCharSequence() {
+        return value.duplicate();
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof SpilledText && value.equals(((SpilledText) obj).value);
+    }
+
+    @Override
+    public String toString() {
+        return "TextSource{spilled=" + value.length() + " chars}";
+    }
+}
@@ -0,0 +1,118 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Parses timestamps as {@link fr.vidal.oss.jaxb.atom.core.DateAdapter} does, {@code yyyy-MM-dd'T'HH:mm:ss'Z'}
+ * in the time zone of the date format, straight into milliseconds since the epoch.
+ * <p>
+ * Timestamps of exactly that form, in the Gregorian calendar, are parsed without allocating.
+ * Any other text is left to the date format, which leniently accepts a few more forms.
+ * Instances are not thread-safe.
+ */
+final class TimestampParser {
+
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int LENGTH = "yyyy-MM-ddTHH:mm:ssZ".length();
+    private static final int FIRST_GREGORIAN_YEAR = 1583;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final DateFormat dateFormat;
+    private final TimeZone timeZone;
+
+    TimestampParser(DateFormat dateFormat) {
+        this.dateFormat = dateFormat;
+        this.timeZone = dateFormat.getTimeZone();
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch, or {@link #NO_TIME} when the text is not a timestamp
+     */
+    long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start == LENGTH
+            && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-' && text.charAt(start + 10) == 'T'
+            && text.charAt(start + 13) == ':' && text.charAt(start + 16) == ':' && text.charAt(start + 19) == 'Z') {
+            int year = digits(text, start, 4);
+            int month = digits(text, start + 5, 2);
+            int day = digits(text, start + 8, 2);
+            int hour = digits(text, start + 11, 2);
+            int minute = digits(text, start + 14, 2);
+            int second = digits(text, start + 17, 2);
+            if (year >= FIRST_GREGORIAN_YEAR && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+                && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                long wallTime = epochDay(year, month, day) * MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * 1000L;
+                return utcTime(wallTime);
+            }
+        }
+        try {
+            Date date = dateFormat.parse(text.subSequence(start, end).toString());
+            return date.getTime();
+        } catch (ParseException e) {
+            return NO_TIME;
+        }
+    }
+
+    /**
+     * Mirrors {@link java.util.GregorianCalendar}: wall times skipped by a transition are read with the offset
+     * in force before it, and repeated ones with the offset in force after it.
+     */
+    private long utcTime(long wallTime) {
+        int offset = timeZone.getOffset(wallTime - timeZone.getRawOffset());
+        long time = wallTime - offset;
+        int actualOffset = timeZone.getOffset(time);
+        return actualOffset == offset ? time : wallTime - actualOffset;
+    }
+
+    /**
+     * @return the value of the decimal digits, or -1 when one of the characters is not a digit
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return the number of days since 1970-01-01 of the given proleptic Gregorian date
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
@@ -0,0 +1,534 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static fr.vidal.oss.jaxb.atom.core.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Non-repairing {@link XMLStreamWriter} encoding straight to UTF-8 bytes.
+ * <p>
+ * Characters are escaped through the {@link XmlEscaper} lookup tables while being encoded
+ * into a reusable byte buffer, which is handed over to the {@link ByteSink} whenever it fills up.
+ * Once the writer is warm, writing character data does not allocate.
+ * <p>
+ * The writer can be given to {@link javax.xml.bind.Marshaller#marshal(Object, XMLStreamWriter)}
+ * as well as to {@link FeedWriter}. Instances are not thread-safe.
+ */
+public class Utf8XmlStreamWriter implements XMLStreamWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>".getBytes(US_ASCII);
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ByteSink sink;
+    private final byte[] buffer;
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private final NamespaceScopes namespaces = new NamespaceScopes();
+    private String[] openPrefixes = new String[16];
+    private String[] openLocalNames = new String[16];
+    private int position;
+    private boolean startTagOpen;
+    // the open start tag belongs to an empty element, closed along with it
+    private boolean emptyElement;
+
+    public Utf8XmlStreamWriter(ByteSink sink) {
+        this(sink, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Utf8XmlStreamWriter(ByteSink sink, int bufferSize) {
+        checkState(sink != null, "Sink is mandatory");
+        checkState(bufferSize >= 16, "Buffer size must be at least 16 bytes");
+        this.sink = sink;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public static Utf8XmlStreamWriter create(OutputStream out) {
+        return new Utf8XmlStreamWriter(ByteSinks.of(out));
+    }
+
+    public static Utf8XmlStreamWriter create(WritableByteChannel channel) {
+        return new Utf8XmlStreamWriter(ByteSinks.of(channel));
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        writeRaw(XML_DECLARATION);
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        if (encoding != null && !encoding.equalsIgnoreCase("UTF-8")) {
+            throw new XMLStreamException("Unsupported encoding " + encoding + ", only UTF-8 is written");
+        }
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        writeStartElement(XMLConstants.DEFAULT_NS_PREFIX, localName, null);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        // closing a pending empty element first, so that the prefix is not looked up in its scope
+        closeStartTag();
+        writeStartElement(prefixOf(namespaceURI), localName, namespaceURI);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        closeStartTag();
+        int depth = namespaces.depth();
+        if (depth == openLocalNames.length) {
+            openPrefixes = Arrays.copyOf(openPrefixes, depth << 1);
+            openLocalNames = Arrays.copyOf(openLocalNames, depth << 1);
+        }
+        openPrefixes[depth] = prefix;
+        openLocalNames[depth] = localName;
+        namespaces.push();
+        writeByte('<');
+        writeQualifiedName(prefix, localName);
+        startTagOpen = true;
+    }
+
+    /**
+     * Leaves the start tag open for attributes and namespaces, the element being closed by the next call writing
+     * anything else.
+     */
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        emptyElement = true;
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        writeStartElement(namespaceURI, localName);
+        emptyElement = true;
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writeStartElement(prefix, localName, namespaceURI);
+        emptyElement = true;
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (emptyElement) {
+            closeStartTag();
+        }
+        checkOpenElement();
+        if (startTagOpen) {
+            startTagOpen = false;
+            writeByte('/');
+            writeByte('>');
+        } else {
+            writeByte('<');
+            writeByte('/');
+            int depth = namespaces.depth() - 1;
+            writeQualifiedName(openPrefixes[depth], openLocalNames[depth]);
+            writeByte('>');
+        }
+        popElement();
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        closeStartTag();
+        while (namespaces.depth() > 0) {
+            writeEndElement();
+        }
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        writeAttribute(XMLConstants.DEFAULT_NS_PREFIX, null, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(prefixOf(namespaceURI), namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        checkStartTagOpen();
+        writeByte(' ');
+        writeQualifiedName(prefix, localName);
+        writeByte('=');
+        writeByte('"');
+        writeEscaped(value, XmlEscaper.ATTRIBUTE);
+        writeByte('"');
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || prefix.isEmpty() || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+            writeDefaultNamespace(namespaceURI);
+            return;
+        }
+        checkStartTagOpen();
+        namespaces.bind(prefix, namespaceURI);
+        writeName(" xmlns:");
+        writeName(prefix);
+        writeByte('=');
+        writeByte('"');
+        writeEscaped(namespaceURI, XmlEscaper.ATTRIBUTE);
+        writeByte('"');
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        checkStartTagOpen();
+        namespaces.bind(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+        writeName(" xmlns=\"");
+        writeEscaped(namespaceURI, XmlEscaper.ATTRIBUTE);
+        writeByte('"');
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(text, XmlEscaper.TEXT);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(text, start, len, XmlEscaper.TEXT);
+    }
+
+    /**
+     * Writes character data read from any {@link CharSequence}, escaping it on the fly.
+     */
+    public void writeCharacters(CharSequence text) throws XMLStreamException {
+        closeStartTag();
+        int length = text.length();
+        int offset = 0;
+        while (offset < length) {
+            int end = pieceEnd(text, offset, length);
+            for (int i = offset; i < end; i++) {
+                chunk[i - offset] = text.charAt(i);
+            }
+            writeEscaped(chunk, 0, end - offset, XmlEscaper.TEXT);
+            offset = end;
+        }
+    }
+
+    /**
+     * Writes well-formed markup as is, without escaping nor tracking the namespaces it declares.
+     */
+    public void writeRaw(CharSequence xml) throws XMLStreamException {
+        closeStartTag();
+        int length = xml.length();
+        int offset = 0;
+        while (offset < length) {
+            int end = pieceEnd(xml, offset, length);
+            for (int i = offset; i < end; i++) {
+                chunk[i - offset] = xml.charAt(i);
+            }
+            writeEscaped(chunk, 0, end - offset, XmlEscaper.NONE);
+            offset = end;
+        }
+    }
+
+    /**
+     * Copies the remaining UTF-8 encoded markup as is, like {@link #writeRaw(CharSequence)}.
+     */
+    void writeUtf8(ByteBuffer bytes) throws XMLStreamException {
+        closeStartTag();
+        while (bytes.hasRemaining()) {
+            if (position == buffer.length) {
+                drainBuffer();
+            }
+            int length = Math.min(bytes.remaining(), buffer.length - position);
+            bytes.get(buffer, position, length);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        closeStartTag();
+        writeName("<![CDATA[");
+        writeEscaped(data, XmlEscaper.NONE);
+        writeName("]]>");
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        closeStartTag();
+        writeName("<!--");
+        writeEscaped(data, XmlEscaper.NONE);
+        writeName("-->");
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        writeProcessingInstruction(target, null);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        closeStartTag();
+        writeName("<?");
+        writeName(target);
+        if (data != null) {
+            writeByte(' ');
+            writeEscaped(data, XmlEscaper.NONE);
+        }
+        writeName("?>");
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(dtd, XmlEscaper.NONE);
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        closeStartTag();
+        writeByte('&');
+        writeName(name);
+        writeByte(';');
+    }
+
+    @Override
+    public String getPrefix(String uri) {
+        return namespaces.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) {
+        namespaces.bind(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) {
+        namespaces.bind(XMLConstants.DEFAULT_NS_PREFIX, uri);
+    }
+
+    /**
+     * Sets the context in which prefixes are looked up when no element in scope binds them.
+     */
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        if (namespaces.depth() > 0) {
+            throw new XMLStreamException("The namespace context can only be set outside of any element");
+        }
+        namespaces.setRoot(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return namespaces;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        throw new IllegalArgumentException("Unsupported property " + name);
+    }
+
+    /**
+     * Hands over the buffered bytes to the sink, then flushes it.
+     */
+    @Override
+    public void flush() throws XMLStreamException {
+        closeStartTag();
+        try {
+            drain();
+            sink.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot flush XML output", e);
+        }
+    }
+
+    /**
+     * Flushes the buffered bytes and closes the underlying sink.
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        flush();
+        try {
+            sink.close();
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot close XML output", e);
+        }
+    }
+
+    private String prefixOf(String namespaceURI) throws XMLStreamException {
+        String prefix = namespaces.getPrefix(namespaceURI == null ? "" : namespaceURI);
+        if (prefix == null) {
+            throw new XMLStreamException("No prefix bound to namespace " + namespaceURI);
+        }
+        return prefix;
+    }
+
+    private void writeQualifiedName(String prefix, String localName) throws XMLStreamException {
+        if (prefix != null && !prefix.isEmpty()) {
+            writeName(prefix);
+            writeByte(':');
+        }
+        writeName(localName);
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (startTagOpen) {
+            startTagOpen = false;
+            if (emptyElement) {
+                emptyElement = false;
+                writeByte('/');
+                writeByte('>');
+                popElement();
+            } else {
+                writeByte('>');
+            }
+        }
+    }
+
+    private void popElement() {
+        openPrefixes[namespaces.depth() - 1] = null;
+        openLocalNames[namespaces.depth() - 1] = null;
+        namespaces.pop();
+    }
+
+    private void checkStartTagOpen() throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("Attributes and namespaces can only be written right after a start element");
+        }
+    }
+
+    private void checkOpenElement() throws XMLStreamException {
+        if (namespaces.depth() == 0) {
+            throw new XMLStreamException("No element left to close");
+        }
+    }
+
+    private void writeName(String name) throws XMLStreamException {
+        writeEscaped(name, XmlEscaper.NONE);
+    }
+
+    private void writeEscaped(String text, byte[] escapes) throws XMLStreamException {
+        int length = text.length();
+        int offset = 0;
+        while (offset < length) {
+            int end = pieceEnd(text, offset, length);
+            text.getChars(offset, end, chunk, 0);
+            writeEscaped(chunk, 0, end - offset, escapes);
+            offset = end;
+        }
+    }
+
+    /**
+     * @return the end of the piece of text starting at the offset, which never splits a surrogate pair
+     */
+    private static int pieceEnd(CharSequence text, int offset, int length) {
+        int end = Math.min(length, offset + CHUNK_SIZE);
+        return end < length && Character.isHighSurrogate(text.charAt(end - 1)) ? end - 1 : end;
+    }
+
+    private void writeEscaped(char[] chars, int offset, int length, byte[] escapes) throws XMLStreamException {
+        byte[] bytes = buffer;
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int pos = position;
+            int limit = Math.min(bytes.length, pos + end - i);
+            // copy the run of ASCII characters needing no escaping
+            char c;
+            while (pos < limit && (c = chars[i]) < 0x80 && escapes[c] == 0) {
+                bytes[pos++] = (byte) c;
+                i++;
+            }
+            position = pos;
+            if (i == end) {
+                return;
+            }
+            if (pos == limit && pos == bytes.length) {
+                drainBuffer();
+                continue;
+            }
+            c = chars[i];
+            if (c < 0x80) {
+                writeRaw(XmlEscaper.REPLACEMENTS[escapes[c]]);
+                i++;
+            } else {
+                i = writeNonAscii(chars, i, end);
+            }
+        }
+    }
+
+    private int writeNonAscii(char[] chars, int index, int end) throws XMLStreamException {
+        ensureCapacity(4);
+        byte[] bytes = buffer;
+        int pos = position;
+        char c = chars[index];
+        if (c < 0x800) {
+            bytes[pos++] = (byte) (0xC0 | (c >> 6));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            bytes[pos++] = (byte) (0xE0 | (c >> 12));
+            bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(chars[index + 1])) {
+            int codePoint = Character.toCodePoint(c, chars[++index]);
+            bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            bytes[pos++] = '?';
+        }
+        position = pos;
+        return index + 1;
+    }
+
+    private void writeByte(char c) throws XMLStreamException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeRaw(byte[] bytes) throws XMLStreamException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensureCapacity(int length) throws XMLStreamException {
+        if (position + length > buffer.length) {
+            drainBuffer();
+        }
+    }
+
+    private void drainBuffer() throws XMLStreamException {
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new XMLStreamException("Cannot write XML output", e);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            sink.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
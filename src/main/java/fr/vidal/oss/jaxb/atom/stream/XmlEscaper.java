@@ -0,0 +1,42 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Precomputed escaping tables for XML character data and attribute values.
+ * Only ASCII characters ever need escaping: for each of them, a table gives the index
+ * of its replacement, 0 meaning the character is written as is.
+ */
+final class XmlEscaper {
+
+    static final byte[][] REPLACEMENTS = {
+        null,
+        "&amp;".getBytes(US_ASCII),
+        "&lt;".getBytes(US_ASCII),
+        "&gt;".getBytes(US_ASCII),
+        "&quot;".getBytes(US_ASCII),
+        "&#9;".getBytes(US_ASCII),
+        "&#10;".getBytes(US_ASCII),
+        "&#13;".getBytes(US_ASCII)
+    };
+
+    static final byte[] NONE = new byte[128];
+    static final byte[] TEXT = new byte[128];
+    static final byte[] ATTRIBUTE = new byte[128];
+
+    static {
+        TEXT['&'] = 1;
+        TEXT['<'] = 2;
+        TEXT['>'] = 3;
+        ATTRIBUTE['&'] = 1;
+        ATTRIBUTE['<'] = 2;
+        ATTRIBUTE['>'] = 3;
+        ATTRIBUTE['"'] = 4;
+        ATTRIBUTE['\t'] = 5;
+        ATTRIBUTE['\n'] = 6;
+        ATTRIBUTE['\r'] = 7;
+    }
+
+    private XmlEscaper() {
+    }
+}
@@ -0,0 +1,17 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.vidal.oss.jaxb.atom.ContextCreation")
+@Label("Context Creation")
+@Description("Creation of a JAXB context for Atom classes")
+@Category("Atom JAXB")
+class ContextCreationEvent extends Event {
+
+    @Label("Context Path")
+    String contextPath;
+}
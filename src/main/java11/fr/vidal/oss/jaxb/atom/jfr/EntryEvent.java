@@ -0,0 +1,25 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("fr.vidal.oss.jaxb.atom.Entry")
+@Label("Entry")
+@Description("Marshalling or unmarshalling of an Atom entry")
+@Category("Atom JAXB")
+@StackTrace(false)
+class EntryEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Entry Id")
+    String entryId;
+
+    @Label("Extension Element Count")
+    int extensionElementCount;
+}
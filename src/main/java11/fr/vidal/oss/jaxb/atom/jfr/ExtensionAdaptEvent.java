@@ -0,0 +1,25 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("fr.vidal.oss.jaxb.atom.ExtensionAdapt")
+@Label("Extension Adapt")
+@Description("Conversion of a top-level extension element from or to DOM")
+@Category("Atom JAXB")
+@StackTrace(false)
+class ExtensionAdaptEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Namespace URI")
+    String namespaceUri;
+
+    @Label("Tag Name")
+    String tagName;
+}
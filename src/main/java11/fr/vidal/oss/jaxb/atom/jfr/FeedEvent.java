@@ -0,0 +1,25 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+@Category("Atom JAXB")
+@StackTrace(false)
+abstract class FeedEvent extends Event {
+
+    @Label("Feed Id")
+    String feedId;
+
+    @Label("Entry Count")
+    int entryCount;
+
+    @Label("Extension Element Count")
+    int extensionElementCount;
+
+    @Label("Byte Size")
+    @DataAmount
+    long byteSize = -1;
+}
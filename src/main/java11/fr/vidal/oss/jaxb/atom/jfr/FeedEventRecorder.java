@@ -0,0 +1,99 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+
+/**
+ * Per (un)marshaller state shared by the listener and the extension element adapter.
+ * Nested callbacks for the same feed, as issued by the JAXB RI for root elements, are ignored.
+ */
+class FeedEventRecorder {
+
+    private final String operation;
+    private final boolean marshal;
+    private int feedDepth;
+    private FeedEvent feedEvent;
+    private EntryEvent entryEvent;
+    private boolean deferFeedCommit;
+    private FeedEvent pendingFeedEvent;
+
+    FeedEventRecorder(boolean marshal) {
+        this.marshal = marshal;
+        this.operation = marshal ? "marshal" : "unmarshal";
+    }
+
+    void before(Object target) {
+        if (target instanceof Feed) {
+            if (feedDepth++ > 0) {
+                return;
+            }
+            FeedEvent event = marshal ? new FeedMarshalEvent() : new FeedUnmarshalEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                feedEvent = event;
+            }
+        } else if (target instanceof Entry) {
+            EntryEvent event = new EntryEvent();
+            if (event.isEnabled()) {
+                event.operation = operation;
+                event.begin();
+                entryEvent = event;
+            }
+        }
+    }
+
+    void after(Object target) {
+        if (target instanceof Entry) {
+            if (feedEvent != null) {
+                feedEvent.entryCount++;
+            }
+            if (entryEvent != null) {
+                entryEvent.entryId = ((Entry) target).getId();
+                entryEvent.commit();
+                entryEvent = null;
+            }
+        } else if (target instanceof Feed) {
+            if (--feedDepth > 0 || feedEvent == null) {
+                return;
+            }
+            feedEvent.end();
+            feedEvent.feedId = ((Feed) target).getId();
+            if (deferFeedCommit) {
+                pendingFeedEvent = feedEvent;
+            } else {
+                feedEvent.commit();
+            }
+            feedEvent = null;
+        }
+    }
+
+    void extensionAdapted() {
+        if (entryEvent != null) {
+            entryEvent.extensionElementCount++;
+        }
+        if (feedEvent != null) {
+            feedEvent.extensionElementCount++;
+        }
+    }
+
+    String operation() {
+        return operation;
+    }
+
+    boolean isFeedEventEnabled() {
+        return (marshal ? new FeedMarshalEvent() : new FeedUnmarshalEvent()).isEnabled();
+    }
+
+    void deferFeedCommit() {
+        deferFeedCommit = true;
+    }
+
+    void commitDeferred(long byteSize) {
+        deferFeedCommit = false;
+        if (pendingFeedEvent != null) {
+            pendingFeedEvent.byteSize = byteSize;
+            pendingFeedEvent.commit();
+            pendingFeedEvent = null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.vidal.oss.jaxb.atom.FeedUnmarshal")
+@Label("Feed Unmarshal")
+@Description("Unmarshalling of an Atom feed")
+class FeedUnmarshalEvent extends FeedEvent {
+}
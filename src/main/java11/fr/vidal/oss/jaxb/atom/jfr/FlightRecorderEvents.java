@@ -0,0 +1,106 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.AtomFormat;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionRegistry;
+import fr.vidal.oss.jaxb.atom.metrics.CountingInputStream;
+import fr.vidal.oss.jaxb.atom.metrics.CountingOutputStream;
+import jdk.jfr.FlightRecorder;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Java 11 flavour, emitting Flight Recorder events.
+ * Events are registered upfront so that they can be enabled before their first occurrence.
+ */
+final class FlightRecorderEvents {
+
+    static {
+        FlightRecorder.register(FeedMarshalEvent.class);
+        FlightRecorder.register(FeedUnmarshalEvent.class);
+        FlightRecorder.register(EntryEvent.class);
+        FlightRecorder.register(ExtensionAdaptEvent.class);
+        FlightRecorder.register(ContextCreationEvent.class);
+    }
+
+    private FlightRecorderEvents() {
+    }
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static void instrument(Marshaller marshaller) {
+        FeedEventRecorder recorder = new FeedEventRecorder(true);
+        marshaller.setListener(new JfrMarshallerListener(recorder, marshaller.getListener()));
+        marshaller.setAdapter(ExtensionElementAdapter.class, jfr(recorder, marshaller.getAdapter(ExtensionElementAdapter.class)));
+    }
+
+    static void instrument(Unmarshaller unmarshaller) {
+        FeedEventRecorder recorder = new FeedEventRecorder(false);
+        unmarshaller.setListener(new JfrUnmarshallerListener(recorder, unmarshaller.getListener()));
+        unmarshaller.setAdapter(ExtensionElementAdapter.class, jfr(recorder, unmarshaller.getAdapter(ExtensionElementAdapter.class)));
+    }
+
+    private static JfrExtensionElementAdapter jfr(FeedEventRecorder recorder, ExtensionElementAdapter adapter) {
+        if (adapter == null) {
+            return new JfrExtensionElementAdapter(recorder, ExtensionRegistry.EMPTY, ExtensionElementAdapter.DEFAULT_MAX_DEPTH);
+        }
+        return new JfrExtensionElementAdapter(recorder, adapter.registry(), adapter.maxDepth());
+    }
+
+    static JAXBContext newContext(String contextPath, ContextFactory factory) throws JAXBException {
+        ContextCreationEvent event = new ContextCreationEvent();
+        if (!event.isEnabled()) {
+            return factory.create();
+        }
+        event.begin();
+        JAXBContext context = factory.create();
+        event.contextPath = contextPath;
+        event.commit();
+        return context;
+    }
+
+    static void marshal(AtomFormat format, Marshaller marshaller, Object value, OutputStream out) throws JAXBException {
+        Marshaller.Listener listener = marshaller.getListener();
+        if (!(listener instanceof JfrMarshallerListener)) {
+            format.marshal(marshaller, value, out);
+            return;
+        }
+        FeedEventRecorder recorder = ((JfrMarshallerListener) listener).recorder();
+        if (!recorder.isFeedEventEnabled()) {
+            format.marshal(marshaller, value, out);
+            return;
+        }
+        CountingOutputStream counter = new CountingOutputStream(out);
+        recorder.deferFeedCommit();
+        try {
+            format.marshal(marshaller, value, counter);
+        } finally {
+            recorder.commitDeferred(counter.count());
+        }
+    }
+
+    static Object unmarshal(AtomFormat format, Unmarshaller unmarshaller, InputStream in) throws JAXBException {
+        Unmarshaller.Listener listener = unmarshaller.getListener();
+        if (!(listener instanceof JfrUnmarshallerListener)) {
+            return format.unmarshal(unmarshaller, in);
+        }
+        FeedEventRecorder recorder = ((JfrUnmarshallerListener) listener).recorder();
+        if (!recorder.isFeedEventEnabled()) {
+            return format.unmarshal(unmarshaller, in);
+        }
+        CountingInputStream counter = new CountingInputStream(in);
+        recorder.deferFeedCommit();
+        try {
+            return format.unmarshal(unmarshaller, counter);
+        } finally {
+            recorder.commitDeferred(counter.count());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionRegistry;
+import org.w3c.dom.Element;
+
+class JfrExtensionElementAdapter extends ExtensionElementAdapter {
+
+    private final FeedEventRecorder recorder;
+
+    JfrExtensionElementAdapter(FeedEventRecorder recorder, ExtensionRegistry registry, int maxDepth) {
+        super(registry, maxDepth);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Element marshal(ExtensionElement extensionElement) throws Exception {
+        ExtensionAdaptEvent event = new ExtensionAdaptEvent();
+        if (!event.isEnabled()) {
+            recorder.extensionAdapted();
+            return super.marshal(extensionElement);
+        }
+        event.begin();
+        try {
+            return super.marshal(extensionElement);
+        } finally {
+            event.end();
+            if (event.shouldCommit() && extensionElement != null) {
+                event.operation = recorder.operation();
+                event.namespaceUri = extensionElement.namespace() == null ? null : extensionElement.namespace().uri();
+                event.tagName = extensionElement.tagName();
+                event.commit();
+            }
+            recorder.extensionAdapted();
+        }
+    }
+
+    @Override
+    public ExtensionElement unmarshal(Element element) {
+        ExtensionAdaptEvent event = new ExtensionAdaptEvent();
+        if (!event.isEnabled()) {
+            recorder.extensionAdapted();
+            return super.unmarshal(element);
+        }
+        event.begin();
+        try {
+            return super.unmarshal(element);
+        } finally {
+            event.end();
+            if (event.shouldCommit() && element != null) {
+                event.operation = recorder.operation();
+                event.namespaceUri = element.getNamespaceURI();
+                event.tagName = element.getLocalName();
+                event.commit();
+            }
+            recorder.extensionAdapted();
+        }
+    }
+}
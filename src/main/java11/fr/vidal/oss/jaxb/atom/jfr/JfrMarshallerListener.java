@@ -0,0 +1,34 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import javax.xml.bind.Marshaller;
+
+class JfrMarshallerListener extends Marshaller.Listener {
+
+    private final FeedEventRecorder recorder;
+    private final Marshaller.Listener delegate;
+
+    JfrMarshallerListener(FeedEventRecorder recorder, Marshaller.Listener delegate) {
+        this.recorder = recorder;
+        this.delegate = delegate;
+    }
+
+    FeedEventRecorder recorder() {
+        return recorder;
+    }
+
+    @Override
+    public void beforeMarshal(Object source) {
+        recorder.before(source);
+        if (delegate != null) {
+            delegate.beforeMarshal(source);
+        }
+    }
+
+    @Override
+    public void afterMarshal(Object source) {
+        if (delegate != null) {
+            delegate.afterMarshal(source);
+        }
+        recorder.after(source);
+    }
+}
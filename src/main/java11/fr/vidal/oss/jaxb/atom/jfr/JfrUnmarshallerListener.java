@@ -0,0 +1,34 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import javax.xml.bind.Unmarshaller;
+
+class JfrUnmarshallerListener extends Unmarshaller.Listener {
+
+    private final FeedEventRecorder recorder;
+    private final Unmarshaller.Listener delegate;
+
+    JfrUnmarshallerListener(FeedEventRecorder recorder, Unmarshaller.Listener delegate) {
+        this.recorder = recorder;
+        this.delegate = delegate;
+    }
+
+    FeedEventRecorder recorder() {
+        return recorder;
+    }
+
+    @Override
+    public void beforeUnmarshal(Object target, Object parent) {
+        recorder.before(target);
+        if (delegate != null) {
+            delegate.beforeUnmarshal(target, parent);
+        }
+    }
+
+    @Override
+    public void afterUnmarshal(Object target, Object parent) {
+        if (delegate != null) {
+            delegate.afterUnmarshal(target, parent);
+        }
+        recorder.after(target);
+    }
+}
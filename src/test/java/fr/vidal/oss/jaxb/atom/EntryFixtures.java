@@ -0,0 +1,24 @@
+package fr.vidal.oss.jaxb.atom;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Link;
+
+import java.util.Date;
+
+public final class EntryFixtures {
+    private EntryFixtures() {}
+
+    /**
+     * @return a builder of the product entry of the given index, with its title, id and link
+     */
+    public static Entry.Builder productEntry(int index) {
+        return Entry.builder()
+            .withTitle("Product " + index)
+            .withId("vidal://product/" + index)
+            .addLink(Link.builder("/rest/api/product/" + index).build());
+    }
+
+    public static Entry productEntry(int index, long updateTime) {
+        return productEntry(index).withUpdateDate(new Date(updateTime)).build();
+    }
+}
@@ -0,0 +1,80 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.binary.AtomBinary;
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the binary codec with JAXB XML for the same feed, in both directions.
+ * Encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AtomBinaryBenchmark {
+
+    @Param({"100", "1000"})
+    public int entries;
+
+    private JAXBContext context;
+    private Feed feed;
+    private byte[] xml;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        feed = BenchmarkFeeds.feed(entries, 512);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.createMarshaller().marshal(feed, out);
+        xml = out.toByteArray();
+        binary = AtomBinary.encode(feed);
+        System.out.printf("%nFeed with %d entries: %d bytes of XML, %d bytes of binary%n", entries, xml.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] marshalXml() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length);
+        context.createMarshaller().marshal(feed, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return AtomBinary.encode(feed);
+    }
+
+    @Benchmark
+    public Object unmarshalXml() throws Exception {
+        return context.createUnmarshaller().unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    @Benchmark
+    public Feed decodeBinary() {
+        return AtomBinary.decodeFeed(ByteBuffer.wrap(binary));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AtomBinaryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.AtomFormat;
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compares plain UTF-8 XML with Fast Infoset for the same feed.
+ * Encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AtomFormatBenchmark {
+
+    @Param({"XML", "FAST_INFOSET"})
+    public AtomFormat format;
+
+    @Param({"100", "1000"})
+    public int entries;
+
+    private JAXBContext context;
+    private Feed feed;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        feed = BenchmarkFeeds.feed(entries, 512);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.marshal(context.createMarshaller(), feed, out);
+        encoded = out.toByteArray();
+        System.out.printf("%n%s feed with %d entries: %d bytes%n", format, entries, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] marshal() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length);
+        format.marshal(context.createMarshaller(), feed, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object unmarshal() throws Exception {
+        return format.unmarshal(context.createUnmarshaller(), new ByteArrayInputStream(encoded));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AtomFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
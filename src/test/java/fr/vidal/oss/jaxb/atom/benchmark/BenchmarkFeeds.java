@@ -0,0 +1,64 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.core.LinkRel.alternate;
+import static fr.vidal.oss.jaxb.atom.core.LinkRel.self;
+
+final class BenchmarkFeeds {
+
+    static final Namespace VIDAL_NAMESPACE = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+
+    private BenchmarkFeeds() {
+    }
+
+    static Feed feed(int entryCount, int contentLength) {
+        Feed.Builder builder = Feed.builder()
+            .withId("urn:benchmark")
+            .withTitle("Benchmark feed")
+            .withUpdateDate(new Date(1329350400000L))
+            .addLink(Link.builder("http://example.org/feed").withRel(self).build());
+        String contents = contents(contentLength);
+        for (int i = 0; i < entryCount; i++) {
+            builder.addEntry(entry(i, contents));
+        }
+        return builder.build();
+    }
+
+    static Entry entry(int index, String contents) {
+        return Entry.builder()
+            .withId("vidal://product/" + index)
+            .withTitle("Product #" + index)
+            .withUpdateDate(new Date(1329350400000L + index * 1000L))
+            .addLink(Link.builder("/rest/api/product/" + index).withRel(alternate).withType("application/atom+xml").build())
+            .addCategory(Category.builder("PRODUCT").build())
+            .withSummary(Summary.builder().withValue("Product <" + index + "> & co").withType("text").build())
+            .withContents(Contents.builder().withType(ContentType.builder("html").build()).withContents(contents).build())
+            .addExtensionElement(ExtensionElements.simpleElement("id", String.valueOf(index)).withNamespace(VIDAL_NAMESPACE).build())
+            .addExtensionElement(ExtensionElements.structuredElement("dosage",
+                ExtensionElements.simpleElement("dose", "10.0").withNamespace(VIDAL_NAMESPACE).build())
+                .withNamespace(VIDAL_NAMESPACE)
+                .build())
+            .build();
+    }
+
+    static String contents(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        String sample = "<p>Posologie : 1 comprimé par jour &amp; pas plus.</p> ";
+        while (builder.length() < length) {
+            builder.append(sample);
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+}
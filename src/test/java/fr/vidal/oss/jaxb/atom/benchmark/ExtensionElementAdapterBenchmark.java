@@ -0,0 +1,78 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElementAdapter;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.ExtensionRegistry;
+import fr.vidal.oss.jaxb.atom.core.XmlFactories;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+
+/**
+ * Compares the iterative extension element conversion with the former recursive one,
+ * for a chain of nested structured elements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExtensionElementAdapterBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int depth;
+
+    private ExtensionElementAdapter adapter;
+    private DocumentBuilder builder;
+    private ExtensionElement element;
+    private Element dom;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        adapter = new ExtensionElementAdapter(ExtensionRegistry.EMPTY, depth);
+        builder = XmlFactories.newDocumentBuilder();
+        element = ExtensionElements.simpleElement("dose", "10.0").withNamespace(BenchmarkFeeds.VIDAL_NAMESPACE).build();
+        for (int i = 1; i < depth; i++) {
+            element = ExtensionElements.structuredElement("dosage", element).withNamespace(BenchmarkFeeds.VIDAL_NAMESPACE).build();
+        }
+        dom = adapter.marshal(element);
+    }
+
+    @Benchmark
+    public Element marshalIterative() throws Exception {
+        return adapter.marshal(element);
+    }
+
+    @Benchmark
+    public Element marshalRecursive() {
+        return RecursiveExtensionConverter.marshal(element, builder.newDocument());
+    }
+
+    @Benchmark
+    public ExtensionElement unmarshalIterative() {
+        return adapter.unmarshal(dom);
+    }
+
+    @Benchmark
+    public ExtensionElement unmarshalRecursive() {
+        return RecursiveExtensionConverter.unmarshal(dom);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ExtensionElementAdapterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
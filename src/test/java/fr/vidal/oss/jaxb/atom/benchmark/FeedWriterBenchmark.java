@@ -0,0 +1,79 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.stream.FeedWriter;
+import fr.vidal.oss.jaxb.atom.stream.Utf8XmlStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compares the default JAXB output with the escaping UTF-8 writer, used either as a JAXB
+ * marshalling target or through {@link FeedWriter}, on content-heavy feeds.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FeedWriterBenchmark {
+
+    @Param({"512", "16384"})
+    public int contentLength;
+
+    @Param({"100"})
+    public int entries;
+
+    private JAXBContext context;
+    private Feed feed;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        feed = BenchmarkFeeds.feed(entries, contentLength);
+        out = new ByteArrayOutputStream(entries * contentLength * 2);
+    }
+
+    @Benchmark
+    public int jaxb() throws Exception {
+        out.reset();
+        context.createMarshaller().marshal(feed, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int jaxbToUtf8Writer() throws Exception {
+        out.reset();
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+        context.createMarshaller().marshal(feed, writer);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int feedWriter() throws Exception {
+        out.reset();
+        FeedWriter.create(out).write(feed);
+        return out.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(FeedWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
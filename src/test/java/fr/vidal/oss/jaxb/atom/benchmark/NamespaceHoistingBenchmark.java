@@ -0,0 +1,73 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.NamespaceHoisting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Compares per-element namespace declarations with namespaces hoisted onto the feed element.
+ * Encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NamespaceHoistingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hoisted;
+
+    @Param({"100", "1000"})
+    public int entries;
+
+    private JAXBContext context;
+    private Feed feed;
+    private Set<Namespace> namespaces;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        feed = BenchmarkFeeds.feed(entries, 64);
+        namespaces = hoisted ? NamespaceHoisting.collect(feed) : Collections.emptySet();
+        encoded = marshal();
+        System.out.printf("%nFeed with %d entries, hoisted=%s: %d bytes%n", entries, hoisted, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] marshal() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded == null ? 8192 : encoded.length);
+        NamespaceHoisting.marshal(context.createMarshaller(), feed, out, namespaces);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object unmarshal() throws Exception {
+        return context.createUnmarshaller().unmarshal(new ByteArrayInputStream(encoded));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(NamespaceHoistingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package fr.vidal.oss.jaxb.atom.benchmark;
+
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.SimpleElement;
+import fr.vidal.oss.jaxb.atom.core.StructuredElement;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Recursive, stream-based conversion the adapter used before going iterative, kept as a baseline.
+ * Unmarshalling is the former code; marshalling builds the same DOM recursively, the former
+ * nested JAXB marshallers not being reproducible outside the adapter.
+ */
+final class RecursiveExtensionConverter {
+
+    private RecursiveExtensionConverter() {
+    }
+
+    static Element marshal(ExtensionElement extensionElement, Document document) {
+        Namespace namespace = extensionElement.namespace();
+        Element element = document.createElementNS(namespace.uri(), namespace.prefix() + ":" + extensionElement.tagName());
+        if (extensionElement instanceof SimpleElement) {
+            element.setTextContent(((SimpleElement) extensionElement).value());
+        } else {
+            for (ExtensionElement child : ((StructuredElement) extensionElement).getExtensionElements()) {
+                element.appendChild(marshal(child, document));
+            }
+        }
+        return element;
+    }
+
+    static ExtensionElement unmarshal(Node node) {
+        Namespace namespace = Namespace.builder(node.getNamespaceURI()).withPrefix(node.getPrefix()).build();
+        if (isSimpleElementNode(node)) {
+            return ExtensionElements.simpleElement(node.getLocalName(), node.getTextContent())
+                .withNamespace(namespace)
+                .addAttributes(attributes(node))
+                .build();
+        }
+        return ExtensionElements.structuredElement(node.getLocalName(), children(node))
+            .withNamespace(namespace)
+            .addAttributes(attributes(node))
+            .build();
+    }
+
+    private static boolean isSimpleElementNode(Node node) {
+        return node.getChildNodes().getLength() == 1 && node.getFirstChild() instanceof Text;
+    }
+
+    private static Collection<ExtensionElement> children(Node node) {
+        NodeList nodes = node.getChildNodes();
+        return IntStream.range(0, nodes.getLength())
+            .mapToObj(nodes::item)
+            .filter(n -> !(n instanceof Text))
+            .map(RecursiveExtensionConverter::unmarshal)
+            .collect(Collectors.toList());
+    }
+
+    private static Collection<Attribute> attributes(Node node) {
+        NamedNodeMap attributes = node.getAttributes();
+        return IntStream.range(0, attributes.getLength())
+            .mapToObj(attributes::item)
+            .map(Attr.class::cast)
+            .map(attribute -> Attribute.builder(attribute.getLocalName(), attribute.getTextContent()).build())
+            .collect(Collectors.toList());
+    }
+}
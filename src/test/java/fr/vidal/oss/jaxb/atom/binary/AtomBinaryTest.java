@@ -0,0 +1,191 @@
+package fr.vidal.oss.jaxb.atom.binary;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionCodec;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.TypedElement;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static fr.vidal.oss.jaxb.atom.core.LinkRel.self;
+import static java.util.TimeZone.getTimeZone;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AtomBinaryTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">\n" +
+        "    <title>Search Products - Query :sintrom</title>\n" +
+        "    <subtitle>Or is it?</subtitle>\n" +
+        "    <link href=\"/rest/api/products?q=sintrom\" rel=\"self\" type=\"application/atom+xml\"/>\n" +
+        "    <id>Heidi</id>\n" +
+        "    <author><name>VIDAL</name><email>software@vidal.fr</email></author>\n" +
+        "    <contributor><name>John</name></contributor>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <opensearch:itemsPerPage xmlns:opensearch=\"http://a9.com/-/spec/opensearch/1.1/\">25</opensearch:itemsPerPage>\n" +
+        "    <entry vidal:type=\"PRODUCT\">\n" +
+        "        <title>SINTROM 4 mg cp quadriséc</title>\n" +
+        "        <link href=\"/rest/api/product/15070\" rel=\"alternate\" type=\"application/atom+xml\" title=\"PRODUCT\"/>\n" +
+        "        <category term=\"PRODUCT\" scheme=\"urn:vidal\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <published>1977-02-05T01:00:00Z</published>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <summary type=\"text\">SINTROM 4 mg cp quadriséc</summary>\n" +
+        "        <content type=\"html\">&lt;p&gt;Hello&lt;/p&gt;</content>\n" +
+        "        <vidal:id>15070</vidal:id>\n" +
+        "        <vidal:dosages>\n" +
+        "            <vidal:dosage unit=\"mg\"><vidal:dose>10.0</vidal:dose></vidal:dosage>\n" +
+        "        </vidal:dosages>\n" +
+        "    </entry>\n" +
+        "    <entry>\n" +
+        "        <title>SNAKE OIL 1 mg</title>\n" +
+        "        <link href=\"/rest/api/product/42\"/>\n" +
+        "        <id>vidal://product/42</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    private JAXBContext context;
+
+    @Before
+    public void prepare() throws JAXBException {
+        TimeZone.setDefault(getTimeZone("Europe/Paris"));
+        context = AtomJaxb.newContext();
+    }
+
+    @Test
+    public void round_trips_feed_losslessly() throws Exception {
+        Feed feed = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+
+        Feed decoded = AtomBinary.decodeFeed(ByteBuffer.wrap(AtomBinary.encode(feed)));
+
+        assertThat(marshal(decoded)).isEqualTo(marshal(feed));
+        assertThat(decoded.getEntries()).containsExactlyElementsOf(feed.getEntries());
+        Entry entry = decoded.getEntries().iterator().next();
+        Entry original = feed.getEntries().iterator().next();
+        assertThat(entry.getExtensionElements()).containsExactlyElementsOf(original.getExtensionElements());
+        assertThat(entry.getAdditionalAttributes()).isEqualTo(original.getAdditionalAttributes());
+        assertThat(entry.getContents()).isEqualTo(original.getContents());
+        assertThat(entry.getSummary()).isEqualTo(original.getSummary());
+    }
+
+    @Test
+    public void decodes_entries_lazily_from_direct_buffer() throws Exception {
+        Feed feed = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+        byte[] bytes = AtomBinary.encode(feed);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+
+        BinaryFeed binaryFeed = AtomBinary.readFeed(buffer);
+
+        assertThat(binaryFeed.getId()).isEqualTo("Heidi");
+        assertThat(binaryFeed.getEntryCount()).isEqualTo(2);
+        assertThat(binaryFeed.getEntry(1).getTitle()).isEqualTo("SNAKE OIL 1 mg");
+        assertThat(binaryFeed.getEntries()).containsExactlyElementsOf(feed.getEntries());
+    }
+
+    @Test
+    public void round_trips_single_entry() {
+        Entry entry = Entry.builder()
+            .withId("urn:entry:1")
+            .withTitle("Entry")
+            .withUpdateDate(new Date(-1000L))
+            .addLink(Link.builder("http://example.org/").withRel(self).build())
+            .withContents(null)
+            .build();
+
+        Entry decoded = AtomBinary.decodeEntry(ByteBuffer.wrap(AtomBinary.encode(entry)));
+
+        assertThat(decoded.getUpdateDate()).isEqualTo(new Date(-1000L));
+        assertThat(decoded.getLinks()).containsExactlyElementsOf(entry.getLinks());
+        assertThat(decoded.getContents()).isNull();
+    }
+
+    @Test
+    public void round_trips_raw_elements() {
+        Namespace vidal = Namespace.builder("urn:vidal").withPrefix("vidal").build();
+        String raw = "<vidal:note xmlns:vidal=\"urn:vidal\">Take <!-- twice --> daily</vidal:note>";
+        Entry entry = Entry.builder()
+            .withId("urn:entry:1")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .addExtensionElement(RawElement.of(vidal, "note", raw))
+            .build();
+
+        Entry decoded = AtomBinary.decodeEntry(ByteBuffer.wrap(AtomBinary.encode(entry)));
+
+        assertThat(decoded.getExtensionElements()).containsExactly(RawElement.of(vidal, "note", raw));
+    }
+
+    @Test
+    public void round_trips_typed_elements() {
+        Namespace vidal = Namespace.builder("urn:vidal").withPrefix("vidal").build();
+        ExtensionCodec<Integer> codec = new ExtensionCodec<Integer>() {
+            @Override
+            public Integer decode(Element element) {
+                return Integer.valueOf(element.getTextContent());
+            }
+
+            @Override
+            public Element encode(QName name, Integer value, Document document) {
+                Element element = document.createElementNS(name.getNamespaceURI(), "vidal:" + name.getLocalPart());
+                element.setTextContent(value.toString());
+                return element;
+            }
+        };
+        Entry entry = Entry.builder()
+            .withId("urn:entry:1")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .addExtensionElement(TypedElement.of(new QName("urn:vidal", "id", "vidal"), 15070, codec))
+            .build();
+
+        Entry decoded = AtomBinary.decodeEntry(ByteBuffer.wrap(AtomBinary.encode(entry)));
+
+        assertThat(decoded.getExtensionElements()).containsExactly(
+            ExtensionElements.simpleElement("id", "15070").withNamespace(vidal).build());
+    }
+
+    @Test
+    public void rejects_unknown_version() {
+        byte[] bytes = AtomBinary.encode(Entry.builder()
+            .withId("urn:entry:1")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .build());
+        bytes[4] = 42;
+
+        assertThatThrownBy(() -> AtomBinary.decodeEntry(ByteBuffer.wrap(bytes)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Unsupported Atom binary version 42");
+    }
+
+    private String marshal(Feed feed) throws JAXBException {
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(feed, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package fr.vidal.oss.jaxb.atom.cache;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.stream.FeedReader;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RenderedFeedCacheTest {
+
+    @Test
+    public void serves_cached_feed_until_one_of_its_entries_is_invalidated() throws Exception {
+        RenderedFeedCache cache = RenderedFeedCache.builder().build();
+        AtomicInteger renderings = new AtomicInteger();
+        FeedRenderer renderer = counting(renderings, FeedRenderer.of(() -> feed(1, 2)));
+        FeedKey key = FeedKey.of("products", Collections.singletonMap("page", "1"));
+
+        RenderedFeed first = cache.get(key, renderer);
+        RenderedFeed second = cache.get(FeedKey.of("products", Collections.singletonMap("page", "1")), renderer);
+
+        assertThat(second).isSameAs(first);
+        assertThat(renderings.get()).isEqualTo(1);
+        assertThat(ids(first)).containsExactly("vidal://product/1", "vidal://product/2");
+
+        cache.invalidateEntry("vidal://product/3");
+        assertThat(cache.getIfPresent(key)).isSameAs(first);
+        cache.invalidateEntry("vidal://product/2");
+        assertThat(cache.getIfPresent(key)).isNull();
+        cache.get(key, renderer);
+        assertThat(renderings.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void stores_feeds_gzipped() throws Exception {
+        RenderedFeedCache cache = RenderedFeedCache.builder().withGzip(true).build();
+
+        RenderedFeed feed = cache.get(FeedKey.of("products"), FeedRenderer.of(() -> feed(1)));
+
+        assertThat(feed.isGzipped()).isTrue();
+        assertThat(ids(feed)).containsExactly("vidal://product/1");
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        feed.writeTo(plain, false);
+        assertThat(plain.toString("UTF-8")).contains("vidal://product/1");
+    }
+
+    @Test
+    public void expires_feeds_after_time_to_live() {
+        AtomicLong now = new AtomicLong();
+        RenderedFeedCache cache = RenderedFeedCache.builder()
+            .withTimeToLive(Duration.ofSeconds(10))
+            .withTicker(now::get)
+            .build();
+        FeedKey key = FeedKey.of("products");
+        cache.get(key, FeedRenderer.of(() -> feed(1)));
+
+        now.set(TimeUnit.SECONDS.toNanos(9));
+        assertThat(cache.getIfPresent(key)).isNotNull();
+        now.set(TimeUnit.SECONDS.toNanos(10));
+        assertThat(cache.getIfPresent(key)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void keeps_frequently_requested_feeds_within_bounds() {
+        int length = render(feed(1));
+        RenderedFeedCache cache = RenderedFeedCache.builder().withMaximumBytes(length * 10L).build();
+        FeedKey popular = FeedKey.of("popular");
+        for (int i = 0; i < 5; i++) {
+            cache.get(popular, FeedRenderer.of(() -> feed(1)));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(FeedKey.of("rare-" + i), FeedRenderer.of(() -> feed(1)));
+        }
+
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(length * 10L);
+        assertThat(cache.getIfPresent(popular)).isNotNull();
+        cache.invalidateFeed("popular");
+        assertThat(cache.getIfPresent(popular)).isNull();
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.weightedSize()).isZero();
+    }
+
+    @Test
+    public void rejects_candidate_without_evicting_when_a_later_victim_is_more_frequent() {
+        int length = render(feed(1));
+        // the main region holds two single entry feeds, and needs to evict both to admit a two entry feed
+        RenderedFeedCache cache = RenderedFeedCache.builder().withMaximumBytes(length * 200L / 99 + 2).build();
+        FeedKey cold = FeedKey.of("cold");
+        FeedKey hot = FeedKey.of("hot");
+        FeedKey candidate = FeedKey.of("candidate");
+        cache.get(cold, FeedRenderer.of(() -> feed(1)));
+        for (int i = 0; i < 5; i++) {
+            cache.get(hot, FeedRenderer.of(() -> feed(1)));
+        }
+        cache.getIfPresent(candidate);
+        cache.getIfPresent(candidate);
+
+        cache.get(candidate, FeedRenderer.of(() -> feed(1, 2)));
+
+        assertThat(cache.getIfPresent(candidate)).isNull();
+        assertThat(cache.getIfPresent(cold)).isNotNull();
+        assertThat(cache.getIfPresent(hot)).isNotNull();
+    }
+
+    @Test
+    public void renders_once_on_concurrent_misses() throws Exception {
+        RenderedFeedCache cache = RenderedFeedCache.builder().build();
+        AtomicInteger renderings = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FeedRenderer renderer = out -> {
+            renderings.incrementAndGet();
+            rendering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return FeedRenderer.of(() -> feed(1)).render(out);
+        };
+        FeedKey key = FeedKey.of("products");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<RenderedFeed>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(key, renderer)));
+            rendering.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get(key, renderer)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            RenderedFeed feed = results.get(0).get();
+            for (Future<RenderedFeed> result : results) {
+                assertThat(result.get()).isSameAs(feed);
+            }
+            assertThat(renderings.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void does_not_cache_feed_rendered_while_invalidated() {
+        RenderedFeedCache cache = RenderedFeedCache.builder().build();
+        FeedKey key = FeedKey.of("products");
+
+        RenderedFeed feed = cache.get(key, out -> {
+            cache.invalidateEntry("vidal://product/1");
+            return FeedRenderer.of(() -> feed(1)).render(out);
+        });
+
+        assertThat(ids(feed)).containsExactly("vidal://product/1");
+        assertThat(cache.getIfPresent(key)).isNull();
+    }
+
+    @Test
+    public void reports_rendering_failures() {
+        RenderedFeedCache cache = RenderedFeedCache.builder().build();
+
+        assertThatThrownBy(() -> cache.get(FeedKey.of("products"), out -> {
+            throw new IOException("disk full");
+        }))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Cannot render feed " + FeedKey.of("products"));
+        assertThat(cache.size()).isZero();
+    }
+
+    private static int render(Feed feed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            FeedRenderer.of(() -> feed).render(out);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return out.size();
+    }
+
+    private static List<String> ids(RenderedFeed feed) {
+        try (InputStream in = feed.openStream()) {
+            return FeedReader.create(in).entries().map(Entry::getId).collect(toList());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static FeedRenderer counting(AtomicInteger renderings, FeedRenderer renderer) {
+        return out -> {
+            renderings.incrementAndGet();
+            return renderer.render(out);
+        };
+    }
+
+    private static Feed feed(int... indices) {
+        Feed.Builder feed = Feed.builder()
+            .withTitle("Products")
+            .withId("urn:feed")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/products").build());
+        for (int index : indices) {
+            feed.addEntry(Entry.builder()
+                .withTitle("Product " + index)
+                .withId("vidal://product/" + index)
+                .withUpdateDate(new Date(index * 1000L))
+                .addLink(Link.builder("/rest/api/product/" + index).build())
+                .build());
+        }
+        return feed.build();
+    }
+}
@@ -0,0 +1,113 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.core.AtomFormat.FAST_INFOSET;
+import static fr.vidal.oss.jaxb.atom.core.AtomFormat.XML;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AtomFormatTest {
+
+    private static final Namespace VIDAL_NAMESPACE = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+
+    private JAXBContext context;
+
+    @Before
+    public void prepare() throws JAXBException {
+        context = AtomJaxb.newContext();
+    }
+
+    @Test
+    public void round_trips_feed_through_fast_infoset() throws Exception {
+        ExtensionElement dosage = ExtensionElements.structuredElement("dosage",
+            ExtensionElements.simpleElement("dose", "10.0").withNamespace(VIDAL_NAMESPACE).build())
+            .withNamespace(VIDAL_NAMESPACE)
+            .build();
+        Feed feed = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date(1329350400000L))
+            .addLink(Link.builder("http://example.org/").withRel(LinkRel.self).build())
+            .addEntry(Entry.builder()
+                .withId("urn:entry")
+                .withTitle("Entry")
+                .withUpdateDate(new Date(1329350400000L))
+                .addLink(Link.builder("http://example.org/entry").build())
+                .addExtensionElement(dosage)
+                .build())
+            .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FAST_INFOSET.marshal(context.createMarshaller(), feed, out);
+        Feed result = (Feed) FAST_INFOSET.unmarshal(context.createUnmarshaller(), new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(result.getId()).isEqualTo("urn:feed");
+        assertThat(result.getLinks()).containsExactlyElementsOf(feed.getLinks());
+        Entry entry = result.getEntries().iterator().next();
+        StructuredElement extension = (StructuredElement) entry.getExtensionElements().iterator().next();
+        assertThat(extension.tagName()).isEqualTo("dosage");
+        assertThat(extension.getExtensionElements()).containsExactlyElementsOf(((StructuredElement) dosage).getExtensionElements());
+    }
+
+    @Test
+    public void resolves_media_types() {
+        assertThat(AtomFormat.forMediaType("application/atom+xml; charset=UTF-8")).isEqualTo(XML);
+        assertThat(AtomFormat.forMediaType("application/fastinfoset")).isEqualTo(FAST_INFOSET);
+        assertThat(AtomFormat.forMediaType("application/json")).isNull();
+    }
+
+    @Test
+    public void negotiates_preferred_format() {
+        assertThat(AtomFormat.negotiate(null)).isEqualTo(XML);
+        assertThat(AtomFormat.negotiate("application/fastinfoset, application/atom+xml;q=0.5")).isEqualTo(FAST_INFOSET);
+        assertThat(AtomFormat.negotiate("application/fastinfoset;q=0.1, */*;q=0.8")).isEqualTo(XML);
+        assertThat(AtomFormat.negotiate("application/json")).isNull();
+    }
+
+    @Test
+    public void fails_clearly_without_fast_infoset_library() throws Exception {
+        ClassLoader withoutFastInfoset = new ClassLoader(AtomFormatTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.startsWith("com.sun.xml.fastinfoset.") || name.startsWith("fr.vidal.")) {
+                    throw new ClassNotFoundException(name);
+                }
+                return super.loadClass(name, resolve);
+            }
+        };
+        URL classes = AtomFormat.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes}, withoutFastInfoset)) {
+            Class<?> format = loader.loadClass(AtomFormat.class.getName());
+            Object fastInfoset = format.getField("FAST_INFOSET").get(null);
+
+            assertThat(format.getMethod("isAvailable").invoke(fastInfoset)).isEqualTo(false);
+            assertThat(format.getMethod("forMediaType", String.class).invoke(null, "application/fastinfoset")).isNull();
+            assertThatThrownBy(() -> invoke(format.getMethod("marshal", Marshaller.class, Object.class, OutputStream.class),
+                fastInfoset, context.createMarshaller(), "feed", new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("FAST_INFOSET requires com.sun.xml.fastinfoset:FastInfoset on the classpath");
+        }
+    }
+
+    private static void invoke(Method method, Object target, Object... arguments) throws Throwable {
+        try {
+            method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
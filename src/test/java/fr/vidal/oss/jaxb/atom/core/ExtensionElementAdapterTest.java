@@ -1,6 +1,7 @@
 package fr.vidal.oss.jaxb.atom.core;
 
 import org.junit.Test;
+import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
 
 import javax.xml.bind.JAXBContext;
@@ -14,6 +15,7 @@ import java.util.TimeZone;
 
 import static java.util.TimeZone.getTimeZone;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ExtensionElementAdapterTest {
 
@@ -131,6 +133,55 @@ public class ExtensionElementAdapterTest {
             .build());
     }
 
+    @Test
+    public void converts_deeply_nested_elements_without_recursion() throws Exception {
+        ExtensionElement element = nested(500);
+        ExtensionElementAdapter adapter = new ExtensionElementAdapter(ExtensionRegistry.EMPTY, 500);
+
+        Element dom = adapter.marshal(element);
+
+        assertThat(dom.getElementsByTagNameNS(ANY_NAMESPACE.uri(), "level").getLength()).isEqualTo(498);
+        assertThat(dom.getAttribute("xmlns:any")).isEqualTo(ANY_NAMESPACE.uri());
+        StructuredElement result = (StructuredElement) adapter.unmarshal(dom);
+        assertThat(result.getExtensionElements()).containsExactlyElementsOf(((StructuredElement) element).getExtensionElements());
+    }
+
+    @Test
+    public void rejects_elements_nested_deeper_than_max_depth() throws Exception {
+        ExtensionElementAdapter adapter = new ExtensionElementAdapter(ExtensionRegistry.EMPTY, 10);
+        Element dom = new ExtensionElementAdapter(ExtensionRegistry.EMPTY, 11).marshal(nested(11));
+
+        assertThatThrownBy(() -> adapter.marshal(nested(11)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Extension element value exceeds the maximum depth of 10");
+        assertThatThrownBy(() -> adapter.unmarshal(dom))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Extension element value exceeds the maximum depth of 10");
+    }
+
+    @Test
+    public void marshals_namespace_declarations_of_unmarshalled_elements() throws Exception {
+        ExtensionElementAdapter adapter = new ExtensionElementAdapter();
+        ExtensionElement element = unmarshalElement("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<root xmlns=\"http://www.w3.org/2005/Atom\">\n" +
+            "    <any:element xmlns:any=\"http://foo.bar.net/-/any/\">with value</any:element>\n" +
+            "</root>");
+
+        Element dom = adapter.marshal(element);
+
+        assertThat(dom.getAttribute("xmlns")).isEqualTo("http://www.w3.org/2005/Atom");
+        assertThat(dom.getAttribute("xmlns:any")).isEqualTo(ANY_NAMESPACE.uri());
+        assertThat(dom.hasAttribute("xmlns:null")).isFalse();
+    }
+
+    private ExtensionElement nested(int depth) {
+        ExtensionElement element = element("value", "deepest");
+        for (int i = 1; i < depth; i++) {
+            element = element(i == depth - 1 ? "root" : "level", element);
+        }
+        return element;
+    }
+
     private String marshalElement(ExtensionElement element) throws IOException, JAXBException {
         try (StringWriter writer = new StringWriter()) {
             Marshaller marshaller = marshaller();
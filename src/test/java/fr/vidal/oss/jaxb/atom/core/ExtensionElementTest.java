@@ -1,9 +1,11 @@
 package fr.vidal.oss.jaxb.atom.core;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -64,6 +66,20 @@ public class ExtensionElementTest {
         assertThat(element.tagName()).isEqualTo(tagName);
     }
 
+    @Test
+    public void keeps_hash_when_builder_is_reused_after_build() {
+        StructuredElement.Builder builder = ExtensionElements.structuredElement("rootElement", aChildElement("child"));
+        StructuredElement element = builder.build();
+        int hash = element.hashCode();
+
+        builder.addChild(aChildElement("other"));
+
+        assertThat(element.getExtensionElements()).hasSize(1);
+        assertThat(element.hashCode()).isEqualTo(hash);
+        assertThat(new HashSet<>(singletonList(element)))
+            .contains(ExtensionElements.structuredElement("rootElement", aChildElement("child")).build());
+    }
+
     @Test
     public void should_contains_value_when_build_with() {
         SimpleElement rootElement = ExtensionElements.simpleElement("rootElement", "content").build();
@@ -0,0 +1,191 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import fr.vidal.oss.jaxb.atom.metrics.AtomInstrumentation;
+import fr.vidal.oss.jaxb.atom.metrics.RecordingAtomMetrics;
+import fr.vidal.oss.jaxb.atom.stream.FeedWriter;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExtensionRegistryTest {
+
+    private static final String VIDAL_URI = "http://api.vidal.net/-/spec/vidal-api/1.0/";
+    private static final QName ID = new QName(VIDAL_URI, "id");
+    private static final QName DOSAGE = new QName(VIDAL_URI, "dosage");
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"" + VIDAL_URI + "\">\n" +
+        "    <title>Products</title>\n" +
+        "    <id>urn:feed</id>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <entry>\n" +
+        "        <title>SINTROM 4 mg</title>\n" +
+        "        <link href=\"/rest/api/product/15070\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <vidal:id>15070</vidal:id>\n" +
+        "        <vidal:dosage unit=\"mg\"><vidal:dose>10.0</vidal:dose></vidal:dosage>\n" +
+        "        <vidal:name>SINTROM</vidal:name>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    private JAXBContext context;
+    private ExtensionRegistry registry;
+
+    @Before
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        registry = ExtensionRegistry.builder()
+            .register(ID, new IntegerCodec())
+            .register(DOSAGE, Dosage.class)
+            .build();
+    }
+
+    @Test
+    public void reads_registered_elements_as_typed_values() throws Exception {
+        Feed feed = (Feed) AtomJaxb.createUnmarshaller(context, registry).unmarshal(new StringReader(XML));
+
+        List<ExtensionElement> elements = extensionElements(feed);
+        assertThat(elements).hasSize(3);
+        assertThat(((TypedElement<?>) elements.get(0)).value(Integer.class)).isEqualTo(15070);
+        Dosage dosage = ((TypedElement<?>) elements.get(1)).value(Dosage.class);
+        assertThat(dosage.unit).isEqualTo("mg");
+        assertThat(dosage.dose).isEqualTo(10.0);
+        assertThat(elements.get(2)).isInstanceOf(SimpleElement.class);
+    }
+
+    @Test
+    public void writes_typed_values_back() throws Exception {
+        Dosage dosage = new Dosage();
+        dosage.unit = "mg";
+        dosage.dose = 10.0;
+        Feed feed = feed(entry()
+            .addExtensionElement(TypedElement.of(new QName(VIDAL_URI, "id", "vidal"), 15070))
+            .addExtensionElement(TypedElement.of(new QName(VIDAL_URI, "dosage", "vidal"), dosage))
+            .build());
+        StringWriter xml = new StringWriter();
+
+        AtomJaxb.createMarshaller(context, registry).marshal(feed, xml);
+
+        Feed generic = (Feed) context.createUnmarshaller().unmarshal(new StringReader(xml.toString()));
+        List<ExtensionElement> elements = extensionElements(generic);
+        assertThat(((SimpleElement) elements.get(0)).value()).isEqualTo("15070");
+        StructuredElement dosageElement = (StructuredElement) elements.get(1);
+        assertThat(dosageElement.tagName()).isEqualTo("dosage");
+        assertThat(dosageElement.attributes()).contains(Attribute.builder("unit", "mg").build());
+        assertThat(((SimpleElement) dosageElement.getExtensionElements().iterator().next()).value()).isEqualTo("10.0");
+    }
+
+    @Test
+    public void streams_typed_values_through_their_codec() throws Exception {
+        Feed feed = (Feed) AtomJaxb.createUnmarshaller(context, registry).unmarshal(new StringReader(XML));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        FeedWriter writer = FeedWriter.create(out);
+        writer.write(feed);
+        writer.close();
+
+        Feed typed = (Feed) AtomJaxb.createUnmarshaller(context, registry).unmarshal(new ByteArrayInputStream(out.toByteArray()));
+        List<ExtensionElement> elements = extensionElements(typed);
+        assertThat(((TypedElement<?>) elements.get(0)).value(Integer.class)).isEqualTo(15070);
+        assertThat(((TypedElement<?>) elements.get(1)).value(Dosage.class).dose).isEqualTo(10.0);
+        assertThat(((SimpleElement) elements.get(2)).value()).isEqualTo("SINTROM");
+    }
+
+    @Test
+    public void rejects_streaming_typed_elements_without_codec() {
+        Feed feed = feed(entry()
+            .addExtensionElement(TypedElement.of(new QName(VIDAL_URI, "unknown", "vidal"), 42))
+            .build());
+
+        assertThatThrownBy(() -> FeedWriter.create(new ByteArrayOutputStream()).write(feed))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("No codec registered for extension element {" + VIDAL_URI + "}unknown");
+    }
+
+    @Test
+    public void keeps_registry_of_instrumented_unmarshaller() throws Exception {
+        RecordingAtomMetrics metrics = new RecordingAtomMetrics();
+
+        Feed feed = (Feed) AtomInstrumentation.instrument(AtomJaxb.createUnmarshaller(context, registry), metrics)
+            .unmarshal(new StringReader(XML));
+
+        assertThat(extensionElements(feed).get(0)).isInstanceOf(TypedElement.class);
+    }
+
+    @Test
+    public void rejects_typed_elements_without_codec() {
+        Feed feed = feed(entry()
+            .addExtensionElement(TypedElement.of(new QName(VIDAL_URI, "unknown", "vidal"), 42))
+            .build());
+
+        assertThatThrownBy(() -> AtomJaxb.createMarshaller(context, registry).marshal(feed, new StringWriter()))
+            .isInstanceOf(MarshalException.class)
+            .hasStackTraceContaining("No codec registered for extension element {" + VIDAL_URI + "}unknown");
+    }
+
+    private static Entry.Builder entry() {
+        return Entry.builder()
+            .withId("urn:entry")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("/entry").build());
+    }
+
+    private static Feed feed(Entry entry) {
+        return Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("/feed").build())
+            .addEntry(entry)
+            .build();
+    }
+
+    private static List<ExtensionElement> extensionElements(Feed feed) {
+        return new ArrayList<>(feed.getEntries().iterator().next().getExtensionElements());
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    static class Dosage {
+
+        @XmlAttribute
+        String unit;
+        @XmlElement(namespace = VIDAL_URI)
+        double dose;
+    }
+
+    private static class IntegerCodec implements ExtensionCodec<Integer> {
+
+        @Override
+        public Integer decode(Element element) {
+            return Integer.valueOf(element.getTextContent());
+        }
+
+        @Override
+        public Element encode(QName name, Integer value, Document document) {
+            Element element = document.createElementNS(name.getNamespaceURI(), "vidal:" + name.getLocalPart());
+            element.setTextContent(value.toString());
+            return element;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static fr.vidal.oss.jaxb.atom.EntryFixtures.productEntry;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FeedCollectorsTest {
+
+    private static final Feed HEADER = Feed.builder()
+        .withTitle("Products")
+        .withSubtitle("All products")
+        .withId("urn:feed")
+        .withUpdateDate(new Date(0))
+        .addLink(Link.builder("/rest/api/products").build())
+        .addEntry(productEntry(0, 0))
+        .build();
+
+    @Test
+    public void collects_entries_in_encounter_order_in_parallel() {
+        Feed feed = IntStream.range(1, 10_000).parallel()
+            .mapToObj(index -> productEntry(index, index % 7))
+            .collect(FeedCollectors.toFeed(HEADER));
+
+        assertThat(feed.getTitle()).isEqualTo("Products");
+        assertThat(feed.getSubtitle()).isEqualTo("All products");
+        assertThat(feed.getLinks()).containsExactlyElementsOf(HEADER.getLinks());
+        assertThat(ids(feed)).isEqualTo(IntStream.range(0, 10_000).mapToObj(index -> "vidal://product/" + index).collect(toList()));
+    }
+
+    @Test
+    public void collects_entries_most_recent_first() {
+        Feed feed = IntStream.of(1, 2, 3, 4, 1).parallel()
+            .mapToObj(index -> productEntry(index, index % 3))
+            .collect(FeedCollectors.toFeed(HEADER, FeedCollectors.mostRecentFirst()));
+
+        assertThat(ids(feed)).containsExactly(
+            "vidal://product/0",
+            "vidal://product/2",
+            "vidal://product/1",
+            "vidal://product/4",
+            "vidal://product/3");
+    }
+
+    @Test
+    public void keeps_first_encountered_entry_of_each_id_in_parallel() {
+        Feed feed = IntStream.range(0, 10_000).parallel()
+            .mapToObj(index -> productEntry(index % 100, index))
+            .collect(FeedCollectors.toFeed(HEADER));
+
+        assertThat(ids(feed)).isEqualTo(IntStream.range(0, 100).mapToObj(index -> "vidal://product/" + index).collect(toList()));
+        assertThat(updateTimes(feed)).isEqualTo(IntStream.range(0, 100).mapToObj(Long::valueOf).collect(toList()));
+    }
+
+    @Test
+    public void merges_sorted_entries_keeping_first_encountered_of_each_id_in_parallel() {
+        Feed feed = IntStream.range(0, 10_000).parallel()
+            .mapToObj(index -> productEntry(index % 100, index))
+            .collect(FeedCollectors.toFeed(HEADER, FeedCollectors.mostRecentFirst()));
+
+        List<Long> expected = IntStream.iterate(99, index -> index - 1).limit(99).mapToObj(Long::valueOf).collect(toList());
+        expected.add(0, 0L);
+        assertThat(updateTimes(feed)).isEqualTo(expected);
+    }
+
+    private static List<Long> updateTimes(Feed feed) {
+        return feed.getEntries().stream().map(entry -> entry.getUpdateDate().getTime()).collect(toList());
+    }
+
+    private static List<String> ids(Feed feed) {
+        return feed.getEntries().stream().map(Entry::getId).collect(toList());
+    }
+}
@@ -0,0 +1,108 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NamespaceHoistingTest {
+
+    private static final Namespace VIDAL = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+    private static final Namespace OTHER_VIDAL = Namespace.builder("urn:other").withPrefix("vidal").build();
+    private static final Namespace UNIT = Namespace.builder("urn:unit").withPrefix("u").build();
+
+    private JAXBContext context;
+
+    @Before
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+    }
+
+    @Test
+    public void collects_prefixed_namespaces_first_one_winning() {
+        assertThat(NamespaceHoisting.collect(feed(3))).containsExactly(VIDAL, UNIT);
+    }
+
+    @Test
+    public void declares_namespaces_once_on_feed() throws Exception {
+        Feed feed = feed(3);
+
+        String xml = marshal(feed, NamespaceHoisting.collect(feed));
+
+        assertThat(occurrences(xml, "xmlns:vidal=\"" + VIDAL.uri() + "\"")).isEqualTo(1);
+        assertThat(occurrences(xml, "xmlns:u=")).isEqualTo(1);
+        assertThat(xml).contains("<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"" + VIDAL.uri() + "\" xmlns:u=\"urn:unit\">");
+        assertThat(xml).contains("<vidal:other xmlns:vidal=\"urn:other\">");
+        assertThat(values((Feed) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(xml.getBytes(UTF_8)))))
+            .containsExactlyElementsOf(values(feed));
+    }
+
+    @Test
+    public void keeps_declarations_of_namespaces_not_hoisted() throws Exception {
+        Feed feed = feed(2);
+
+        String xml = marshal(feed, singletonList(UNIT));
+
+        assertThat(occurrences(xml, "xmlns:vidal=\"" + VIDAL.uri() + "\"")).isEqualTo(4);
+        assertThat(occurrences(xml, "xmlns:u=")).isEqualTo(1);
+    }
+
+    private String marshal(Feed feed, Collection<Namespace> namespaces) throws Exception {
+        Marshaller marshaller = context.createMarshaller();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NamespaceHoisting.marshal(marshaller, feed, out, namespaces);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static Feed feed(int entries) {
+        Feed.Builder builder = Feed.builder()
+            .withTitle("Products")
+            .withId("urn:feed")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/products").build());
+        for (int i = 0; i < entries; i++) {
+            Entry.Builder entry = Entry.builder()
+                .withTitle("Product " + i)
+                .withId("vidal://product/" + i)
+                .withUpdateDate(new Date(0))
+                .addLink(Link.builder("/rest/api/product/" + i).build())
+                .addExtensionElement(ExtensionElements.simpleElement("id", String.valueOf(i)).withNamespace(VIDAL).build())
+                .addExtensionElement(ExtensionElements.structuredElement("dosage",
+                    ExtensionElements.simpleElement("dose", "10.0").withNamespace(VIDAL).build())
+                    .withNamespace(VIDAL)
+                    .addAttribute(Attribute.builder("unit", "mg").withNamespace(UNIT).build())
+                    .build());
+            if (i == 0) {
+                entry.addExtensionElement(ExtensionElements.simpleElement("other", "x").withNamespace(OTHER_VIDAL).build());
+            }
+            builder.addEntry(entry.build());
+        }
+        return builder.build();
+    }
+
+    private static List<String> values(Feed feed) {
+        return feed.getEntries().stream()
+            .flatMap(entry -> entry.getExtensionElements().stream())
+            .map(element -> element.namespace().uri() + " " + element.tagName())
+            .collect(toList());
+    }
+
+    private static int occurrences(String text, String token) {
+        int count = 0;
+        for (int index = text.indexOf(token); index >= 0; index = text.indexOf(token, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TextSourceTest {
+
+    private Path file;
+
+    @Before
+    public void prepare() throws Exception {
+        file = Files.createTempFile("contents", ".html");
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void reads_file_region() throws Exception {
+        Files.write(file, "<p>skipped</p><p>Posologie : 1 comprimé</p><p>skipped</p>".getBytes(UTF_8));
+
+        TextSource source = TextSource.ofFileRegion(file, 14, 30, UTF_8);
+
+        assertThat(source.asCharSequence().toString()).isEqualTo("<p>Posologie : 1 comprimé</p>");
+        assertThat(TextSource.ofFile(file, UTF_8).asCharSequence().toString()).endsWith("<p>skipped</p>");
+    }
+
+    @Test
+    public void pulls_streamed_contents_lazily() {
+        int[] calls = new int[1];
+        Contents contents = Contents.builder()
+            .withContentsSource(TextSource.ofSupplier(() -> "call #" + ++calls[0]))
+            .build();
+
+        assertThat(contents.isStreamed()).isTrue();
+        assertThat(calls[0]).isZero();
+        assertThat(contents.getContents()).isEqualTo("call #1");
+        assertThat(Contents.builder().withContents("eager").build().isStreamed()).isFalse();
+    }
+
+    @Test
+    public void accepts_null_values() {
+        assertThat(TextSource.of(null)).isNull();
+        assertThat(Contents.builder().withContents(null).build().getContents()).isNull();
+        assertThat(Summary.builder().withValue(null).build().getValue()).isNull();
+    }
+
+    @Test
+    public void marshals_streamed_values_with_jaxb() throws Exception {
+        Files.write(file, "<p>From file</p>".getBytes(UTF_8));
+        Entry entry = Entry.builder()
+            .withId("urn:entry")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .withSummary(Summary.builder().withValueSource(TextSource.ofSupplier(() -> new StringBuilder("Summary"))).build())
+            .withContents(Contents.builder().withContentsSource(TextSource.ofFile(file, UTF_8)).build())
+            .build();
+        Feed feed = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .addEntry(entry)
+            .build();
+        JAXBContext context = AtomJaxb.newContext();
+        StringWriter writer = new StringWriter();
+
+        context.createMarshaller().marshal(feed, writer);
+
+        Feed result = (Feed) context.createUnmarshaller().unmarshal(new StringReader(writer.toString()));
+        Entry resultEntry = result.getEntries().iterator().next();
+        assertThat(resultEntry.getContents().getContents()).isEqualTo("<p>From file</p>");
+        assertThat(resultEntry.getSummary().getValue()).isEqualTo("Summary");
+        assertThat(resultEntry.getContents().isStreamed()).isFalse();
+    }
+
+    @Test
+    public void reports_unreadable_source() throws Exception {
+        Files.delete(file);
+        Contents contents = Contents.builder().withContentsSource(TextSource.ofFile(file, UTF_8)).build();
+
+        assertThatThrownBy(contents::getContents)
+            .isInstanceOf(UncheckedIOException.class)
+            .hasMessageContaining("Cannot read contents from TextSource{file=" + file);
+    }
+}
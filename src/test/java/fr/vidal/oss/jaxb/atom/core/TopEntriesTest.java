@@ -0,0 +1,100 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static fr.vidal.oss.jaxb.atom.EntryFixtures.productEntry;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TopEntriesTest {
+
+    @Test
+    public void keeps_latest_entries() {
+        Random random = new Random(42);
+        List<Entry> candidates = IntStream.range(0, 10_000)
+            .mapToObj(index -> productEntry(index, random.nextInt(1_000_000)))
+            .collect(toList());
+        TopEntries top = TopEntries.latest(50);
+
+        candidates.forEach(top::offer);
+
+        assertThat(top.size()).isEqualTo(50);
+        assertThat(top.toList()).isEqualTo(candidates.stream()
+            .sorted(Comparator.comparing(Entry::getUpdateDate).reversed())
+            .limit(50)
+            .collect(toList()));
+    }
+
+    @Test
+    public void keeps_offer_order_of_equal_entries_and_first_entry_of_an_id() {
+        TopEntries top = TopEntries.latest(3);
+
+        assertThat(top.offer(productEntry(1, 1000))).isTrue();
+        assertThat(top.offer(productEntry(2, 1000))).isTrue();
+        assertThat(top.offer(productEntry(1, 5000))).isFalse();
+        assertThat(top.offer(productEntry(3, 2000))).isTrue();
+        assertThat(top.accepts(new Date(1000))).isFalse();
+        assertThat(top.accepts(1000L)).isFalse();
+        assertThat(top.accepts(1001L)).isTrue();
+        assertThat(top.offer(productEntry(4, 1000))).isFalse();
+        assertThat(top.offer(productEntry(5, 3000))).isTrue();
+
+        assertThat(ids(top.toList())).containsExactly("vidal://product/5", "vidal://product/3", "vidal://product/1");
+    }
+
+    @Test
+    public void keeps_first_entries_in_custom_order() {
+        TopEntries top = TopEntries.of(2, Comparator.comparing(Entry::getTitle));
+
+        IntStream.of(3, 1, 4, 2).forEach(index -> top.offer(productEntry(index, 0)));
+
+        assertThat(ids(top.toList())).containsExactly("vidal://product/1", "vidal://product/2");
+    }
+
+    @Test
+    public void builds_feed_of_latest_entries() {
+        Feed.Builder builder = Feed.builder()
+            .withTitle("Products")
+            .withId("urn:feed")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/products").build())
+            .addEntry(productEntry(1, 1000))
+            .withLatestEntries(2);
+
+        Feed feed = builder.addEntry(productEntry(2, 3000)).addEntry(productEntry(3, 2000)).build();
+
+        assertThat(ids(feed.getEntries())).containsExactly("vidal://product/2", "vidal://product/3");
+    }
+
+    @Test
+    public void orders_entries_without_loaded_update_date_by_custom_order_only() {
+        TopEntries top = TopEntries.of(2, Comparator.comparing(Entry::getTitle));
+        TopEntries latest = TopEntries.latest(2);
+
+        for (int index = 3; index > 0; index--) {
+            assertThat(top.offer(withoutUpdateDate(index))).isTrue();
+        }
+
+        assertThat(ids(top.toList())).containsExactly("vidal://product/1", "vidal://product/2");
+        assertThatThrownBy(() -> latest.offer(withoutUpdateDate(1)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Entry vidal://product/1 cannot be ordered by update date, its update date was not loaded");
+    }
+
+    private static Entry withoutUpdateDate(int index) {
+        return productEntry(index).withUnloadedFields(EnumSet.of(EntryField.UPDATE_DATE)).build();
+    }
+
+    private static List<String> ids(Collection<Entry> entries) {
+        return entries.stream().map(Entry::getId).collect(toList());
+    }
+}
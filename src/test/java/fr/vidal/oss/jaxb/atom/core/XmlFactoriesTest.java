@@ -0,0 +1,59 @@
+package fr.vidal.oss.jaxb.atom.core;
+
+import fr.vidal.oss.jaxb.atom.stream.FeedReader;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.UnmarshalException;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class XmlFactoriesTest {
+
+    private static final String BILLION_LAUGHS = "<?xml version=\"1.0\"?>\n" +
+        "<!DOCTYPE feed [\n" +
+        "  <!ENTITY lol \"lol\">\n" +
+        "  <!ENTITY lol1 \"&lol;&lol;&lol;&lol;&lol;&lol;&lol;&lol;&lol;&lol;\">\n" +
+        "  <!ENTITY lol2 \"&lol1;&lol1;&lol1;&lol1;&lol1;&lol1;&lol1;&lol1;&lol1;&lol1;\">\n" +
+        "  <!ENTITY lol3 \"&lol2;&lol2;&lol2;&lol2;&lol2;&lol2;&lol2;&lol2;&lol2;&lol2;\">\n" +
+        "]>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>&lol3;</title></feed>";
+
+    private static final String EXTERNAL_ENTITY = "<?xml version=\"1.0\"?>\n" +
+        "<!DOCTYPE feed [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>&secret;</title></feed>";
+
+    @Test
+    public void shares_factories() {
+        assertThat(XmlFactories.inputFactory()).isSameAs(XmlFactories.inputFactory());
+        assertThat(XmlFactories.outputFactory()).isSameAs(XmlFactories.outputFactory());
+    }
+
+    @Test
+    public void rejects_document_types_when_unmarshalling() throws Exception {
+        JAXBContext context = AtomJaxb.newContext();
+
+        assertThatThrownBy(() -> AtomFormat.XML.unmarshal(context.createUnmarshaller(), new ByteArrayInputStream(BILLION_LAUGHS.getBytes(UTF_8))))
+            .isInstanceOf(UnmarshalException.class);
+        assertThatThrownBy(() -> AtomFormat.XML.unmarshal(context.createUnmarshaller(), new ByteArrayInputStream(EXTERNAL_ENTITY.getBytes(UTF_8))))
+            .isInstanceOf(UnmarshalException.class);
+    }
+
+    @Test
+    public void rejects_document_types_when_parsing_dom() {
+        assertThatThrownBy(() -> XmlFactories.newDocumentBuilder().parse(new InputSource(new StringReader(BILLION_LAUGHS))))
+            .hasMessageContaining("DOCTYPE");
+    }
+
+    @Test
+    public void does_not_expand_entities_when_streaming() {
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(BILLION_LAUGHS.getBytes(UTF_8)));
+
+        assertThatThrownBy(reader::header).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package fr.vidal.oss.jaxb.atom.extension;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static fr.vidal.oss.jaxb.atom.core.ExtensionElements.simpleElement;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExtensionPathTest {
+
+    private static final Namespace VIDAL = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:v=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">\n" +
+        "    <title>Products</title>\n" +
+        "    <id>urn:feed</id>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <entry>\n" +
+        "        <title>SINTROM 4 mg</title>\n" +
+        "        <link href=\"/rest/api/product/15070\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <v:id>15070</v:id>\n" +
+        "        <v:product><v:atc code=\"B01AA07\" level=\"5\"/><v:atc code=\"B01AA\"/><v:name>SINTROM</v:name></v:product>\n" +
+        "    </entry>\n" +
+        "    <entry>\n" +
+        "        <title>PREVISCAN 20 mg</title>\n" +
+        "        <link href=\"/rest/api/product/42\"/>\n" +
+        "        <id>vidal://product/42</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <v:id>42</v:id>\n" +
+        "        <v:product><v:atc code=\"B01AA\"/></v:product>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    private Feed feed;
+    private Entry first;
+    private Entry second;
+
+    @Before
+    public void prepare() throws Exception {
+        feed = (Feed) AtomJaxb.newContext().createUnmarshaller().unmarshal(new StringReader(XML));
+        List<Entry> entries = feed.getEntries().stream().collect(toList());
+        first = entries.get(0);
+        second = entries.get(1);
+    }
+
+    @Test
+    public void selects_values_by_qualified_name() {
+        assertThat(ExtensionPath.compile("vidal:product/vidal:atc@code", VIDAL).values(first)).containsExactly("B01AA07", "B01AA");
+        assertThat(ExtensionPath.compile("vidal:product/vidal:name", VIDAL).values(first)).containsExactly("SINTROM");
+        assertThat(ExtensionPath.compile("vidal:id", VIDAL).firstValue(second)).isEqualTo("42");
+        assertThat(ExtensionPath.compile("vidal:product/vidal:name", VIDAL).firstValue(second)).isNull();
+        assertThat(ExtensionPath.compile("product/atc@code", Namespace.builder(VIDAL.uri()).build()).values(second)).containsExactly("B01AA");
+    }
+
+    @Test
+    public void selects_elements_with_wildcards() {
+        assertThat(ExtensionPath.compile("vidal:product/*", VIDAL).elements(first.getExtensionElements())).hasSize(3);
+        assertThat(ExtensionPath.compile("*", VIDAL).elements(second.getExtensionElements())).hasSize(2);
+        assertThat(ExtensionPath.compile("rank").values(singletonList(simpleElement("rank", "1").build()))).containsExactly("1");
+        assertThat(ExtensionPath.compile("vidal:*/vidal:atc@level", VIDAL).values(first)).containsExactly("5");
+    }
+
+    @Test
+    public void rejects_invalid_paths() {
+        assertThatThrownBy(() -> ExtensionPath.compile("other:product"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Unbound prefix other in extension path: other:product");
+        assertThatThrownBy(() -> ExtensionPath.compile("vidal:product//vidal:atc", VIDAL))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Invalid extension path");
+        assertThatThrownBy(() -> ExtensionPath.compile("vidal:product@", VIDAL))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Invalid extension path");
+    }
+
+    @Test
+    public void indexes_values_across_entries() {
+        ExtensionIndex index = ExtensionIndex.of(feed);
+        ExtensionPath atc = ExtensionPath.compile("vidal:product/vidal:atc@code", VIDAL);
+
+        assertThat(index.entries(atc, "B01AA")).containsExactly(first, second);
+        assertThat(index.entries(ExtensionPath.compile("vidal:product/vidal:atc@code", VIDAL), "B01AA07")).containsExactly(first);
+        assertThat(index.entries(atc, "N02BE01")).isEmpty();
+        assertThat(index.values(atc, second)).containsExactly("B01AA");
+        assertThat(index.distinctValues(atc)).containsOnly("B01AA07", "B01AA");
+    }
+}
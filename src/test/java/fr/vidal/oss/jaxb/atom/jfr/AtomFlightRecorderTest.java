@@ -0,0 +1,42 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.core.AtomFormat.XML;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AtomFlightRecorderTest {
+
+    @Test
+    public void marshals_and_unmarshals_through_instrumented_jaxb() throws Exception {
+        JAXBContext context = AtomFlightRecorder.newContext();
+        Feed feed = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date(1329350400000L))
+            .addLink(Link.builder("http://example.org/").build())
+            .addEntry(Entry.builder()
+                .withId("urn:entry")
+                .withTitle("Entry")
+                .withUpdateDate(new Date(1329350400000L))
+                .addLink(Link.builder("http://example.org/entry").build())
+                .build())
+            .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomFlightRecorder.marshal(XML, AtomFlightRecorder.instrument(context.createMarshaller()), feed, out);
+        Feed result = (Feed) AtomFlightRecorder.unmarshal(XML, AtomFlightRecorder.instrument(context.createUnmarshaller()),
+            new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(result.getId()).isEqualTo("urn:feed");
+        assertThat(result.getEntries()).containsExactlyElementsOf(feed.getEntries());
+    }
+}
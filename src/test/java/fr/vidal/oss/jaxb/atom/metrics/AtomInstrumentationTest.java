@@ -0,0 +1,95 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import static fr.vidal.oss.jaxb.atom.core.AtomFormat.XML;
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.MARSHAL;
+import static fr.vidal.oss.jaxb.atom.metrics.AtomMetrics.Operation.UNMARSHAL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AtomInstrumentationTest {
+
+    private static final Namespace VIDAL_NAMESPACE = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+
+    private JAXBContext context;
+    private RecordingAtomMetrics metrics;
+
+    @Before
+    public void prepare() throws JAXBException {
+        context = AtomJaxb.newContext();
+        metrics = new RecordingAtomMetrics();
+    }
+
+    @Test
+    public void reports_marshalling_metrics() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        AtomInstrumentation.marshal(XML, AtomInstrumentation.instrument(context.createMarshaller(), metrics), feed(3), out, metrics);
+
+        assertThat(metrics.feedLatency(MARSHAL).count()).isEqualTo(1L);
+        assertThat(metrics.headerLatency(MARSHAL).count()).isEqualTo(1L);
+        assertThat(metrics.entryLatency(MARSHAL).count()).isEqualTo(3L);
+        assertThat(metrics.entryCount(MARSHAL)).isEqualTo(3L);
+        assertThat(metrics.extensionElementCount(MARSHAL)).isEqualTo(3L);
+        assertThat(metrics.dateLatency(MARSHAL).count()).isEqualTo(4L);
+        assertThat(metrics.bytes(MARSHAL)).isEqualTo((long) out.size());
+    }
+
+    @Test
+    public void reports_unmarshalling_metrics() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.createMarshaller().marshal(feed(2), out);
+
+        Feed feed = (Feed) AtomInstrumentation.unmarshal(XML, AtomInstrumentation.instrument(context.createUnmarshaller(), metrics),
+            new ByteArrayInputStream(out.toByteArray()), metrics);
+
+        assertThat(feed.getEntries()).hasSize(2);
+        assertThat(metrics.feedLatency(UNMARSHAL).count()).isEqualTo(1L);
+        assertThat(metrics.entryLatency(UNMARSHAL).count()).isEqualTo(2L);
+        assertThat(metrics.entryCount(UNMARSHAL)).isEqualTo(2L);
+        assertThat(metrics.extensionElementCount(UNMARSHAL)).isEqualTo(2L);
+        assertThat(metrics.bytes(UNMARSHAL)).isEqualTo((long) out.size());
+        assertThat(metrics.feedLatency(MARSHAL).count()).isZero();
+    }
+
+    @Test
+    public void installs_nothing_when_disabled() throws Exception {
+        Marshaller marshaller = context.createMarshaller();
+
+        AtomInstrumentation.instrument(marshaller, AtomMetrics.NONE);
+
+        assertThat(marshaller.getListener()).isNull();
+    }
+
+    private static Feed feed(int entryCount) {
+        Feed.Builder builder = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date(1329350400000L))
+            .addLink(Link.builder("http://example.org/").build());
+        for (int i = 0; i < entryCount; i++) {
+            builder.addEntry(Entry.builder()
+                .withId("urn:entry:" + i)
+                .withTitle("Entry " + i)
+                .withUpdateDate(new Date(1329350400000L))
+                .addLink(Link.builder("http://example.org/" + i).build())
+                .addExtensionElement(ExtensionElements.simpleElement("id", String.valueOf(i)).withNamespace(VIDAL_NAMESPACE).build())
+                .build());
+        }
+        return builder.build();
+    }
+}
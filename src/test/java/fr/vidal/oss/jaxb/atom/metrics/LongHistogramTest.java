@@ -0,0 +1,30 @@
+package fr.vidal.oss.jaxb.atom.metrics;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongHistogramTest {
+
+    @Test
+    public void buckets_are_contiguous() {
+        for (int index = 0; index < LongHistogram.index(Long.MAX_VALUE); index++) {
+            assertThat(LongHistogram.index(LongHistogram.lowestValue(index))).isEqualTo(index);
+            assertThat(LongHistogram.index(LongHistogram.highestValue(index))).isEqualTo(index);
+        }
+    }
+
+    @Test
+    public void computes_percentiles_within_bucket_precision() {
+        LongHistogram histogram = new LongHistogram();
+        IntStream.rangeClosed(1, 1000).parallel().forEach(histogram::record);
+
+        assertThat(histogram.count()).isEqualTo(1000L);
+        assertThat(histogram.max()).isEqualTo(1000L);
+        assertThat(histogram.mean()).isGreaterThan(500.4).isLessThan(500.6);
+        assertThat(histogram.valueAtPercentile(50)).isBetween(500L, 563L);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(1000L);
+    }
+}
@@ -0,0 +1,111 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AtomChannelsTest {
+
+    private JAXBContext context;
+    private Feed feed;
+    private Path file;
+
+    @Before
+    public void prepare() throws Exception {
+        context = AtomJaxb.newContext();
+        Feed.Builder builder = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build());
+        for (int i = 0; i < 50; i++) {
+            builder.addEntry(Entry.builder()
+                .withId("urn:entry:" + i)
+                .withTitle("Entry " + i)
+                .withUpdateDate(new Date())
+                .addLink(Link.builder("http://example.org/" + i).build())
+                .withContents(Contents.builder().withType(ContentType.builder("html").build()).withContents("<p>Entry é " + i + "</p>").build())
+                .build());
+        }
+        feed = builder.build();
+        file = Files.createTempFile("feed", ".xml");
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void marshals_to_channel_with_gathering_writes() throws Exception {
+        ByteBufferPool pool = ByteBufferPool.direct(64, 4);
+
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            AtomChannels.marshal(context.createMarshaller(), feed, channel, pool);
+        }
+
+        assertThat(unmarshal(Files.readAllBytes(file)).getEntries()).containsExactlyElementsOf(feed.getEntries());
+    }
+
+    @Test
+    public void marshals_to_asynchronous_file_channel() throws Exception {
+        ByteBufferPool pool = ByteBufferPool.direct(128, 8);
+        byte[] prefix = "ignored".getBytes();
+        Files.write(file, prefix);
+
+        long end;
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, WRITE)) {
+            end = AtomChannels.marshal(context.createMarshaller(), feed, channel, prefix.length, pool);
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        assertThat((long) bytes.length).isEqualTo(end);
+        assertThat(unmarshal(Arrays.copyOfRange(bytes, prefix.length, bytes.length)).getEntries())
+            .containsExactlyElementsOf(feed.getEntries());
+    }
+
+    @Test
+    public void hands_direct_buffers_over_to_consumer() throws Exception {
+        ByteBufferPool pool = ByteBufferPool.direct(256, 2);
+        List<Boolean> direct = new ArrayList<>();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        FeedWriter writer = FeedWriter.create(ByteSinks.of(pool, buffer -> {
+            direct.add(buffer.isDirect());
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            received.write(bytes, 0, bytes.length);
+            pool.release(buffer);
+        }));
+        writer.write(feed);
+
+        assertThat(direct).isNotEmpty();
+        assertThat(direct).doesNotContain(false);
+        assertThat(unmarshal(received.toByteArray()).getEntries()).containsExactlyElementsOf(feed.getEntries());
+    }
+
+    private Feed unmarshal(byte[] bytes) throws Exception {
+        return (Feed) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(bytes));
+    }
+}
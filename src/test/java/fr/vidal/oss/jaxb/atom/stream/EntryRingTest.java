@@ -0,0 +1,148 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static fr.vidal.oss.jaxb.atom.EntryFixtures.productEntry;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryRingTest {
+
+    @Test
+    public void keeps_latest_entries_without_duplicates() {
+        EntryRing ring = EntryRing.create(3);
+        ring.append(entry(1, "first"));
+        ring.append(entry(2, "first"));
+        ring.append(entry(3, "first"));
+        ring.append(entry(2, "second"));
+
+        List<Entry> snapshot = ring.snapshot();
+
+        assertThat(ids(snapshot)).containsExactly("vidal://product/2", "vidal://product/3");
+        assertThat(snapshot.get(0).getTitle()).isEqualTo("second");
+        assertThat(ring.appendedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void keeps_latest_entries_appended_concurrently() throws Exception {
+        EntryRing ring = EntryRing.create(100);
+        int producers = 4;
+        int appends = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                int offset = producer * appends;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < appends; i++) {
+                        ring.append(entry(offset + i, "title"));
+                        assertThat(ring.snapshot().size()).isLessThanOrEqualTo(100);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> ids = ids(ring.snapshot());
+        assertThat(ids).hasSize(100);
+        assertThat(new HashSet<>(ids)).hasSize(100);
+        assertThat(ring.appendedCount()).isEqualTo((long) producers * appends);
+    }
+
+    @Test
+    public void takes_snapshots_without_gaps_while_appending() throws Exception {
+        EntryRing ring = EntryRing.create(8);
+        int producers = 4;
+        int appends = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                // each producer appends the indexes congruent to its number, in increasing order
+                int remainder = producer;
+                List<Entry> entries = IntStream.range(0, appends)
+                    .mapToObj(i -> entry(i * producers + remainder, "title"))
+                    .collect(toList());
+                results.add(executor.submit(() -> entries.forEach(ring::append)));
+            }
+            while (!results.stream().allMatch(Future::isDone)) {
+                List<Integer> indexes = indexes(ring.snapshot());
+                // only the latest append of each producer may still be in progress, so no other one is missing
+                for (int producer = 0; producer < producers; producer++) {
+                    int remainder = producer;
+                    List<Integer> appended = indexes.stream().filter(index -> index % producers == remainder).collect(toList());
+                    for (int i = 1; i < appended.size(); i++) {
+                        assertThat(appended.get(i)).isEqualTo(appended.get(i - 1) - producers);
+                    }
+                }
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ring.snapshot()).hasSize(8);
+    }
+
+    @Test
+    public void writes_snapshot() throws Exception {
+        EntryRing ring = EntryRing.create(2);
+        ring.append(entry(1, "one"));
+        ring.append(entry(2, "two"));
+        ring.append(entry(3, "three"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeedWriter writer = FeedWriter.create(out);
+        writer.startFeed(Feed.builder()
+            .withTitle("Activity")
+            .withId("urn:activity")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/activity").build())
+            .build());
+
+        assertThat(writer.writeLatestEntries(ring)).isEqualTo(2);
+        writer.endFeed();
+
+        assertThat(FeedReader.create(new ByteArrayInputStream(out.toByteArray())).entries().map(Entry::getId).collect(toList()))
+            .containsExactly("vidal://product/3", "vidal://product/2");
+    }
+
+    private static List<String> ids(List<Entry> entries) {
+        return entries.stream().map(Entry::getId).collect(toList());
+    }
+
+    private static List<Integer> indexes(List<Entry> entries) {
+        return entries.stream().map(entry -> Integer.valueOf(entry.getId().substring("vidal://product/".length()))).collect(toList());
+    }
+
+    private static Entry entry(int index, String title) {
+        return productEntry(index)
+            .withTitle(title)
+            .withUpdateDate(new Date(index * 1000L))
+            .build();
+    }
+}
@@ -0,0 +1,158 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.stream.XMLOutputFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static fr.vidal.oss.jaxb.atom.EntryFixtures.productEntry;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryStoreTest {
+
+    private static final Namespace VIDAL = Namespace.builder("http://api.vidal.net/-/spec/vidal-api/1.0/").withPrefix("vidal").build();
+
+    private Path directory;
+
+    @Before
+    public void prepare() throws Exception {
+        directory = Files.createTempDirectory("store");
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        Files.deleteIfExists(directory.resolve("entries"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void stores_entries_off_heap() throws Exception {
+        try (EntryStore store = EntryStore.create()) {
+            Entry entry = entry(1, 1000, "Hello");
+            store.put(entry);
+
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.contains("vidal://product/1")).isTrue();
+            assertThat(store.getUpdateTime("vidal://product/1")).isEqualTo(1000L);
+            Entry stored = store.get("vidal://product/1");
+            assertThat(stored).isEqualTo(entry);
+            assertThat(stored.getContents().getContents()).isEqualTo("Hello");
+            assertThat(stored.getExtensionElements().stream().map(element -> element.namespace().uri() + " " + element.tagName()).collect(toList()))
+                .containsExactly(VIDAL.uri() + " id");
+            assertThat(store.get("vidal://product/2")).isNull();
+        }
+    }
+
+    @Test
+    public void replaces_and_removes_entries() throws Exception {
+        try (EntryStore store = EntryStore.create()) {
+            store.put(entry(1, 1000, "Hello"));
+            store.put(entry(1, 2000, "Bye"));
+
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.get("vidal://product/1").getContents().getContents()).isEqualTo("Bye");
+            assertThat(store.garbageBytes()).isPositive();
+
+            assertThat(store.remove("vidal://product/1")).isTrue();
+            assertThat(store.remove("vidal://product/1")).isFalse();
+            assertThat(store.size()).isZero();
+            assertThat(store.contains("vidal://product/1")).isFalse();
+        }
+    }
+
+    @Test
+    public void indexes_many_entries_across_segments_of_mapped_file() throws Exception {
+        try (EntryStore store = EntryStore.open(directory.resolve("entries"), 4096)) {
+            for (int i = 0; i < 5000; i++) {
+                store.put(entry(i, i, "Hello " + i));
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                store.remove("vidal://product/" + i);
+            }
+
+            assertThat(store.size()).isEqualTo(2500);
+            for (int i = 0; i < 5000; i++) {
+                assertThat(store.contains("vidal://product/" + i)).isEqualTo(i % 2 == 1);
+            }
+            assertThat(store.get("vidal://product/4999").getContents().getContents()).isEqualTo("Hello 4999");
+        }
+    }
+
+    @Test
+    public void writes_latest_entries_as_stored() throws Exception {
+        try (EntryStore store = EntryStore.create(4096)) {
+            store.put(entry(1, 3000, "One"));
+            store.put(entry(2, 1000, "Two"));
+            store.put(entry(3, 2000, "Three"));
+            store.put(entry(4, 4000, "Four"));
+            store.remove("vidal://product/4");
+            store.put(entry(2, 5000, "Two again"));
+
+            assertThat(ids(write(store, false))).containsExactly("vidal://product/2", "vidal://product/1", "vidal://product/3");
+            assertThat(ids(write(store, true))).containsExactly("vidal://product/2", "vidal://product/1", "vidal://product/3");
+        }
+    }
+
+    @Test
+    public void writes_entry_by_id() throws Exception {
+        try (EntryStore store = EntryStore.create()) {
+            store.put(entry(1, 1000, "One"));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FeedWriter writer = FeedWriter.create(out);
+            writer.startFeed(header());
+
+            assertThat(writer.writeEntry(store, "vidal://product/1")).isTrue();
+            assertThat(writer.writeEntry(store, "vidal://product/2")).isFalse();
+            writer.endFeed();
+
+            assertThat(ids(out.toByteArray())).containsExactly("vidal://product/1");
+        }
+    }
+
+    private static byte[] write(EntryStore store, boolean replayed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeedWriter writer = replayed
+            ? new FeedWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8"))
+            : FeedWriter.create(out);
+        writer.startFeed(header());
+        assertThat(writer.writeLatestEntries(store, 10)).isEqualTo(3);
+        writer.endFeed();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static List<String> ids(byte[] xml) {
+        return FeedReader.create(new ByteArrayInputStream(xml)).entries().map(Entry::getId).collect(toList());
+    }
+
+    private static Feed header() {
+        return Feed.builder()
+            .withTitle("Products")
+            .withId("urn:feed")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/products").build())
+            .build();
+    }
+
+    private static Entry entry(int index, long updateTime, String contents) {
+        return productEntry(index)
+            .withUpdateDate(new Date(updateTime))
+            .withContents(Contents.builder().withContents(contents).build())
+            .addExtensionElement(ExtensionElements.simpleElement("id", String.valueOf(index)).withNamespace(VIDAL).build())
+            .build();
+    }
+}
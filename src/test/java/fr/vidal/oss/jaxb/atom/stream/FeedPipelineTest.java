@@ -0,0 +1,134 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.Category;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FeedPipelineTest {
+
+    private static final String VIDAL = "http://api.vidal.net/-/spec/vidal-api/1.0/";
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">\n" +
+        "    <title>Search Products - Query :sintrom</title>\n" +
+        "    <link href=\"/rest/api/products?q=sintrom\" rel=\"self\"/>\n" +
+        "    <id>Heidi</id>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <entry vidal:type=\"PRODUCT\">\n" +
+        "        <title>SINTROM 4 mg cp quadriséc</title>\n" +
+        "        <link href=\"/rest/api/product/15070\" rel=\"alternate\"/>\n" +
+        "        <category term=\"PRODUCT\" scheme=\"urn:vidal\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <vidal:id>15070</vidal:id>\n" +
+        "        <internal:cost xmlns:internal=\"urn:internal\">12</internal:cost>\n" +
+        "    </entry>\n" +
+        "    <entry>\n" +
+        "        <title>SNAKE OIL 1 mg</title>\n" +
+        "        <link href=\"/rest/api/product/42\"/>\n" +
+        "        <id>vidal://product/42</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    @Test
+    public void streams_transformed_entries() throws Exception {
+        FeedPipeline pipeline = FeedPipeline.builder()
+            .filter(entry -> !entry.getId().endsWith("/42"))
+            .rewriteLinks(link -> Link.builder("https://proxy.example" + link.getHref()).withRel(link.getRel()).build())
+            .mapCategories(category -> Category.builder(category.getTerm().toLowerCase()).withScheme(category.getScheme()).build())
+            .stripExtensionNamespace("urn:internal")
+            .addExtensionElement(entry -> ExtensionElements.simpleElement("source", entry.getId())
+                .withNamespace(Namespace.builder(VIDAL).withPrefix("vidal").build())
+                .build())
+            .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = pipeline.run(new ByteArrayInputStream(XML.getBytes(UTF_8)), out);
+
+        assertThat(written).isEqualTo(1L);
+        try (FeedReader reader = FeedReader.create(new ByteArrayInputStream(out.toByteArray()))) {
+            Feed header = reader.header();
+            assertThat(header.getLinks().iterator().next().getHref()).isEqualTo("https://proxy.example/rest/api/products?q=sintrom");
+            List<Entry> entries = reader.entries().collect(toList());
+            assertThat(entries).hasSize(1);
+            Entry entry = entries.get(0);
+            assertThat(entry.getLinks().iterator().next().getHref()).isEqualTo("https://proxy.example/rest/api/product/15070");
+            assertThat(entry.getCategories().iterator().next().getTerm()).isEqualTo("product");
+            assertThat(entry.getExtensionElements().stream().map(ExtensionElement::tagName).collect(toList()))
+                .containsExactly("id", "source");
+            assertThat(entry.getAdditionalAttributes()).hasSize(1);
+        }
+    }
+
+    @Test
+    public void does_not_copy_unchanged_entries() throws Exception {
+        List<Entry> before = new ArrayList<>();
+        List<Entry> after = new ArrayList<>();
+        FeedPipeline pipeline = FeedPipeline.builder()
+            .map(entry -> { before.add(entry); return entry; })
+            .rewriteLinks(link -> link.getHref().endsWith("/42") ? Link.builder("/rest/api/product/43").build() : link)
+            .stripExtensionNamespace("urn:unknown")
+            .map(entry -> { after.add(entry); return entry; })
+            .build();
+
+        pipeline.run(new ByteArrayInputStream(XML.getBytes(UTF_8)), new ByteArrayOutputStream());
+
+        assertThat(after.get(0)).isSameAs(before.get(0));
+        assertThat(after.get(1)).isNotSameAs(before.get(1));
+        assertThat(after.get(1).getLinks().iterator().next().getHref()).isEqualTo("/rest/api/product/43");
+    }
+
+    @Test
+    public void keeps_unloaded_fields_of_projected_entries_unloaded() {
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withProjection(EntryProjection.builder(EntryField.ID, EntryField.TITLE, EntryField.LINKS).build())
+            .build();
+        FeedPipeline pipeline = FeedPipeline.builder()
+            .rewriteLinks(link -> Link.builder("https://proxy.example" + link.getHref()).build())
+            .mapCategories(category -> Category.builder(category.getTerm().toLowerCase()).build())
+            .stripExtensionNamespace("urn:internal")
+            .build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options).entries()
+            .map(pipeline::transform)
+            .collect(toList());
+
+        Entry entry = entries.get(0);
+        assertThat(entry.getLinks().iterator().next().getHref()).isEqualTo("https://proxy.example/rest/api/product/15070");
+        assertThat(entry.getUnloadedFields()).isEqualTo(options.getProjection().getUnloadedFields());
+        assertThatThrownBy(entry::getUpdateDate).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(entry::getCategories).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void rejects_extension_additions_to_entries_without_loaded_extensions() {
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withProjection(EntryProjection.builder(EntryField.ID, EntryField.TITLE, EntryField.LINKS).build())
+            .build();
+        FeedPipeline pipeline = FeedPipeline.builder()
+            .addExtensionElement(entry -> ExtensionElements.simpleElement("source", entry.getId()).build())
+            .build();
+        Entry entry = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options).next();
+
+        assertThatThrownBy(() -> pipeline.transform(entry))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Cannot add extension elements to entry vidal://product/15070, its extension elements were not loaded");
+    }
+}
@@ -0,0 +1,566 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.EntryField;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElement;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.TimeZone.getTimeZone;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FeedReaderTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">\n" +
+        "    <title>Search Products - Query :sintrom</title>\n" +
+        "    <subtitle>Or is it?</subtitle>\n" +
+        "    <link href=\"/rest/api/products?q=sintrom\" rel=\"self\" type=\"application/atom+xml\"/>\n" +
+        "    <id>Heidi</id>\n" +
+        "    <author><name>VIDAL</name><email>software@vidal.fr</email></author>\n" +
+        "    <contributor><name>John</name></contributor>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <opensearch:itemsPerPage xmlns:opensearch=\"http://a9.com/-/spec/opensearch/1.1/\">25</opensearch:itemsPerPage>\n" +
+        "    <entry vidal:type=\"PRODUCT\" rank=\"1\">\n" +
+        "        <title>SINTROM 4 mg cp quadriséc</title>\n" +
+        "        <link href=\"/rest/api/product/15070\" rel=\"alternate\" type=\"application/atom+xml\" title=\"PRODUCT\"/>\n" +
+        "        <category term=\"PRODUCT\" scheme=\"urn:vidal\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <published>1977-02-05T01:00:00Z</published>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <summary type=\"text\">SINTROM 4 mg cp quadriséc</summary>\n" +
+        "        <content type=\"html\">&lt;p&gt;Hello&lt;/p&gt;</content>\n" +
+        "        <vidal:id>15070</vidal:id>\n" +
+        "        <vidal:dosages>\n" +
+        "            <vidal:dosage unit=\"mg\" xmlns:x=\"urn:x\"><vidal:dose>10.0</vidal:dose></vidal:dosage>\n" +
+        "        </vidal:dosages>\n" +
+        "        <vidal:broken><vidal:empty/></vidal:broken>\n" +
+        "        <rights>Public</rights>\n" +
+        "    </entry>\n" +
+        "    <entry>\n" +
+        "        <title>SNAKE OIL 1 mg</title>\n" +
+        "        <link href=\"/rest/api/product/42\" rel=\"unknown\"/>\n" +
+        "        <id>vidal://product/42</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <content/>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    private JAXBContext context;
+    private Path file;
+
+    @Before
+    public void prepare() throws Exception {
+        TimeZone.setDefault(getTimeZone("Europe/Paris"));
+        context = AtomJaxb.newContext();
+        file = Files.createTempFile("feed", ".xml");
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void reads_entries_as_jaxb_does() throws Exception {
+        Feed expected = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)));
+
+        assertHeader(reader.header(), expected);
+        List<Entry> entries = reader.entries().collect(toList());
+        assertThat(entries).containsExactlyElementsOf(expected.getEntries());
+        Iterator<Entry> expectedEntries = expected.getEntries().iterator();
+        for (Entry entry : entries) {
+            assertEntry(entry, expectedEntries.next());
+        }
+    }
+
+    @Test
+    public void reads_mapped_file_across_windows() throws Exception {
+        Files.write(file, XML.getBytes(UTF_8));
+        Feed expected = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+
+        List<Entry> entries = new ArrayList<>();
+        try (FeedReader reader = FeedReader.open(file, 7)) {
+            assertHeader(reader.header(), expected);
+            reader.forEachRemaining(entries::add);
+        }
+
+        assertThat(entries).containsExactlyElementsOf(expected.getEntries());
+        assertEntry(entries.get(0), expected.getEntries().iterator().next());
+    }
+
+    @Test
+    public void iterates_without_reading_header_first() {
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)));
+
+        assertThat(reader.hasNext()).isTrue();
+        assertThat(reader.next().getId()).isEqualTo("vidal://product/15070");
+        assertThat(reader.next().getId()).isEqualTo("vidal://product/42");
+        assertThat(reader.hasNext()).isFalse();
+    }
+
+    @Test
+    public void spills_large_values_to_temporary_file() throws Exception {
+        Path directory = Files.createTempDirectory("spill");
+        String html = largeHtml();
+        List<Entry> entries = new ArrayList<>();
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withSpillThreshold(1024)
+            .withSpillDirectory(directory)
+            .build();
+
+        try (FeedReader reader = FeedReader.create(new ByteArrayInputStream(feedWithContents(html).getBytes(UTF_8)), options)) {
+            reader.forEachRemaining(entries::add);
+            assertThat(Files.list(directory).count()).isEqualTo(1);
+        }
+
+        assertThat(Files.list(directory).count()).isZero();
+        Files.delete(directory);
+        assertSpilled(entries, html);
+    }
+
+    @Test
+    public void spills_large_values_off_heap() throws Exception {
+        String html = largeHtml();
+        FeedReaderOptions options = FeedReaderOptions.builder().withSpillThreshold(1024).build();
+
+        try (FeedReader reader = FeedReader.create(new ByteArrayInputStream(feedWithContents(html).getBytes(UTF_8)), options)) {
+            assertSpilled(reader.entries().collect(toList()), html);
+        }
+    }
+
+    @Test
+    public void binds_accepted_entries_as_unfiltered_reader_does() throws Exception {
+        Feed expected = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+        FeedReaderOptions options = FeedReaderOptions.builder().withEntryFilter(fields -> true).build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options)
+            .entries()
+            .collect(toList());
+
+        assertThat(entries).containsExactlyElementsOf(expected.getEntries());
+        Iterator<Entry> expectedEntries = expected.getEntries().iterator();
+        for (Entry entry : entries) {
+            assertEntry(entry, expectedEntries.next());
+        }
+    }
+
+    @Test
+    public void skips_entries_rejected_by_filter() {
+        assertThat(filteredIds(EntryFilters.hasCategoryScheme("urn:vidal"))).containsExactly("vidal://product/15070");
+        assertThat(filteredIds(EntryFilters.hasCategory(null, "SUBSTANCE"))).isEmpty();
+        assertThat(filteredIds(EntryFilters.hasLinkRel(null))).containsExactly("vidal://product/42");
+        assertThat(filteredIds(EntryFilters.idIn(asList("vidal://product/42", "vidal://product/1")))).containsExactly("vidal://product/42");
+        assertThat(filteredIds(EntryFilters.updatedAfter(new Date(0)).and(fields -> fields.getPublishedDate() == null)))
+            .containsExactly("vidal://product/42");
+    }
+
+    @Test
+    public void does_not_bind_rejected_entries() {
+        String xml = "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Feed</title><id>urn:feed</id>" +
+            "<entry><id>urn:rejected</id><content>ignored</content><x:empty xmlns:x=\"urn:x\"/></entry>" +
+            "<entry><title>Accepted</title><link href=\"/entry\"/><id>urn:accepted</id>" +
+            "<updated>2012-02-16T01:00:00Z</updated><content>kept</content></entry></feed>";
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withEntryFilter(fields -> fields.getId().equals("urn:accepted"))
+            .build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(xml.getBytes(UTF_8)), options)
+            .entries()
+            .collect(toList());
+
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getContents().getContents()).isEqualTo("kept");
+    }
+
+    @Test
+    public void reads_latest_entries_only() {
+        String xml = "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Feed</title><id>urn:feed</id>" +
+            entry("urn:1", "2012-01-01T00:00:00Z") +
+            entry("urn:2", "2012-03-01T00:00:00Z") +
+            entry("urn:3", "2012-02-01T00:00:00Z") +
+            "<entry><id>urn:older</id><updated>2011-12-01T00:00:00Z</updated><content>unbound</content></entry></feed>";
+        FeedReaderOptions options = FeedReaderOptions.builder().withLatestEntries(2).build();
+
+        List<String> ids = FeedReader.create(new ByteArrayInputStream(xml.getBytes(UTF_8)), options)
+            .entries()
+            .map(Entry::getId)
+            .collect(toList());
+
+        assertThat(ids).containsExactly("urn:2", "urn:3");
+    }
+
+    @Test
+    public void rejects_latest_entries_without_projected_update_date() {
+        FeedReaderOptions.Builder options = FeedReaderOptions.builder()
+            .withProjection(EntryProjection.builder(EntryField.ID, EntryField.TITLE).build())
+            .withLatestEntries(2);
+
+        assertThatThrownBy(options::build)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Latest entries require the update date to be projected");
+    }
+
+    @Test
+    public void binds_projected_fields_only() throws Exception {
+        Feed expected = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withProjection(EntryProjection.builder(EntryField.ID, EntryField.UPDATE_DATE, EntryField.LINKS).build())
+            .build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options)
+            .entries()
+            .collect(toList());
+
+        Entry entry = entries.get(0);
+        Entry expectedEntry = expected.getEntries().iterator().next();
+        assertThat(entry.getId()).isEqualTo(expectedEntry.getId());
+        assertThat(entry.getUpdateDate()).isEqualTo(expectedEntry.getUpdateDate());
+        assertThat(entry.getLinks()).containsExactlyElementsOf(expectedEntry.getLinks());
+        assertThat(entry.isLoaded(EntryField.CONTENTS)).isFalse();
+        assertThat(entry.getUnloadedFields()).doesNotContain(EntryField.ID, EntryField.UPDATE_DATE, EntryField.LINKS);
+        assertThatThrownBy(entry::getSummary)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("SUMMARY was not loaded");
+        assertThatThrownBy(entry::getExtensionElements)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("EXTENSION_ELEMENTS was not loaded");
+    }
+
+    @Test
+    public void keeps_entries_projected_without_id_distinct() {
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withProjection(EntryProjection.builder(EntryField.TITLE, EntryField.UPDATE_DATE).build())
+            .build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options)
+            .entries()
+            .collect(toList());
+        Feed feed = Feed.builder()
+            .withTitle("Projected")
+            .withId("urn:projected")
+            .withUpdateDate(new Date(0))
+            .addLink(Link.builder("/rest/api/projected").build())
+            .addEntries(entries)
+            .build();
+        EntryRing ring = EntryRing.create(4);
+        entries.forEach(ring::append);
+
+        assertThat(entries.get(0)).isNotEqualTo(entries.get(1));
+        assertThat(feed.getEntries().stream().map(Entry::getTitle).collect(toList()))
+            .containsExactly("SINTROM 4 mg cp quadriséc", "SNAKE OIL 1 mg");
+        assertThat(ring.snapshot()).containsExactly(entries.get(1), entries.get(0));
+    }
+
+    @Test
+    public void binds_projected_extension_elements_only() {
+        FeedReaderOptions options = FeedReaderOptions.builder()
+            .withEntryFilter(EntryFilters.hasCategoryScheme("urn:vidal"))
+            .withProjection(EntryProjection.builder(EntryField.ID)
+                .addExtensionElement(new QName("http://api.vidal.net/-/spec/vidal-api/1.0/", "id"))
+                .addExtensionElement(new QName(FeedWriter.ATOM_NAMESPACE, "rights"))
+                .build())
+            .build();
+
+        List<Entry> entries = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options)
+            .entries()
+            .collect(toList());
+
+        assertThat(entries).hasSize(1);
+        Entry entry = entries.get(0);
+        assertThat(entry.getId()).isEqualTo("vidal://product/15070");
+        assertThat(entry.getExtensionElements().stream().map(ExtensionElement::tagName).collect(toList())).containsExactly("id", "rights");
+        assertThatThrownBy(entry::getCategories).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void keeps_unparsed_extension_namespaces_as_raw_xml() {
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(rawXml().getBytes(UTF_8)), rawOptions());
+
+        List<ExtensionElement> extensions = new ArrayList<>(reader.entries().collect(toList()).get(0).getExtensionElements());
+
+        assertThat(extensions.get(0)).isNotInstanceOf(RawElement.class);
+        assertThat(extensions.get(1)).isInstanceOf(RawElement.class);
+        assertThat(((RawElement) extensions.get(1)).xml()).isEqualTo(
+            "<x:note lang=\"fr\" xmlns:x=\"urn:x\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">" +
+                "Take <x:b>two</x:b><!-- per day --> &amp; <vidal:id>1</vidal:id><?pi data?></x:note>");
+        assertThat(reader.header().getExtensionElements().iterator().next()).isInstanceOf(RawElement.class);
+    }
+
+    @Test
+    public void writes_raw_extension_elements_back() throws Exception {
+        assertThat(rewrite(false)).contains(
+            "<x:note lang=\"fr\" xmlns:x=\"urn:x\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">" +
+                "Take <x:b>two</x:b><!-- per day --> &amp; <vidal:id>1</vidal:id><?pi data?></x:note>");
+        assertThat(rewrite(true)).contains("<x:b>two</x:b><!-- per day --> &amp; <vidal:id>1</vidal:id><?pi data?></x:note>");
+    }
+
+    @Test
+    public void reports_extension_elements_to_handler_without_binding_them() {
+        List<String> events = new ArrayList<>();
+        FeedReaderOptions options = FeedReaderOptions.builder().withExtensionHandler(recorder(events, "rights")).build();
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options);
+
+        assertThat(reader.header().getExtensionElements()).isEmpty();
+        List<Entry> entries = reader.entries().collect(toList());
+
+        assertThat(entries.get(0).getExtensionElements().stream().map(ExtensionElement::tagName).collect(toList())).containsExactly("rights");
+        assertThat(events).containsExactly(
+            "-1 null 1 start itemsPerPage",
+            "-1 null 1 text 25",
+            "-1 null 1 end itemsPerPage",
+            "0 vidal://product/15070 1 start id",
+            "0 vidal://product/15070 1 text 15070",
+            "0 vidal://product/15070 1 end id",
+            "0 vidal://product/15070 1 start dosages",
+            "0 vidal://product/15070 2 start dosage",
+            "0 vidal://product/15070 2 attribute unit=mg",
+            "0 vidal://product/15070 3 start dose",
+            "0 vidal://product/15070 3 text 10.0",
+            "0 vidal://product/15070 3 end dose",
+            "0 vidal://product/15070 2 end dosage",
+            "0 vidal://product/15070 1 end dosages",
+            "0 vidal://product/15070 1 start broken",
+            "0 vidal://product/15070 2 start empty",
+            "0 vidal://product/15070 2 end empty",
+            "0 vidal://product/15070 1 end broken");
+    }
+
+    @Test
+    public void reads_entries_through_reused_cursor() throws Exception {
+        Feed expected = (Feed) context.createUnmarshaller().unmarshal(new StringReader(XML));
+        EntryCursor cursor = FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8))).cursor();
+
+        assertThatThrownBy(cursor::getId).isInstanceOf(IllegalStateException.class);
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getId()).isEqualTo("vidal://product/15070");
+        CharSequence id = cursor.getIdChars();
+        assertThat(id.toString()).isEqualTo("vidal://product/15070");
+        assertThat(cursor.getTitleChars().toString()).isEqualTo(cursor.getTitle());
+        assertThat(cursor.getUpdateTime()).isEqualTo(expected.getEntries().iterator().next().getUpdateDate().getTime());
+        assertThat(cursor.getLinkHref(0)).isEqualTo("/rest/api/product/15070");
+        assertThat(cursor.getCategoryTerm(0)).isEqualTo("PRODUCT");
+        assertThat(cursor.getExtensionValue("http://api.vidal.net/-/spec/vidal-api/1.0/", "id")).isEqualTo("15070");
+        Entry first = cursor.toEntry();
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getId()).isEqualTo("vidal://product/42");
+        assertThat(cursor.getIdChars()).isSameAs(id);
+        assertThat(id.toString()).isEqualTo("vidal://product/42");
+        assertThat(cursor.getCategoryCount()).isZero();
+        assertThat(cursor.getPublishedTime()).isEqualTo(EntryCursor.NO_DATE);
+        Entry second = cursor.toEntry();
+        assertThat(cursor.next()).isFalse();
+
+        assertThat(asList(first, second)).containsExactlyElementsOf(expected.getEntries());
+        assertEntry(first, expected.getEntries().iterator().next());
+    }
+
+    @Test
+    public void rejects_other_documents() {
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream("<rss/>".getBytes(UTF_8)));
+
+        assertThatThrownBy(reader::hasNext)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Not an Atom feed: rss");
+    }
+
+    @Test
+    public void rejects_deeply_nested_extension_elements() {
+        FeedReader reader = FeedReader.create(new ByteArrayInputStream(nestedXml(20_000).getBytes(UTF_8)));
+
+        assertThatThrownBy(reader::hasNext)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("exceeds the maximum depth of 256");
+    }
+
+    @Test
+    public void reads_extension_elements_nested_up_to_the_maximum_depth() {
+        FeedReaderOptions options = FeedReaderOptions.builder().withMaxExtensionDepth(3).build();
+
+        Feed header = FeedReader.create(new ByteArrayInputStream(nestedXml(3).getBytes(UTF_8)), options).header();
+
+        assertThat(header.getExtensionElements()).hasSize(1);
+        assertThatThrownBy(() -> FeedReader.create(new ByteArrayInputStream(nestedXml(4).getBytes(UTF_8)), options).header())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Extension element x exceeds the maximum depth of 3");
+    }
+
+    private static String rewrite(boolean replayed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FeedReader reader = FeedReader.create(new ByteArrayInputStream(rawXml().getBytes(UTF_8)), rawOptions())) {
+            FeedWriter writer = replayed
+                ? new FeedWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8"))
+                : FeedWriter.create(out);
+            writer.startFeed(reader.header());
+            while (reader.hasNext()) {
+                writer.writeEntry(reader.next());
+            }
+            writer.endFeed();
+            writer.close();
+        }
+        String xml = new String(out.toByteArray(), UTF_8);
+        assertThat(FeedReader.create(new ByteArrayInputStream(xml.getBytes(UTF_8))).entries().count()).isEqualTo(1L);
+        return xml;
+    }
+
+    private static ExtensionHandler recorder(List<String> events, String kept) {
+        return new ExtensionHandler() {
+            @Override
+            public boolean keepsElement(ExtensionContext context, String namespaceUri, String localName) {
+                return localName.equals(kept);
+            }
+
+            @Override
+            public void startElement(ExtensionContext context, String namespaceUri, String localName) {
+                record(context, "start " + localName);
+            }
+
+            @Override
+            public void attribute(ExtensionContext context, String namespaceUri, String localName, String value) {
+                record(context, "attribute " + localName + "=" + value);
+            }
+
+            @Override
+            public void text(ExtensionContext context, char[] characters, int start, int length) {
+                String text = new String(characters, start, length).trim();
+                if (!text.isEmpty()) {
+                    record(context, "text " + text);
+                }
+            }
+
+            @Override
+            public void endElement(ExtensionContext context, String namespaceUri, String localName) {
+                record(context, "end " + localName);
+            }
+
+            private void record(ExtensionContext context, String event) {
+                events.add(context.getEntryIndex() + " " + context.getEntryId() + " " + context.getDepth() + " " + event);
+            }
+        };
+    }
+
+    private static String nestedXml(int depth) {
+        StringBuilder xml = new StringBuilder("<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Nested</title><link href=\"/nested\"/><id>nested</id>" +
+            "<updated>2012-02-16T01:00:00Z</updated>");
+        for (int i = 0; i < depth; i++) {
+            xml.append("<x xmlns=\"urn:x\" level=\"").append(i).append("\">");
+        }
+        for (int i = 0; i < depth; i++) {
+            xml.append("</x>");
+        }
+        return xml.append("</feed>").toString();
+    }
+
+    private static FeedReaderOptions rawOptions() {
+        return FeedReaderOptions.builder()
+            .withParsedExtensionNamespaces("http://api.vidal.net/-/spec/vidal-api/1.0/")
+            .build();
+    }
+
+    private static String rawXml() {
+        return "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\" xmlns:x=\"urn:x\">" +
+            "<title>Raw</title><link href=\"/rest/api/raw\"/><id>raw</id><updated>2012-02-16T01:00:00Z</updated>" +
+            "<x:generator>test</x:generator>" +
+            "<entry>" +
+            "<title>SINTROM</title><link href=\"/rest/api/product/15070\"/><id>vidal://product/15070</id>" +
+            "<updated>2012-02-16T01:00:00Z</updated>" +
+            "<vidal:id>15070</vidal:id>" +
+            "<x:note lang=\"fr\">Take <x:b>two</x:b><!-- per day --> &amp; <vidal:id>1</vidal:id><?pi data?></x:note>" +
+            "</entry>" +
+            "</feed>";
+    }
+
+    private static String entry(String id, String updated) {
+        return "<entry><title>" + id + "</title><link href=\"/entry\"/><id>" + id + "</id>" +
+            "<updated>" + updated + "</updated><content>kept</content></entry>";
+    }
+
+    private static List<String> filteredIds(Predicate<EntryFields> filter) {
+        FeedReaderOptions options = FeedReaderOptions.builder().withEntryFilter(filter).build();
+        return FeedReader.create(new ByteArrayInputStream(XML.getBytes(UTF_8)), options)
+            .entries()
+            .map(Entry::getId)
+            .collect(toList());
+    }
+
+    private static String largeHtml() {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < 1 << 20) {
+            html.append("<p>Posologie : 1 comprimé & demi</p>");
+        }
+        return html.toString();
+    }
+
+    private static String feedWithContents(String html) {
+        String escaped = html.replace("&", "&amp;").replace("<", "&lt;");
+        StringBuilder xml = new StringBuilder("<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Spilled</title><id>urn:feed</id>");
+        for (int i = 0; i < 3; i++) {
+            xml.append("<entry><title>Entry</title><link href=\"/entry\"/><id>urn:entry:").append(i).append("</id>")
+                .append("<updated>2012-02-16T01:00:00Z</updated>")
+                .append("<summary>Short</summary>")
+                .append("<content type=\"html\">").append(escaped).append("</content></entry>");
+        }
+        return xml.append("</feed>").toString();
+    }
+
+    private static void assertSpilled(List<Entry> entries, String html) throws Exception {
+        assertThat(entries).hasSize(3);
+        for (Entry entry : entries) {
+            assertThat(entry.getSummary().isStreamed()).isFalse();
+            assertThat(entry.getSummary().getValue()).isEqualTo("Short");
+            assertThat(entry.getContents().isStreamed()).isTrue();
+            assertThat(entry.getContents().getSource().asCharSequence().length()).isEqualTo(html.length());
+            assertThat(entry.getContents().getContents()).isEqualTo(html);
+        }
+    }
+
+    private static void assertHeader(Feed header, Feed expected) {
+        assertThat(header.getId()).isEqualTo(expected.getId());
+        assertThat(header.getTitle()).isEqualTo(expected.getTitle());
+        assertThat(header.getSubtitle()).isEqualTo(expected.getSubtitle());
+        assertThat(header.getUpdateDate()).isEqualTo(expected.getUpdateDate());
+        assertThat(header.getAuthor()).isEqualTo(expected.getAuthor());
+        assertThat(header.getContributors()).containsExactlyElementsOf(expected.getContributors());
+        assertThat(header.getLinks()).containsExactlyElementsOf(expected.getLinks());
+        assertThat(header.getExtensionElements()).containsExactlyElementsOf(expected.getExtensionElements());
+        assertThat(header.getEntries()).isEmpty();
+    }
+
+    private static void assertEntry(Entry entry, Entry expected) {
+        assertThat(entry.getTitle()).isEqualTo(expected.getTitle());
+        assertThat(entry.getLinks()).containsExactlyElementsOf(expected.getLinks());
+        assertThat(entry.getCategories()).containsExactlyElementsOf(expected.getCategories());
+        assertThat(entry.getPublishedDate()).isEqualTo(expected.getPublishedDate());
+        assertThat(entry.getUpdateDate()).isEqualTo(expected.getUpdateDate());
+        assertThat(entry.getSummary()).isEqualTo(expected.getSummary());
+        assertThat(entry.getContents()).isEqualTo(expected.getContents());
+        assertThat(entry.getExtensionElements()).containsExactlyElementsOf(expected.getExtensionElements());
+        assertThat(entry.getAdditionalAttributes()).isEqualTo(expected.getAdditionalAttributes());
+    }
+}
@@ -0,0 +1,248 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Attribute;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import fr.vidal.oss.jaxb.atom.core.NamespaceHoisting;
+import fr.vidal.oss.jaxb.atom.core.RawElement;
+import fr.vidal.oss.jaxb.atom.core.Summary;
+import fr.vidal.oss.jaxb.atom.core.TextSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.TimeZone.getTimeZone;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FeedWriterTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">\n" +
+        "    <title>Search Products - Query :sintrom</title>\n" +
+        "    <subtitle>Or is it?</subtitle>\n" +
+        "    <link href=\"/rest/api/products?q=sintrom&amp;page=1\" rel=\"self\" type=\"application/atom+xml\"/>\n" +
+        "    <id>Heidi</id>\n" +
+        "    <author><name>VIDAL</name><email>software@vidal.fr</email></author>\n" +
+        "    <contributor><name>John</name></contributor>\n" +
+        "    <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "    <opensearch:itemsPerPage xmlns:opensearch=\"http://a9.com/-/spec/opensearch/1.1/\">25</opensearch:itemsPerPage>\n" +
+        "    <entry vidal:type=\"PRODUCT\">\n" +
+        "        <title>SINTROM 4 mg cp quadriséc</title>\n" +
+        "        <link href=\"/rest/api/product/15070\" rel=\"alternate\" type=\"application/atom+xml\" title=\"PRODUCT\"/>\n" +
+        "        <category term=\"PRODUCT\" scheme=\"urn:vidal\"/>\n" +
+        "        <id>vidal://product/15070</id>\n" +
+        "        <published>1977-02-05T01:00:00Z</published>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <summary type=\"text\">SINTROM 4 mg cp quadriséc</summary>\n" +
+        "        <content type=\"html\">&lt;p&gt;Hello&lt;/p&gt;</content>\n" +
+        "        <vidal:id>15070</vidal:id>\n" +
+        "        <vidal:dosages>\n" +
+        "            <vidal:dosage unit=\"mg\"><vidal:dose>10.0</vidal:dose></vidal:dosage>\n" +
+        "        </vidal:dosages>\n" +
+        "    </entry>\n" +
+        "    <entry>\n" +
+        "        <title>SNAKE OIL 1 mg</title>\n" +
+        "        <link href=\"/rest/api/product/42\"/>\n" +
+        "        <id>vidal://product/42</id>\n" +
+        "        <updated>2012-02-16T01:00:00Z</updated>\n" +
+        "        <content/>\n" +
+        "    </entry>\n" +
+        "</feed>";
+
+    private JAXBContext context;
+
+    @Before
+    public void prepare() throws JAXBException {
+        TimeZone.setDefault(getTimeZone("Europe/Paris"));
+        context = AtomJaxb.newContext();
+    }
+
+    @Test
+    public void writes_what_jaxb_reads_back_identically() throws Exception {
+        Feed feed = unmarshal(XML.getBytes(UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        FeedWriter.create(out).write(feed);
+
+        Feed result = unmarshal(out.toByteArray());
+        assertThat(marshal(result)).isEqualTo(marshal(feed));
+        Entry entry = result.getEntries().iterator().next();
+        Entry original = feed.getEntries().iterator().next();
+        assertThat(entry.getExtensionElements()).containsExactlyElementsOf(original.getExtensionElements());
+        assertThat(entry.getAdditionalAttributes()).isEqualTo(original.getAdditionalAttributes());
+    }
+
+    @Test
+    public void declares_namespaces_only_once_in_scope() throws Exception {
+        Feed feed = unmarshal(XML.getBytes(UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        FeedWriter.create(out).write(feed);
+
+        String xml = new String(out.toByteArray(), UTF_8);
+        assertThat(xml).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><feed xmlns=\"http://www.w3.org/2005/Atom\">");
+        assertThat(xml).contains("<entry xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\" vidal:type=\"PRODUCT\">");
+        assertThat(xml).contains("<vidal:dosages><vidal:dosage unit=\"mg\"><vidal:dose>10.0</vidal:dose></vidal:dosage></vidal:dosages>");
+        assertThat(xml).contains("<content/>");
+        assertThat(xml).contains("<link rel=\"self\" type=\"application/atom+xml\" href=\"/rest/api/products?q=sintrom&amp;page=1\"/>");
+    }
+
+    @Test
+    public void declares_hoisted_namespaces_on_feed() throws Exception {
+        Feed feed = unmarshal(XML.getBytes(UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        FeedWriter.create(out).write(feed, NamespaceHoisting.collect(feed));
+
+        String xml = new String(out.toByteArray(), UTF_8);
+        assertThat(xml).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:opensearch=\"http://a9.com/-/spec/opensearch/1.1/\" " +
+            "xmlns:vidal=\"http://api.vidal.net/-/spec/vidal-api/1.0/\">");
+        assertThat(xml).contains("<entry vidal:type=\"PRODUCT\">");
+        assertThat(xml).contains("<opensearch:itemsPerPage>25</opensearch:itemsPerPage>");
+    }
+
+    @Test
+    public void streams_entries_one_at_a_time() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeedWriter writer = FeedWriter.create(out);
+
+        writer.startFeed(Feed.builder()
+            .withTitle("Streamed")
+            .withId("urn:feed")
+            .withUpdateDate(new Date(510278400000L))
+            .addLink(Link.builder("http://example.org/").build())
+            .build());
+        for (int i = 0; i < 3; i++) {
+            writer.writeEntry(Entry.builder()
+                .withId("urn:entry:" + i)
+                .withTitle("Entry <" + i + ">")
+                .withUpdateDate(new Date(510278400000L))
+                .addLink(Link.builder("http://example.org/" + i).build())
+                .addAttribute(Attribute.builder("rank", String.valueOf(i))
+                    .withNamespace(Namespace.builder("urn:custom").withPrefix("custom").build())
+                    .build())
+                .build());
+        }
+        writer.endFeed();
+
+        Feed result = unmarshal(out.toByteArray());
+        assertThat(result.getEntries()).hasSize(3);
+        Entry first = result.getEntries().iterator().next();
+        assertThat(first.getTitle()).isEqualTo("Entry <0>");
+        assertThat(first.getUpdateDate()).isEqualTo(new Date(510278400000L));
+        assertThat(first.getAdditionalAttributes()).containsEntry(new QName("urn:custom", "rank"), "0");
+    }
+
+    @Test
+    public void streams_contents_from_their_source() throws Exception {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < 1 << 20) {
+            html.append("<p>Posologie : 1 comprimé & demi</p>");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeedWriter writer = FeedWriter.create(out);
+
+        writer.startFeed(Feed.builder()
+            .withTitle("Streamed")
+            .withId("urn:feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .build());
+        writer.writeEntry(Entry.builder()
+            .withId("urn:entry")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/entry").build())
+            .withSummary(Summary.builder().withValueSource(TextSource.ofSupplier(() -> "Short & sweet")).build())
+            .withContents(Contents.builder()
+                .withType(ContentType.builder("html").build())
+                .withContentsSource(() -> new StringReader(html.toString()))
+                .build())
+            .build());
+        writer.endFeed();
+
+        Entry entry = unmarshal(out.toByteArray()).getEntries().iterator().next();
+        assertThat(entry.getContents().getContents()).isEqualTo(html.toString());
+        assertThat(entry.getSummary().getValue()).isEqualTo("Short & sweet");
+    }
+
+    @Test
+    public void keeps_surrogate_pairs_across_chunk_boundaries() throws Exception {
+        String text = padding(8191) + "\uD83D\uDE00y";
+        String raw = "<vidal:note xmlns:vidal=\"urn:vidal\">" + padding(1023 - 36) + "\uD83D\uDE00</vidal:note>";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeedWriter writer = FeedWriter.create(out);
+
+        writer.startFeed(Feed.builder()
+            .withTitle("Streamed")
+            .withId("urn:feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .build());
+        writer.writeEntry(Entry.builder()
+            .withId("urn:entry")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/entry").build())
+            .withContents(Contents.builder().withContentsSource(() -> new StringReader(text)).build())
+            .addExtensionElement(RawElement.of(Namespace.builder("urn:vidal").withPrefix("vidal").build(), "note", raw))
+            .build());
+        writer.endFeed();
+
+        String xml = new String(out.toByteArray(), UTF_8);
+        assertThat(xml).contains(text).contains(raw);
+        assertThat(unmarshal(out.toByteArray()).getEntries().iterator().next().getContents().getContents()).isEqualTo(text);
+    }
+
+    @Test
+    public void rejects_entries_outside_of_feed() {
+        FeedWriter writer = FeedWriter.create(new ByteArrayOutputStream());
+        Entry entry = Entry.builder()
+            .withId("urn:entry")
+            .withTitle("Entry")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .build();
+
+        assertThatThrownBy(() -> writer.writeEntry(entry))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Entries can only be written between startFeed and endFeed");
+    }
+
+    private static String padding(int length) {
+        char[] padding = new char[length];
+        Arrays.fill(padding, 'x');
+        return new String(padding);
+    }
+
+    private Feed unmarshal(byte[] bytes) throws JAXBException {
+        return (Feed) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(bytes));
+    }
+
+    private String marshal(Feed feed) throws JAXBException {
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(feed, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimestampParserTest {
+
+    @Test
+    public void parses_like_the_date_adapter_across_time_zone_transitions() throws Exception {
+        for (String zone : new String[]{"UTC", "Europe/Paris", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata"}) {
+            SimpleDateFormat dateFormat = dateFormat(zone);
+            TimestampParser parser = new TimestampParser(dateFormat);
+            for (int month = 1; month <= 12; month++) {
+                for (int day = 1; day <= 28; day += 3) {
+                    for (int minutes = 0; minutes < 24 * 60; minutes += 15) {
+                        String text = String.format("2021-%02d-%02dT%02d:%02d:07Z", month, day, minutes / 60, minutes % 60);
+                        assertThat(parser.parse(text)).as(zone + " " + text).isEqualTo(dateFormat.parse(text).getTime());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parses_daylight_saving_gaps_and_overlaps_like_the_date_adapter() throws Exception {
+        SimpleDateFormat dateFormat = dateFormat("Europe/Paris");
+        TimestampParser parser = new TimestampParser(dateFormat);
+
+        for (String text : new String[]{"2021-03-28T02:30:00Z", "2021-03-28T02:00:00Z", "2021-10-31T02:30:00Z", "2021-10-31T03:00:00Z"}) {
+            assertThat(parser.parse(text)).as(text).isEqualTo(dateFormat.parse(text).getTime());
+        }
+    }
+
+    @Test
+    public void falls_back_to_the_date_format_for_other_forms() throws Exception {
+        SimpleDateFormat dateFormat = dateFormat("Europe/Paris");
+        TimestampParser parser = new TimestampParser(dateFormat);
+
+        assertThat(parser.parse(" 2012-02-16T01:00:00Z\n")).isEqualTo(dateFormat.parse("2012-02-16T01:00:00Z").getTime());
+        assertThat(parser.parse("2012-02-30T25:00:00Z")).isEqualTo(dateFormat.parse("2012-02-30T25:00:00Z").getTime());
+        assertThat(parser.parse("1500-02-16T01:00:00Z")).isEqualTo(dateFormat.parse("1500-02-16T01:00:00Z").getTime());
+        assertThat(parser.parse("2012-2-16T01:00:00Z")).isEqualTo(dateFormat.parse("2012-2-16T01:00:00Z").getTime());
+        assertThat(parser.parse("yesterday")).isEqualTo(TimestampParser.NO_TIME);
+        assertThat(parser.parse("")).isEqualTo(TimestampParser.NO_TIME);
+    }
+
+    private static SimpleDateFormat dateFormat(String zone) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone(zone));
+        return dateFormat;
+    }
+}
@@ -0,0 +1,194 @@
+package fr.vidal.oss.jaxb.atom.stream;
+
+import fr.vidal.oss.jaxb.atom.core.AtomJaxb;
+import fr.vidal.oss.jaxb.atom.core.ContentType;
+import fr.vidal.oss.jaxb.atom.core.Contents;
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import org.junit.Test;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Utf8XmlStreamWriterTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    public void escapes_text_and_attributes() throws Exception {
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+
+        writer.writeStartElement("a");
+        writer.writeAttribute("title", "\"Tom\" & <Jerry>\n");
+        writer.writeCharacters("if (a < b && c > d) \"quoted\"");
+        writer.writeEndElement();
+        writer.flush();
+
+        assertThat(output()).isEqualTo(
+            "<a title=\"&quot;Tom&quot; &amp; &lt;Jerry&gt;&#10;\">if (a &lt; b &amp;&amp; c &gt; d) \"quoted\"</a>");
+    }
+
+    @Test
+    public void encodes_non_ascii_characters_across_buffer_boundaries() throws Exception {
+        String text = "quadriséc – 藥 💊 &";
+        StringBuilder expected = new StringBuilder();
+        Utf8XmlStreamWriter writer = new Utf8XmlStreamWriter(ByteSinks.of(out), 16);
+
+        writer.writeStartElement("vidal", "product", "urn:vidal");
+        writer.writeNamespace("vidal", "urn:vidal");
+        for (int i = 0; i < 100; i++) {
+            writer.writeCharacters(text);
+            expected.append(text.replace("&", "&amp;"));
+        }
+        writer.writeEndElement();
+        writer.flush();
+
+        assertThat(output()).isEqualTo("<vidal:product xmlns:vidal=\"urn:vidal\">" + expected + "</vidal:product>");
+    }
+
+    @Test
+    public void writes_empty_elements_and_replaces_lone_surrogates() throws Exception {
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(Channels.newChannel(out));
+
+        writer.writeStartDocument();
+        writer.writeStartElement("root");
+        writer.writeEmptyElement("empty");
+        writer.writeCharacters(new char[]{'x', '\uD800', 'y'}, 0, 3);
+        writer.writeEndDocument();
+        writer.close();
+
+        assertThat(output()).isEqualTo("<?xml version=\"1.0\" encoding=\"UTF-8\"?><root><empty/>x?y</root>");
+    }
+
+    @Test
+    public void writes_attributes_and_namespaces_of_empty_elements() throws Exception {
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+
+        writer.writeStartElement("root");
+        writer.writeNamespace("vidal", "urn:vidal");
+        writer.writeEmptyElement("link");
+        writer.writeAttribute("href", "/rest/api/product/15070");
+        writer.writeNamespace("vidal", "urn:other");
+        writer.writeEmptyElement("urn:vidal", "id");
+        writer.writeEndElement();
+        writer.writeEmptyElement("last");
+        writer.writeAttribute("rank", "1");
+        writer.writeEndDocument();
+        writer.flush();
+
+        assertThat(output()).isEqualTo("<root xmlns:vidal=\"urn:vidal\">"
+            + "<link href=\"/rest/api/product/15070\" xmlns:vidal=\"urn:other\"/><vidal:id/></root><last rank=\"1\"/>");
+    }
+
+    @Test
+    public void keeps_surrogate_pairs_across_chunk_boundaries() throws Exception {
+        for (int offset : new int[]{1023, 8191}) {
+            String text = padding(offset) + "\uD83D\uDE00y";
+            out.reset();
+            Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+
+            writer.writeStartElement("a");
+            writer.writeCharacters(text);
+            writer.writeCharacters(new StringBuilder(text));
+            writer.writeRaw(text);
+            writer.writeEndElement();
+            writer.flush();
+
+            assertThat(output()).isEqualTo("<a>" + text + text + text + "</a>");
+        }
+    }
+
+    @Test
+    public void is_a_jaxb_marshalling_target() throws Exception {
+        JAXBContext context = AtomJaxb.newContext();
+        Feed feed = Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date())
+            .addLink(Link.builder("http://example.org/").build())
+            .addEntry(Entry.builder()
+                .withId("urn:entry")
+                .withTitle("Entry")
+                .withUpdateDate(new Date())
+                .addLink(Link.builder("http://example.org/entry").build())
+                .withContents(Contents.builder().withType(ContentType.builder("html").build()).withContents("<p>Hello</p>").build())
+                .addExtensionElement(ExtensionElements.simpleElement("id", "15070")
+                    .withNamespace(Namespace.builder("urn:vidal").withPrefix("vidal").build())
+                    .build())
+                .build())
+            .build();
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+
+        context.createMarshaller().marshal(feed, writer);
+        writer.flush();
+
+        Feed result = (Feed) context.createUnmarshaller().unmarshal(new StringReader(output()));
+        assertThat(result.getEntries()).containsExactlyElementsOf(feed.getEntries());
+        assertThat(result.getEntries().iterator().next().getExtensionElements()).hasSize(1);
+        assertThat(output()).contains("<content type=\"html\">&lt;p&gt;Hello&lt;/p&gt;</content>");
+    }
+
+    @Test
+    public void looks_up_unbound_prefixes_in_the_namespace_context() throws Exception {
+        Utf8XmlStreamWriter writer = Utf8XmlStreamWriter.create(out);
+        writer.setNamespaceContext(new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                return "vidal".equals(prefix) ? "urn:vidal" : XMLConstants.NULL_NS_URI;
+            }
+
+            @Override
+            public String getPrefix(String namespaceURI) {
+                return "urn:vidal".equals(namespaceURI) ? "vidal" : null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                return "urn:vidal".equals(namespaceURI) ? singletonList("vidal").iterator() : emptyIterator();
+            }
+        });
+
+        writer.writeStartElement("urn:vidal", "product");
+        writer.writeStartElement("name");
+        writer.setPrefix("vidal", "urn:other");
+        writer.writeNamespace("vidal", "urn:other");
+        writer.writeEmptyElement("urn:other", "id");
+        writer.writeEndElement();
+        writer.writeEmptyElement("urn:vidal", "id");
+
+        assertThat(writer.getNamespaceContext().getNamespaceURI("vidal")).isEqualTo("urn:vidal");
+        assertThat(writer.getNamespaceContext().getPrefix(XMLConstants.XML_NS_URI)).isEqualTo(XMLConstants.XML_NS_PREFIX);
+        assertThatThrownBy(() -> writer.setNamespaceContext(null)).isInstanceOf(XMLStreamException.class);
+        writer.writeEndElement();
+        writer.flush();
+
+        assertThat(output()).isEqualTo("<vidal:product><name xmlns:vidal=\"urn:other\"><vidal:id/></name><vidal:id/></vidal:product>");
+    }
+
+    private static String padding(int length) {
+        char[] padding = new char[length];
+        Arrays.fill(padding, 'x');
+        return new String(padding);
+    }
+
+    private String output() {
+        return new String(out.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package fr.vidal.oss.jaxb.atom.jfr;
+
+import fr.vidal.oss.jaxb.atom.core.Entry;
+import fr.vidal.oss.jaxb.atom.core.ExtensionElements;
+import fr.vidal.oss.jaxb.atom.core.Feed;
+import fr.vidal.oss.jaxb.atom.core.Link;
+import fr.vidal.oss.jaxb.atom.core.Namespace;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static fr.vidal.oss.jaxb.atom.core.AtomFormat.XML;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the packaged jar, whose multi-release part holds the event classes.
+ */
+public class AtomFlightRecorderEventsIT {
+
+    private static final String PREFIX = "fr.vidal.oss.jaxb.atom.";
+
+    @Test
+    public void records_feed_entry_extension_and_context_events() throws Exception {
+        assertThat(AtomFlightRecorder.isSupported()).isTrue();
+        Path file = Files.createTempFile("atom-jaxb", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{"FeedMarshal", "FeedUnmarshal", "Entry", "ExtensionAdapt", "ContextCreation"}) {
+                recording.enable(PREFIX + event).withoutThreshold();
+            }
+            recording.start();
+            JAXBContext context = AtomFlightRecorder.newContext();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AtomFlightRecorder.marshal(XML, AtomFlightRecorder.instrument(context.createMarshaller()), feed(), out);
+            AtomFlightRecorder.unmarshal(XML, AtomFlightRecorder.instrument(context.createUnmarshaller()),
+                new ByteArrayInputStream(out.toByteArray()));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            RecordedEvent contextCreation = single(events, "ContextCreation");
+            assertThat(contextCreation.getString("contextPath")).isEqualTo("fr.vidal.oss.jaxb.atom.core");
+
+            RecordedEvent marshal = single(events, "FeedMarshal");
+            assertThat(marshal.getString("feedId")).isEqualTo("urn:feed");
+            assertThat(marshal.getInt("entryCount")).isEqualTo(1);
+            assertThat(marshal.getInt("extensionElementCount")).isEqualTo(1);
+            assertThat(marshal.getLong("byteSize")).isEqualTo(out.size());
+
+            RecordedEvent unmarshal = single(events, "FeedUnmarshal");
+            assertThat(unmarshal.getString("feedId")).isEqualTo("urn:feed");
+            assertThat(unmarshal.getInt("entryCount")).isEqualTo(1);
+            assertThat(unmarshal.getInt("extensionElementCount")).isEqualTo(1);
+            assertThat(unmarshal.getLong("byteSize")).isEqualTo(out.size());
+
+            List<RecordedEvent> entries = named(events, "Entry");
+            assertThat(entries).extracting(event -> event.getString("operation")).containsExactlyInAnyOrder("marshal", "unmarshal");
+            assertThat(entries).extracting(event -> event.getString("entryId")).containsOnly("urn:entry");
+            assertThat(entries).extracting(event -> event.getInt("extensionElementCount")).containsOnly(1);
+
+            List<RecordedEvent> extensions = named(events, "ExtensionAdapt");
+            assertThat(extensions).extracting(event -> event.getString("operation")).containsExactlyInAnyOrder("marshal", "unmarshal");
+            assertThat(extensions).extracting(event -> event.getString("namespaceUri")).containsOnly("urn:x");
+            assertThat(extensions).extracting(event -> event.getString("tagName")).containsOnly("code");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Feed feed() {
+        return Feed.builder()
+            .withId("urn:feed")
+            .withTitle("Feed")
+            .withUpdateDate(new Date(1329350400000L))
+            .addLink(Link.builder("http://example.org/").build())
+            .addEntry(Entry.builder()
+                .withId("urn:entry")
+                .withTitle("Entry")
+                .withUpdateDate(new Date(1329350400000L))
+                .addLink(Link.builder("http://example.org/entry").build())
+                .addExtensionElement(ExtensionElements.simpleElement("code", "42")
+                    .withNamespace(Namespace.builder("urn:x").withPrefix("x").build())
+                    .build())
+                .build())
+            .build();
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> named = named(events, name);
+        assertThat(named).hasSize(1);
+        return named.get(0);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+            .filter(event -> event.getEventType().getName().equals(PREFIX + name))
+            .collect(toList());
+    }
+}